@@ -0,0 +1,67 @@
+package cliquefinder.solver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the cliques which the solvers report and puts them into hash sets, like the collecting
+ * {@link CliqueSolver#compute(java.util.Set)} does. Every reported clique goes through this, so its cost is
+ * multiplied by the number of maximal cliques.
+ * Created by qr4 on 26.08.17.
+ */
+@ParametersAreNonnullByDefault
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CliqueBenchmark {
+    @Param({"3", "10", "50"})
+    public int size;
+
+    private List<Node> nodes;
+    private Clique clique;
+    private Clique equalClique;
+
+    @Setup
+    public void setup() {
+        // the solvers do not report the nodes in the order of their names
+        nodes = new ArrayList<>(Arrays.asList(GraphFamily.nodes(size)));
+        Collections.shuffle(nodes, new Random(42));
+        clique = new Clique(nodes);
+        equalClique = new Clique(nodes);
+    }
+
+    @Benchmark
+    public Clique create() {
+        return new Clique(nodes);
+    }
+
+    @Benchmark
+    public int hashCodeOfClique() {
+        return clique.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsOfEqualCliques() {
+        return clique.equals(equalClique);
+    }
+}
@@ -0,0 +1,96 @@
+package cliquefinder.solver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the graphs and reads their adjacency: the HashMap of HashSets in {@link Graph} against the
+ * {@link ConcurrentGraphBuilder} and the CSR {@link CompactGraph}. One operation inserts all the edges of
+ * a graph or reads the neighbors of all its nodes. The nodes are created up front, so only the graph
+ * structures allocate.
+ * Created by qr4 on 26.08.17.
+ */
+@ParametersAreNonnullByDefault
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GraphBenchmark {
+    private static final long SEED = 42;
+
+    @Param({"ERDOS_RENYI", "BARABASI_ALBERT", "PLANTED_CLIQUE"})
+    public GraphFamily family;
+
+    @Param
+    public GraphFamily.Scale scale;
+
+    private Node[] nodes;
+    private String[] names;
+    private int[][] edges;
+    private Graph graph;
+    private CompactGraph compactGraph;
+
+    @Setup
+    public void setup() {
+        nodes = GraphFamily.nodes(family.nodeCount(scale));
+        names = new String[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            names[i] = nodes[i].getName();
+        }
+        edges = family.edges(scale, SEED);
+        graph = GraphFamily.toGraph(nodes, edges);
+        compactGraph = graph.freeze();
+    }
+
+    @Benchmark
+    public Graph addEdge() {
+        final Graph result = new Graph();
+        for (final int[] edge : edges) {
+            result.addEdge(nodes[edge[0]], nodes[edge[1]]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public CompactGraph addEdgeToBuilderAndFreeze() {
+        final ConcurrentGraphBuilder builder = new ConcurrentGraphBuilder();
+        for (final int[] edge : edges) {
+            builder.addEdge(names[edge[0]], names[edge[1]]);
+        }
+        return builder.freeze();
+    }
+
+    @Benchmark
+    public void getAdjacentNodes(final Blackhole blackhole) {
+        for (final Node node : nodes) {
+            blackhole.consume(graph.getAdjacentNodes(node).size());
+        }
+    }
+
+    @Benchmark
+    public void getNeighbors(final Blackhole blackhole) {
+        for (int id = 0; id < compactGraph.getNodeCount(); id++) {
+            blackhole.consume(compactGraph.getNeighbors(id));
+        }
+    }
+
+    @Benchmark
+    public CompactGraph freeze() {
+        return graph.freeze();
+    }
+}
@@ -0,0 +1,148 @@
+package cliquefinder.solver;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The generated graphs of the benchmarks, each at three sizes. The graphs only depend on the seed, so every
+ * run measures the same graphs. The edges are pairs of node ids, node i is named "v" + i.
+ *
+ *      ERDOS_RENYI      G(n, p) with an average degree of 16
+ *      BARABASI_ALBERT  preferential attachment with 4 edges per new node: a power-law degree distribution
+ *                       with a few hubs, like follower graphs
+ *      MOON_MOSER       the complete multipartite graph with parts of 3 nodes, which has the maximum number
+ *                       of maximal cliques (3^(n/3)) of all graphs with n nodes: the worst case of every solver
+ *      PLANTED_CLIQUE   G(n, p) like above with a clique of 2% of the nodes, like a large organization
+ * Created by qr4 on 26.08.17.
+ */
+@ParametersAreNonnullByDefault
+public enum GraphFamily {
+    ERDOS_RENYI(250, 1000, 4000) {
+        @Override
+        int[][] edges(final int n, final Random random) {
+            return erdosRenyi(n, random);
+        }
+    },
+    BARABASI_ALBERT(250, 1000, 4000) {
+        @Override
+        int[][] edges(final int n, final Random random) {
+            final int m = 4;
+            final List<int[]> edges = new ArrayList<>();
+            // every node appears once per edge, so drawing from this list prefers the nodes with large degrees
+            final List<Integer> endPoints = new ArrayList<>();
+            for (int v = 0; v <= m; v++) {
+                for (int u = 0; u < v; u++) {
+                    edges.add(new int[]{u, v});
+                    endPoints.add(u);
+                    endPoints.add(v);
+                }
+            }
+            for (int v = m + 1; v < n; v++) {
+                final Set<Integer> targets = new HashSet<>();
+                while (targets.size() < m) {
+                    targets.add(endPoints.get(random.nextInt(endPoints.size())));
+                }
+                for (final int u : targets) {
+                    edges.add(new int[]{u, v});
+                    endPoints.add(u);
+                    endPoints.add(v);
+                }
+            }
+            return edges.toArray(new int[0][]);
+        }
+    },
+    MOON_MOSER(18, 24, 30) {
+        @Override
+        int[][] edges(final int n, final Random random) {
+            final List<int[]> edges = new ArrayList<>();
+            for (int u = 0; u < n; u++) {
+                for (int v = u + 1; v < n; v++) {
+                    if (u / 3 != v / 3) {
+                        edges.add(new int[]{u, v});
+                    }
+                }
+            }
+            return edges.toArray(new int[0][]);
+        }
+    },
+    PLANTED_CLIQUE(250, 1000, 4000) {
+        @Override
+        int[][] edges(final int n, final Random random) {
+            final List<int[]> edges = new ArrayList<>();
+            for (final int[] edge : erdosRenyi(n, random)) {
+                edges.add(edge);
+            }
+            final int[] clique = random.ints(0, n).distinct().limit(n / 50).toArray();
+            for (int i = 0; i < clique.length; i++) {
+                for (int j = i + 1; j < clique.length; j++) {
+                    edges.add(new int[]{clique[i], clique[j]});
+                }
+            }
+            return edges.toArray(new int[0][]);
+        }
+    };
+
+    private static final double AVERAGE_DEGREE = 16;
+
+    private final int[] sizes;
+
+    GraphFamily(final int... sizes) {
+        this.sizes = sizes;
+    }
+
+    /**
+     * Returns the number of nodes of the graph at the scale.
+     */
+    public int nodeCount(final Scale scale) {
+        return sizes[scale.ordinal()];
+    }
+
+    /**
+     * Returns the edges of the graph at the scale, duplicates are possible.
+     */
+    public int[][] edges(final Scale scale, final long seed) {
+        return edges(nodeCount(scale), new Random(seed));
+    }
+
+    abstract int[][] edges(final int n, final Random random);
+
+    /**
+     * Returns the nodes v0 ... v(n-1), indexed by their id.
+     */
+    public static Node[] nodes(final int n) {
+        final Node[] nodes = new Node[n];
+        for (int i = 0; i < n; i++) {
+            nodes[i] = new Node("v" + i);
+        }
+        return nodes;
+    }
+
+    public static Graph toGraph(final Node[] nodes, final int[][] edges) {
+        final Graph graph = new Graph();
+        for (final int[] edge : edges) {
+            graph.addEdge(nodes[edge[0]], nodes[edge[1]]);
+        }
+        return graph;
+    }
+
+    private static int[][] erdosRenyi(final int n, final Random random) {
+        final double p = AVERAGE_DEGREE / (n - 1);
+        final List<int[]> edges = new ArrayList<>();
+        for (int u = 0; u < n; u++) {
+            for (int v = u + 1; v < n; v++) {
+                if (random.nextDouble() < p) {
+                    edges.add(new int[]{u, v});
+                }
+            }
+        }
+        return edges.toArray(new int[0][]);
+    }
+
+    public enum Scale {
+        SMALL, MEDIUM, LARGE
+    }
+}
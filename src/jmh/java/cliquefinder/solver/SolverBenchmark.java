@@ -0,0 +1,99 @@
+package cliquefinder.solver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enumerates all the maximal cliques of the generated graphs. The throughput and the distribution of the
+ * latencies of one complete computation are measured, the jmh task adds the allocation rate.
+ *
+ * Only the Bron-Kerbosch variants are measured by default, the others can be selected with e.g.
+ * -p solver=PARALLEL,MAXIMUM.
+ * Created by qr4 on 26.08.17.
+ */
+@ParametersAreNonnullByDefault
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SolverBenchmark {
+    private static final long SEED = 42;
+
+    @Param
+    public GraphFamily family;
+
+    @Param
+    public GraphFamily.Scale scale;
+
+    @Param({"SET", "BITSET", "DEGENERACY"})
+    public Solver solver;
+
+    private CliqueSolver cliqueSolver;
+    private Set<Node> nodes;
+
+    @Setup
+    public void setup() {
+        final Node[] allNodes = GraphFamily.nodes(family.nodeCount(scale));
+        final Graph graph = GraphFamily.toGraph(allNodes, family.edges(scale, SEED));
+        cliqueSolver = solver.create(graph);
+        nodes = new HashSet<>(Arrays.asList(allNodes));
+    }
+
+    @Benchmark
+    public void compute(final Blackhole blackhole) {
+        cliqueSolver.compute(nodes, blackhole::consume);
+    }
+
+    public enum Solver {
+        SET {
+            @Override
+            CliqueSolver create(final Graph graph) {
+                return new BronKerbosch(graph);
+            }
+        },
+        BITSET {
+            @Override
+            CliqueSolver create(final Graph graph) {
+                return new BitSetBronKerbosch(graph);
+            }
+        },
+        DEGENERACY {
+            @Override
+            CliqueSolver create(final Graph graph) {
+                return new DegeneracyBronKerbosch(graph);
+            }
+        },
+        PARALLEL {
+            @Override
+            CliqueSolver create(final Graph graph) {
+                return new ParallelBronKerbosch(graph, Runtime.getRuntime().availableProcessors());
+            }
+        },
+        MAXIMUM {
+            @Override
+            CliqueSolver create(final Graph graph) {
+                return new MaximumCliqueSolver(graph);
+            }
+        };
+
+        abstract CliqueSolver create(final Graph graph);
+    }
+}
@@ -0,0 +1,164 @@
+package cliquefinder;
+
+import com.google.gson.GsonBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Runs {@link Core} end to end against a {@link StubServer} which serves a {@link SyntheticPopulation}, and
+ * reports the fetch throughput, the peak heap and the timings of the phases. The population and the stub are
+ * configured with properties prefixed with "loadtest.", the run itself with the usual "cliquefinder." ones:
+ *
+ *      loadtest.users              size of the population, all of them are in the input (default: 50000)
+ *      loadtest.seed               seed of the population (default: 42)
+ *      loadtest.pageSize           ids per followers / friends page (default: 5000, like twitter)
+ *      loadtest.latencyMillis      latency of every response (default: 20)
+ *      loadtest.throttleRate       share of the twitter requests answered with a 429 (default: 0.001)
+ *      loadtest.requestsPerSecond  rate limit of every twitter endpoint (default: 1000)
+ *      loadtest.report             json file which the report is written to (default: none)
+ *
+ * The population and the stub share the heap with the run, their part is reported as the baseline.
+ * Created by qr4 on 27.08.17.
+ */
+@ParametersAreNonnullByDefault
+public class LoadTest {
+    private static final Logger LOG = LoggerFactory.getLogger(LoadTest.class);
+    private static final String PREFIX = "loadtest.";
+    private static final long HEAP_SAMPLE_MILLIS = 10;
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        final Properties properties = System.getProperties();
+        final int users = Integer.parseInt(properties.getProperty(PREFIX + "users", "50000"));
+        final long seed = Long.parseLong(properties.getProperty(PREFIX + "seed", "42"));
+        final int pageSize = Integer.parseInt(properties.getProperty(PREFIX + "pageSize", "5000"));
+        final long latencyMillis = Long.parseLong(properties.getProperty(PREFIX + "latencyMillis", "20"));
+        final double throttleRate = Double.parseDouble(properties.getProperty(PREFIX + "throttleRate", "0.001"));
+        final int requestsPerSecond = Integer.parseInt(properties.getProperty(PREFIX + "requestsPerSecond", "1000"));
+        final String reportFileName = properties.getProperty(PREFIX + "report", "");
+
+        long start = System.nanoTime();
+        final SyntheticPopulation population = new SyntheticPopulation(users, seed);
+        LOG.info("Generated {} users with {} organizations and {} mutual follows in {} ms.", users,
+                population.getOrganizationCount(), population.getMutualFollowCount(), millisSince(start));
+
+        final Path input = Files.createTempFile("loadtest-input", ".txt");
+        final Path output = Files.createTempFile("loadtest-output", ".txt");
+        Files.write(input, IntStream.range(0, users).mapToObj(SyntheticPopulation::getName)
+                .collect(Collectors.toList()), StandardCharsets.UTF_8);
+
+        final Map<String, Object> report = new LinkedHashMap<>();
+        try (StubServer stub = new StubServer(population, pageSize, latencyMillis, throttleRate, requestsPerSecond)) {
+            final Core core = new Core(input.toString(), output.toString(),
+                    stub.getUrl() + "/github", stub.getUrl() + "/twitter", Settings.fromSystemProperties());
+
+            final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            System.gc();
+            final long baselineHeap = memory.getHeapMemoryUsage().getUsed();
+            final long gcCountBefore = getGcCount();
+            final long gcMillisBefore = getGcMillis();
+            final HeapSampler sampler = new HeapSampler(memory);
+            sampler.start();
+
+            start = System.nanoTime();
+            core.run();
+            final long totalMillis = millisSince(start);
+            sampler.interrupt();
+            sampler.join();
+
+            final Map<String, Long> phases = core.getPhaseMillis();
+            final double fetchSeconds = Math.max(1, phases.getOrDefault("fetch", totalMillis)) / 1000.0;
+            report.put("users", users);
+            report.put("organizations", population.getOrganizationCount());
+            report.put("mutualFollows", population.getMutualFollowCount());
+            report.put("latencyMillis", latencyMillis);
+            report.put("throttleRate", throttleRate);
+            report.put("requests", stub.getRequests());
+            report.put("throttledRequests", stub.getThrottledCount());
+            report.put("requestsPerSecond", Math.round(stub.getRequestCount() / fetchSeconds));
+            report.put("idsPerSecond", Math.round(stub.getServedIds() / fetchSeconds));
+            report.put("megabytesPerSecond", Math.round(stub.getServedBytes() / fetchSeconds / 1e4) / 100.0);
+            report.put("baselineHeapBytes", baselineHeap);
+            report.put("peakHeapBytes", sampler.getPeak());
+            report.put("gcCount", getGcCount() - gcCountBefore);
+            report.put("gcMillis", getGcMillis() - gcMillisBefore);
+            report.put("phaseMillis", phases);
+            report.put("totalMillis", totalMillis);
+            report.put("cliques", Files.lines(output).count());
+            report.put("metrics", core.getMetrics().snapshot());
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+
+        final String json = new GsonBuilder().setPrettyPrinting().create().toJson(report);
+        LOG.info("Load test report:\n{}", json);
+        if (!reportFileName.isEmpty()) {
+            final Path reportFile = Paths.get(reportFileName);
+            if (reportFile.getParent() != null) {
+                Files.createDirectories(reportFile.getParent());
+            }
+            Files.write(reportFile, json.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static long millisSince(final long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static long getGcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long getGcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    /**
+     * Samples the used heap until it is interrupted. The peak usage of the memory pools would add up the
+     * peaks of the generations, which are not reached at the same time.
+     */
+    private static class HeapSampler extends Thread {
+        private final MemoryMXBean memory;
+        private volatile long peak = 0;
+
+        HeapSampler(final MemoryMXBean memory) {
+            super("heap-sampler");
+            this.memory = memory;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (!isInterrupted()) {
+                peak = Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+                try {
+                    Thread.sleep(HEAP_SAMPLE_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        long getPeak() {
+            return Math.max(peak, memory.getHeapMemoryUsage().getUsed());
+        }
+    }
+}
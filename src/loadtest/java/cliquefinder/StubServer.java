@@ -0,0 +1,319 @@
+package cliquefinder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves a {@link SyntheticPopulation} like the github and the twitter apis, on a local port:
+ *
+ *      /github/users/{name}/orgs
+ *      /twitter/users/lookup.json?screen_name=a,b,...
+ *      /twitter/followers/ids.json?screen_name=...&cursor=...   pages of pageSize ids
+ *      /twitter/friends/ids.json?screen_name=...&cursor=...
+ *      /twitter/friendships/show.json?source_screen_name=...&target_screen_name=...
+ *
+ * Every response is delayed by about latencyMillis (a few of them by SLOW_FACTOR times as much). The twitter
+ * endpoints have a rate limit of requestsPerSecond in windows of one second, which they announce with the
+ * x-rate-limit headers, and answer a random share of throttleRate of the requests with a 429 on top of it.
+ * Github answers without rate limits, as the github client does not handle them.
+ * Created by qr4 on 27.08.17.
+ */
+@ParametersAreNonnullByDefault
+class StubServer implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(StubServer.class);
+
+    private static final int THREADS = 256;
+    private static final double SLOW_RATE = 0.01;
+    private static final int SLOW_FACTOR = 5;
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final SyntheticPopulation population;
+    private final int pageSize;
+    private final long latencyMillis;
+    private final double throttleRate;
+    private final int requestsPerSecond;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder servedIds = new LongAdder();
+    private final LongAdder servedBytes = new LongAdder();
+    private final Map<String, Window> windows = new HashMap<>();
+
+    StubServer(final SyntheticPopulation population, final int pageSize, final long latencyMillis,
+               final double throttleRate, final int requestsPerSecond) throws IOException {
+        this.population = population;
+        this.pageSize = pageSize;
+        this.latencyMillis = latencyMillis;
+        this.throttleRate = throttleRate;
+        this.requestsPerSecond = requestsPerSecond;
+        // the handlers sleep for the latency, so every request in flight needs a thread
+        this.executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+            final Thread thread = new Thread(runnable, "stub-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), THREADS);
+        server.setExecutor(executor);
+        server.createContext("/github/users/", exchange -> handle(exchange, false, this::handleOrganizations));
+        server.createContext("/twitter/users/lookup.json", exchange -> handle(exchange, true, this::handleLookup));
+        server.createContext("/twitter/followers/ids.json", exchange -> handle(exchange, true, this::handleFollowers));
+        server.createContext("/twitter/friends/ids.json", exchange -> handle(exchange, true, this::handleFriends));
+        server.createContext("/twitter/friendships/show.json",
+                exchange -> handle(exchange, true, this::handleFriendship));
+        server.start();
+        LOG.info("Serving {} users on {}.", population.size(), getUrl());
+    }
+
+    String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the number of requests per endpoint (the path without the name of a github user).
+     */
+    Map<String, Long> getRequests() {
+        final Map<String, Long> result = new TreeMap<>();
+        requests.forEach((endpoint, count) -> result.put(endpoint, count.sum()));
+        return result;
+    }
+
+    long getRequestCount() {
+        return requests.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    long getServedIds() {
+        return servedIds.sum();
+    }
+
+    long getServedBytes() {
+        return servedBytes.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(final HttpExchange exchange, final boolean rateLimited, final Handler handler)
+            throws IOException {
+        try {
+            final String path = exchange.getRequestURI().getPath();
+            final String endpoint = path.startsWith("/github/users/") ? "/github/users/{name}/orgs" : path;
+            requests.computeIfAbsent(endpoint, e -> new LongAdder()).increment();
+            sleep();
+
+            final Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            if (rateLimited && !acquire(endpoint, exchange)) {
+                throttled.increment();
+                send(exchange, TOO_MANY_REQUESTS, "{\"errors\":[{\"code\":88,\"message\":\"Rate limit exceeded\"}]}");
+                return;
+            }
+            final String body = handler.handle(path, query);
+            if (body == null) {
+                send(exchange, 404, "{\"message\":\"Not Found\"}");
+            } else {
+                send(exchange, 200, body);
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Could not answer {}.", exchange.getRequestURI(), e);
+            send(exchange, 500, "{}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Nullable
+    private String handleOrganizations(final String path, final Map<String, String> query) {
+        // /github/users/{name}/orgs
+        final String[] parts = path.split("/");
+        final int user = parts.length == 5 && "orgs".equals(parts[4]) ? population.getUser(parts[3]) : -1;
+        if (user < 0) {
+            return null;
+        }
+        final StringBuilder json = new StringBuilder("[");
+        for (final int organization : population.getOrganizations(user)) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"login\":\"org").append(organization).append("\",\"id\":").append(organization).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private String handleLookup(final String path, final Map<String, String> query) {
+        final StringBuilder json = new StringBuilder("[");
+        for (final String name : query.getOrDefault("screen_name", "").split(",")) {
+            final int user = population.getUser(name);
+            if (user < 0) {
+                continue;
+            }
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"id_str\":\"").append(SyntheticPopulation.ID_BASE + user)
+                    .append("\",\"screen_name\":\"").append(name)
+                    .append("\",\"followers_count\":").append(population.getFollowerCount(user))
+                    .append(",\"friends_count\":").append(population.getFriendCount(user)).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    @Nullable
+    private String handleFollowers(final String path, final Map<String, String> query) {
+        final int user = population.getUser(query.getOrDefault("screen_name", ""));
+        return user < 0 ? null : idPage(query, population.getFollowerCount(user),
+                index -> population.getFollowerId(user, index));
+    }
+
+    @Nullable
+    private String handleFriends(final String path, final Map<String, String> query) {
+        final int user = population.getUser(query.getOrDefault("screen_name", ""));
+        return user < 0 ? null : idPage(query, population.getFriendCount(user),
+                index -> population.getFriendId(user, index));
+    }
+
+    @Nullable
+    private String handleFriendship(final String path, final Map<String, String> query) {
+        final int source = population.getUser(query.getOrDefault("source_screen_name", ""));
+        final int target = population.getUser(query.getOrDefault("target_screen_name", ""));
+        if (source < 0 || target < 0) {
+            return null;
+        }
+        return "{\"relationship\":{\"source\":{\"following\":" + population.follows(source, target)
+                + ",\"followed_by\":" + population.follows(target, source) + "},\"target\":{\"following\":"
+                + population.follows(target, source) + ",\"followed_by\":" + population.follows(source, target)
+                + "}}}";
+    }
+
+    /**
+     * The cursor of page p > 0 is p, the first page is requested with the cursor -1.
+     */
+    private String idPage(final Map<String, String> query, final int count, final IdSource ids) {
+        final long cursor = Long.parseLong(query.getOrDefault("cursor", "-1"));
+        final int page = cursor < 0 ? 0 : (int) cursor;
+        final int from = Math.min(count, page * pageSize);
+        final int to = Math.min(count, from + pageSize);
+        final StringBuilder json = new StringBuilder(16 + 14 * (to - from)).append("{\"ids\":[");
+        for (int index = from; index < to; index++) {
+            if (index > from) {
+                json.append(',');
+            }
+            json.append(ids.get(index));
+        }
+        servedIds.add(to - from);
+        final long nextCursor = to < count ? page + 1 : 0;
+        return json.append("],\"next_cursor\":").append(nextCursor)
+                .append(",\"next_cursor_str\":\"").append(nextCursor)
+                .append("\",\"previous_cursor\":").append(page > 0 ? page - 1 : 0).append('}').toString();
+    }
+
+    /**
+     * Counts the request in the window of the current second and sets the rate limit headers. Returns false if
+     * the request is throttled.
+     */
+    private boolean acquire(final String endpoint, final HttpExchange exchange) {
+        final long second = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        final int remaining;
+        synchronized (windows) {
+            final Window window = windows.computeIfAbsent(endpoint, e -> new Window());
+            if (window.second != second) {
+                window.second = second;
+                window.count = 0;
+            }
+            window.count++;
+            remaining = requestsPerSecond - window.count;
+        }
+        exchange.getResponseHeaders().set("x-rate-limit-limit", String.valueOf(requestsPerSecond));
+        exchange.getResponseHeaders().set("x-rate-limit-remaining", String.valueOf(Math.max(0, remaining)));
+        exchange.getResponseHeaders().set("x-rate-limit-reset", String.valueOf(second + 1));
+        return remaining >= 0 && ThreadLocalRandom.current().nextDouble() >= throttleRate;
+    }
+
+    private void sleep() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        // +-20% of jitter, and a few slow responses
+        long delay = (long) (latencyMillis * (0.8 + 0.4 * random.nextDouble()));
+        if (random.nextDouble() < SLOW_RATE) {
+            delay *= SLOW_FACTOR;
+        }
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void send(final HttpExchange exchange, final int status, final String body) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        servedBytes.add(bytes.length);
+    }
+
+    private static Map<String, String> parseQuery(final String rawQuery) throws UnsupportedEncodingException {
+        final Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (final String parameter : rawQuery.split("&")) {
+            final int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+            }
+        }
+        return query;
+    }
+
+    private interface Handler {
+        /**
+         * Returns the json of the response, or null for a 404.
+         */
+        @Nullable
+        String handle(String path, Map<String, String> query);
+    }
+
+    private interface IdSource {
+        long get(int index);
+    }
+
+    /**
+     * The requests to one endpoint in the current second, guarded by the lock of the windows.
+     */
+    private static class Window {
+        private long second = -1;
+        private int count = 0;
+    }
+}
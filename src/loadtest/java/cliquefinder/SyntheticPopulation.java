@@ -0,0 +1,250 @@
+package cliquefinder;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A generated population of github and twitter users, which only depends on its seed. User i is named
+ * "user" + i and has the twitter id ID_BASE + i.
+ *
+ * - The organization sizes follow a power law (a few large organizations, many with a handful of members),
+ *   the members are drawn uniformly, so most users are in no or one organization.
+ * - Every user follows a power law distributed number of other users of the population. The followed users
+ *   are drawn by preferential attachment, so a few users collect most of the followers, and a followed user
+ *   follows back with the probability RECIPROCITY.
+ * - Besides, every user has followers and friends outside of the population (power law distributed as well).
+ *   Their ids are derived from the user and are never stored, they make the id lists of the popular users
+ *   span many pages.
+ * Created by qr4 on 27.08.17.
+ */
+@ParametersAreNonnullByDefault
+class SyntheticPopulation {
+    static final long ID_BASE = 100_000_000L;
+    // the ids of the outside accounts of user i are OUTSIDE_BASE + i * MAX_OUTSIDE + k
+    private static final long OUTSIDE_BASE = 1_000_000_000_000L;
+    private static final int MAX_OUTSIDE = 1_000_000;
+
+    private static final double RECIPROCITY = 0.3;
+    // the exponents and the minima of the power laws
+    private static final double FOLLOWING_EXPONENT = 2.2;
+    private static final int MIN_FOLLOWING = 2;
+    private static final double OUTSIDE_EXPONENT = 1.8;
+    private static final int MIN_OUTSIDE = 20;
+    private static final double ORGANIZATION_EXPONENT = 2.0;
+    private static final int MIN_ORGANIZATION_SIZE = 2;
+    // on average every user joins this many organizations
+    private static final double MEMBERSHIPS_PER_USER = 0.8;
+
+    private final int size;
+    // the users which user i follows (its friends) and the users which follow user i, both sorted
+    private final int[][] following;
+    private final int[][] followers;
+    private final int[] outsideFollowers;
+    private final int[] outsideFriends;
+    private final int[][] organizationsOfUser;
+    private final int organizationCount;
+
+    SyntheticPopulation(final int size, final long seed) {
+        final Random random = new Random(seed);
+        this.size = size;
+
+        final IntLists followingLists = new IntLists(size);
+        // every user appears once per follower (and once for itself), drawing from it is preferential attachment
+        final IntList popularity = new IntList();
+        for (int user = 0; user < size; user++) {
+            popularity.add(user);
+        }
+        for (int user = 0; user < size; user++) {
+            final int count = Math.min(size - 1, powerLaw(random, MIN_FOLLOWING, FOLLOWING_EXPONENT, size - 1));
+            for (int i = 0; i < count; i++) {
+                final int followed = popularity.get(random.nextInt(popularity.size()));
+                if (followed == user) {
+                    continue;
+                }
+                followingLists.add(user, followed);
+                popularity.add(followed);
+                if (random.nextDouble() < RECIPROCITY) {
+                    followingLists.add(followed, user);
+                    popularity.add(user);
+                }
+            }
+        }
+        this.following = followingLists.toSortedUniqueArrays();
+        this.followers = invert(following);
+
+        this.outsideFollowers = new int[size];
+        this.outsideFriends = new int[size];
+        for (int user = 0; user < size; user++) {
+            // the popular users are popular outside as well
+            outsideFollowers[user] = (int) Math.min(MAX_OUTSIDE, (followers[user].length + 1L)
+                    * powerLaw(random, MIN_OUTSIDE, OUTSIDE_EXPONENT, MAX_OUTSIDE));
+            outsideFriends[user] = powerLaw(random, MIN_OUTSIDE, OUTSIDE_EXPONENT, MAX_OUTSIDE / 10);
+        }
+
+        final IntLists organizations = new IntLists(0);
+        long memberships = 0;
+        while (memberships < MEMBERSHIPS_PER_USER * size) {
+            final int organization = organizations.addList();
+            final int organizationSize = powerLaw(random, MIN_ORGANIZATION_SIZE, ORGANIZATION_EXPONENT, size);
+            for (int i = 0; i < organizationSize; i++) {
+                organizations.add(organization, random.nextInt(size));
+            }
+            memberships += organizationSize;
+        }
+        this.organizationCount = organizations.size();
+        this.organizationsOfUser = invert(organizations.toSortedUniqueArrays(), size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    static String getName(final int user) {
+        return "user" + user;
+    }
+
+    /**
+     * Returns the user of the name, or -1 if the name is not part of the population.
+     */
+    int getUser(final String name) {
+        if (!name.startsWith("user")) {
+            return -1;
+        }
+        try {
+            final int user = Integer.parseInt(name.substring(4));
+            return user >= 0 && user < size && getName(user).equals(name) ? user : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    int getOrganizationCount() {
+        return organizationCount;
+    }
+
+    int[] getOrganizations(final int user) {
+        return organizationsOfUser[user];
+    }
+
+    int getFollowerCount(final int user) {
+        return followers[user].length + outsideFollowers[user];
+    }
+
+    int getFriendCount(final int user) {
+        return following[user].length + outsideFriends[user];
+    }
+
+    /**
+     * Returns the id of the index-th follower of the user, the followers of the population come first.
+     */
+    long getFollowerId(final int user, final int index) {
+        return index < followers[user].length ? ID_BASE + followers[user][index]
+                : OUTSIDE_BASE + (long) user * MAX_OUTSIDE + index - followers[user].length;
+    }
+
+    /**
+     * Returns the id of the index-th account which the user follows, the users of the population come first.
+     */
+    long getFriendId(final int user, final int index) {
+        return index < following[user].length ? ID_BASE + following[user][index]
+                : OUTSIDE_BASE + (long) user * MAX_OUTSIDE + index - following[user].length;
+    }
+
+    boolean follows(final int user, final int other) {
+        return Arrays.binarySearch(following[user], other) >= 0;
+    }
+
+    /**
+     * Returns the number of pairs of users which follow each other.
+     */
+    long getMutualFollowCount() {
+        long count = 0;
+        for (int user = 0; user < size; user++) {
+            for (final int other : following[user]) {
+                if (other > user && follows(other, user)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Draws from a discrete power law P(k) ~ k^-exponent for k >= min, capped at max.
+     */
+    private static int powerLaw(final Random random, final int min, final double exponent, final int max) {
+        final double value = (min - 0.5) * Math.pow(1 - random.nextDouble(), -1 / (exponent - 1)) + 0.5;
+        return (int) Math.min(max, Math.max(min, value));
+    }
+
+    private static int[][] invert(final int[][] lists) {
+        return invert(lists, lists.length);
+    }
+
+    private static int[][] invert(final int[][] lists, final int targetCount) {
+        final IntLists inverted = new IntLists(targetCount);
+        for (int source = 0; source < lists.length; source++) {
+            for (final int target : lists[source]) {
+                inverted.add(target, source);
+            }
+        }
+        return inverted.toSortedUniqueArrays();
+    }
+
+    /**
+     * A growable list of ints, without boxing every value.
+     */
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        void add(final int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(final int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toSortedUniqueArray() {
+            return Arrays.stream(values, 0, size).sorted().distinct().toArray();
+        }
+    }
+
+    private static class IntLists {
+        private final List<IntList> lists = new ArrayList<>();
+
+        IntLists(final int count) {
+            for (int i = 0; i < count; i++) {
+                addList();
+            }
+        }
+
+        int addList() {
+            lists.add(new IntList());
+            return lists.size() - 1;
+        }
+
+        int size() {
+            return lists.size();
+        }
+
+        void add(final int list, final int value) {
+            lists.get(list).add(value);
+        }
+
+        int[][] toSortedUniqueArrays() {
+            return lists.stream().map(IntList::toSortedUniqueArray).toArray(int[][]::new);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package cliquefinder;
+
+import cliquefinder.solver.Clique;
+import cliquefinder.solver.Node;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the output lines through a single open file channel. The lines are encoded into one reusable
+ * buffer, which is only written to the channel when it is full, so there is no file operation per line.
+ * Created by qr4 on 12.08.17.
+ */
+@ParametersAreNonnullByDefault
+class CliqueWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final StringBuilder line = new StringBuilder();
+    private long bytesWritten = 0;
+
+    CliqueWriter(final Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * The names of the nodes separated by spaces, in the order of the clique (i.e. sorted).
+     */
+    static String toLine(final Clique clique) {
+        return appendLine(new StringBuilder(), clique).toString();
+    }
+
+    void write(final Clique clique) throws IOException {
+        line.setLength(0);
+        writeLine(appendLine(line, clique));
+    }
+
+    void writeLine(final CharSequence text) throws IOException {
+        encode(CharBuffer.wrap(text));
+        encode(CharBuffer.wrap("\n"));
+    }
+
+    long getBytesWritten() {
+        return bytesWritten + buffer.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static StringBuilder appendLine(final StringBuilder builder, final Clique clique) {
+        for (final Node node : clique.getNodes()) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(node.getName());
+        }
+        return builder;
+    }
+
+    private void encode(final CharBuffer chars) throws IOException {
+        while (true) {
+            final CoderResult result = encoder.encode(chars, buffer, false);
+            if (result.isUnderflow()) {
+                return;
+            }
+            if (result.isOverflow()) {
+                flush();
+            } else {
+                result.throwException();
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -1,27 +1,46 @@
 package cliquefinder;
 
+import cliquefinder.datafetcher.ConcurrencyController;
 import cliquefinder.datafetcher.GithubAPI;
+import cliquefinder.datafetcher.RateLimitScheduler;
+import cliquefinder.datafetcher.RequestExecutor;
+import cliquefinder.datafetcher.ResponseCache;
 import cliquefinder.datafetcher.TwitterAPI;
-import cliquefinder.model.GithubAccount;
+import cliquefinder.metrics.Metrics;
 import cliquefinder.model.GithubOrganization;
 import cliquefinder.model.TwitterAccount;
+import cliquefinder.solver.BitSetBronKerbosch;
 import cliquefinder.solver.BronKerbosch;
-import cliquefinder.solver.Clique;
-import cliquefinder.solver.Graph;
+import cliquefinder.solver.CliqueSolver;
+import cliquefinder.solver.CompactGraph;
+import cliquefinder.solver.ConcurrentGraphBuilder;
+import cliquefinder.solver.DegeneracyBronKerbosch;
+import cliquefinder.solver.DeltaBronKerbosch;
+import cliquefinder.solver.GraphDelta;
+import cliquefinder.solver.GraphSnapshot;
+import cliquefinder.solver.MaximumCliqueSolver;
 import cliquefinder.solver.Node;
+import cliquefinder.solver.ParallelBronKerbosch;
+import cliquefinder.solver.SolverBudget;
+import com.google.common.collect.ImmutableMap;
+import io.reactivex.Completable;
 import io.reactivex.Flowable;
-import javafx.util.Pair;
+import io.reactivex.schedulers.Schedulers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.Closeable;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -32,84 +51,322 @@ import java.util.stream.Collectors;
 class Core {
     private static final Logger LOG = LoggerFactory.getLogger(Core.class);
 
-    private final static Integer MAX_CONCURRENCY = 2;
+    // the fetchers start with this many requests in flight, the controllers raise it up to the configured limit
+    private final static int START_CONCURRENCY = 2;
+    // the counters of the progress log
+    private static final List<String> PROGRESS_COUNTERS = Arrays.asList("http.requests", "github.accounts",
+            "twitter.users", "twitter.ids", "graph.edgesAdded", "solver.cliques");
     private final IOHandler ioHandler;
-    private final Graph graph;
+    private final ConcurrentGraphBuilder graph;
     private final GithubAPI githubAPI;
     private final TwitterAPI twitterAPI;
+    private final Settings settings;
+    @Nullable
+    private final ResponseCache responseCache;
+    @Nullable
+    private final RunState runState;
+    // the durations of the phases of the run in milliseconds, in the order in which they finished
+    private final Map<String, Long> phaseMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Metrics metrics = new Metrics();
+    @Nullable
+    private Closeable progressLog;
+    // set if the fetch skipped some of the data on purpose, e.g. pairs above the limit of friendship checks
+    private volatile boolean incompleteGraph = false;
 
     Core(final String inputFilename, final String outputFilename,
          final String baseGithubUrl, final String baseTwitterUrl) throws IOException {
-        this.ioHandler = new IOHandler(inputFilename, outputFilename);
-        this.graph = new Graph();
-        this.githubAPI = new GithubAPI(baseGithubUrl);
-        this.twitterAPI = new TwitterAPI(baseTwitterUrl);
+        this(inputFilename, outputFilename, baseGithubUrl, baseTwitterUrl, Settings.defaults());
+    }
+
+    Core(final String inputFilename, final String outputFilename,
+         final String baseGithubUrl, final String baseTwitterUrl, final Settings settings) throws IOException {
+        this.settings = settings;
+        this.ioHandler = new IOHandler(inputFilename, outputFilename,
+                settings.isSortedOutput(), settings.getSortBufferLines());
+        this.graph = new ConcurrentGraphBuilder();
+        // the cache is shared by both apis, its keys are the full urls
+        this.responseCache = settings.getCacheFile() == null ? null
+                : new ResponseCache(settings.getCacheFile(), TimeUnit.MINUTES.toMillis(settings.getCacheTtlMinutes()));
+        this.githubAPI = new GithubAPI(baseGithubUrl, new RequestExecutor(responseCache, null,
+                createController("github", settings.getGithubConcurrency()), metrics));
+        this.twitterAPI = new TwitterAPI(baseTwitterUrl, new RequestExecutor(responseCache, new RateLimitScheduler(),
+                createController("twitter", settings.getTwitterConcurrency()), metrics));
+        // the maximum solver only writes one clique and a minimum size leaves out the smaller ones, neither output
+        // is a base for the next run
+        final boolean keepsAllCliques = settings.getSolverMode() != SolverMode.MAXIMUM
+                && settings.getSolverBudget().getMinCliqueSize() <= 2;
+        if (settings.getStateDirectory() != null && !keepsAllCliques) {
+            LOG.warn("The maximum solver and a minimum clique size above 2 do not keep a state between runs.");
+        }
+        this.runState = settings.getStateDirectory() == null || !keepsAllCliques ? null
+                : new RunState(settings.getStateDirectory());
     }
 
     void run() throws IOException {
+        startProgressLog();
+        final Set<String> names = ioHandler.parseInput();
+        // Both sources are fetched at the same time, each on its own thread. Their edges go into the
+        // (thread safe) graph builder as they arrive. If either fails, the graph would be incomplete, so the
+        // run fails before anything is solved, written or kept for the next run.
+        try {
+            timed("fetch", Completable.mergeArray(
+                    addEdgesFromGithub(names).subscribeOn(Schedulers.io()),
+                    addEdgesFromTwitter(names).subscribeOn(Schedulers.io())
+            )).blockingAwait();
+        } catch (final RuntimeException e) {
+            final IOException failure = new IOException("Could not fetch the graph, no cliques were written.",
+                    e.getCause() instanceof IOException ? e.getCause() : e);
+            try {
+                close();
+            } catch (final IOException closeFailure) {
+                failure.addSuppressed(closeFailure);
+            }
+            throw failure;
+        }
+
+        // the clients, the cache and the progress log are closed and the metrics are reported even if
+        // solving fails
+        try {
+            solve(names, freeze());
+        } finally {
+            close();
+        }
+    }
+
+    private CompactGraph freeze() throws IOException {
+        // at this point, we should have our graph built. Freeze it into the compact representation
+        // which the solvers work on.
+        long start = System.nanoTime();
+        final CompactGraph compactGraph = graph.freeze();
+        recordPhase("freeze", start);
+        metrics.set("graph.nodes", compactGraph.getNodeCount());
+        metrics.set("graph.edges", compactGraph.getEdgeCount());
+        metrics.set("graph.groups", compactGraph.getGroupCount());
+        metrics.set("graph.memberships", compactGraph.getMembershipCount());
+        metrics.set("graph.bytes", compactGraph.estimateMemoryFootprint());
+        LOG.info("Fetched all the data: {} nodes, {} edges, {} groups with {} members, ~{} bytes ({} bytes per edge). "
+                        + "Starting computation...",
+                compactGraph.getNodeCount(), compactGraph.getEdgeCount(), compactGraph.getGroupCount(),
+                compactGraph.getMembershipCount(), compactGraph.estimateMemoryFootprint(),
+                String.format("%.1f", compactGraph.getBytesPerEdge()));
+        if (settings.getSnapshotFile() != null) {
+            start = System.nanoTime();
+            GraphSnapshot.write(compactGraph, settings.getSnapshotFile());
+            recordPhase("snapshot", start);
+            LOG.info("Wrote the graph to the snapshot {}.", settings.getSnapshotFile());
+        }
+        return compactGraph;
+    }
+
+    /**
+     * Runs the solver on the graph of a snapshot instead of fetching the graph.
+     */
+    void runFromSnapshot(final Path snapshotFile) throws IOException {
+        startProgressLog();
         final Set<String> names = ioHandler.parseInput();
-        addEdgesFromGithub(names);
-        addEdgesFromTwitter(names);
+        try {
+            final long start = System.nanoTime();
+            final CompactGraph compactGraph = GraphSnapshot.load(snapshotFile);
+            recordPhase("load", start);
+            LOG.info("Loaded the snapshot {}: {} nodes, {} edges. Starting computation...",
+                    snapshotFile, compactGraph.getNodeCount(), compactGraph.getEdgeCount());
+            solve(names, compactGraph);
+        } finally {
+            close();
+        }
+    }
+
+    private void solve(final Set<String> names, final CompactGraph compactGraph) throws IOException {
+        // The cliques are written to the output while the solver is still running.
+        long start = System.nanoTime();
+        final CliqueSolver solver = createSolver(compactGraph);
+        final Set<Node> nodes = names.stream().map(Node::new).collect(Collectors.toSet());
+        final long written = ioHandler.writeOutput(solver.stream(nodes, settings.getSolverBudget()).doOnNext(clique -> {
+                    metrics.increment("solver.cliques");
+                    metrics.record("solver.cliqueSize", clique.getNodes().size());
+                    metrics.max("solver.largestClique", clique.getNodes().size());
+                }));
+        recordPhase("solve", start);
+        metrics.set("solver.recursionCalls", solver.getRecursionCalls());
+        metrics.set("solver.maxDepth", solver.getMaxDepth());
+        metrics.set("output.cliques", written);
+        metrics.set("output.bytes", ioHandler.getBytesWritten());
+        LOG.info("Wrote {} cliques, the solver needed {} recursive calls.", written, solver.getRecursionCalls());
+        final SolverBudget.Completion completion = solver.getCompletion();
+        metrics.set("solver.complete", completion.isComplete() ? 1 : 0);
+        if (!completion.isComplete()) {
+            LOG.warn("The solver was stopped by its budget ({}), the output only holds the cliques found so far.",
+                    completion);
+        }
+        // the cliques which were not found (or the edges which were not fetched) would be missing from the next
+        // run as well
+        if (runState != null && completion.isComplete() && !incompleteGraph) {
+            start = System.nanoTime();
+            runState.save(compactGraph, ioHandler.getOutputPath());
+            recordPhase("state", start);
+        }
+        LOG.info("Phase timings in ms: {}", getPhaseMillis());
+    }
+
+    /**
+     * Returns the durations of the phases of the run in milliseconds, e.g. "fetch", "github", "twitter.ids",
+     * "freeze" and "solve". The fetch phases of github and twitter overlap.
+     */
+    Map<String, Long> getPhaseMillis() {
+        synchronized (phaseMillis) {
+            return ImmutableMap.copyOf(phaseMillis);
+        }
+    }
+
+    /**
+     * Returns the metrics of the run: the requests of the fetchers, the fetched data, the graph, the solver and
+     * the output, as described in the README.
+     */
+    Metrics getMetrics() {
+        return metrics;
+    }
 
-        LOG.info("Fetched all the data. Starting computation...");
-        // at this point, we should have our graph built. Call our solver with the passed names.
-        final BronKerbosch solver = new BronKerbosch(graph);
-        final Set<Clique> cliques = solver.compute(names.stream().map(Node::new).collect(Collectors.toSet()));
-        LOG.info("Writing result to file...");
+    private void recordPhase(final String phase, final long startNanos) {
+        final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        phaseMillis.put(phase, millis);
+        metrics.set("phase." + phase + ".millis", millis);
+    }
+
+    private void startProgressLog() {
+        if (settings.getProgressSeconds() > 0) {
+            progressLog = metrics.startProgressLog(PROGRESS_COUNTERS, settings.getProgressSeconds(), TimeUnit.SECONDS);
+        }
+    }
 
-        ioHandler.writeOutput(cliques);
+    /**
+     * Records the time from the subscription to the completion (or the error) of the completable as the phase.
+     */
+    private Completable timed(final String phase, final Completable completable) {
+        return Completable.defer(() -> {
+            final long start = System.nanoTime();
+            return completable.doFinally(() -> recordPhase(phase, start));
+        });
+    }
 
+    private void close() throws IOException {
+        if (progressLog != null) {
+            progressLog.close();
+        }
         this.twitterAPI.close();
         this.githubAPI.close();
+        if (responseCache != null) {
+            responseCache.close();
+        }
+        if (settings.getMetricsFile() != null) {
+            metrics.writeJson(settings.getMetricsFile());
+            LOG.info("Wrote the metrics to {}.", settings.getMetricsFile());
+        }
     }
 
-    private void addEdgesFromGithub(final Set<String> names) {
-        final List<Flowable<GithubAccount>> flowables = githubAPI.fetchOrganizationsForNames(names);
-        final HashMap<String, List<String>> incidenceData = new HashMap<>();
-
-        Flowable.merge(flowables, MAX_CONCURRENCY).map(obs ->
-                new Pair<>(obs.getName(),
-                        Arrays.stream(obs.getGithubOrganizations())
-                                .map(GithubOrganization::getId)
-                                .collect(Collectors.toList()))
-        ).forEach(data -> {
-            final String name = data.getKey();
-            final List<String> commonGroup = data.getValue();
-            commonGroup.forEach(common -> {
-                incidenceData.putIfAbsent(common, new ArrayList<>());
-                incidenceData.get(common).forEach(c -> graph.addEdge(new Node(name), new Node(c)));
-                incidenceData.get(common).add(name);
-            });
-        });
+    private static ConcurrencyController createController(final String source, final int maxConcurrency) {
+        return new ConcurrencyController(source, Math.min(START_CONCURRENCY, maxConcurrency), maxConcurrency);
+    }
+
+    private CliqueSolver createSolver(final CompactGraph compactGraph) throws IOException {
+        // with the state of the previous run, only the cliques around the changed edges are computed
+        final CompactGraph previousGraph = runState == null ? null : runState.loadGraph();
+        if (previousGraph != null) {
+            final GraphDelta delta = GraphDelta.between(previousGraph, compactGraph);
+            LOG.info("{} edges were added and {} removed since the previous run, {} nodes are affected.",
+                    delta.getAddedEdges(), delta.getRemovedEdges(), delta.getAffectedNodes().size());
+            return new DeltaBronKerbosch(compactGraph, delta.getAffectedNodes(), runState.loadCliques(),
+                    settings.getPivotStrategy());
+        }
+        switch (settings.getSolverMode()) {
+            case BITSET:
+                return new BitSetBronKerbosch(compactGraph, settings.getPivotStrategy());
+            case DEGENERACY:
+                return new DegeneracyBronKerbosch(compactGraph, settings.getPivotStrategy());
+            case MAXIMUM:
+                return new MaximumCliqueSolver(compactGraph);
+            case PARALLEL:
+                return new ParallelBronKerbosch(compactGraph, settings.getParallelism(), settings.getPivotStrategy());
+            case SET:
+            default:
+                return new BronKerbosch(compactGraph.toGraph());
+        }
+    }
+
+    private Completable addEdgesFromGithub(final Set<String> names) {
+        // the members of an organization are a clique, the graph keeps the organization instead of its edges
+        return timed("github", Completable.defer(() ->
+                Flowable.merge(githubAPI.fetchOrganizationsForNames(names), settings.getGithubConcurrency())
+                        .doOnNext(account -> {
+                            metrics.increment("github.accounts");
+                            metrics.add("github.memberships", account.getGithubOrganizations().length);
+                            for (final GithubOrganization organization : account.getGithubOrganizations()) {
+                                graph.addGroupMember(organization.getId(), account.getName());
+                            }
+                        })
+                        .ignoreElements()
+        )).doOnComplete(() -> LOG.info("Added all the organizations from github."))
+                .doOnError(e -> LOG.error("Could not fetch the github data.", e));
+    }
+
+    private Completable addEdgesFromTwitter(final Set<String> names) {
+        // first, map the names to ids and plan which ids to fetch for every user
+        final FollowerIndex followerIndex = new FollowerIndex(names.size());
+        final Completable lookup = timed("twitter.lookup", Completable.defer(() ->
+                Flowable.merge(twitterAPI.fetchUsersForNames(names), settings.getTwitterConcurrency())
+                        .doOnNext(user -> {
+                            metrics.increment("twitter.users");
+                            followerIndex.addUser(user);
+                        })
+                        .ignoreElements()));
+
+        // then fetch the followers or friends, once all the ids are known, and add the edges only if both
+        // names follow each other
+        final Completable ids = timed("twitter.ids", Completable.defer(() -> addIdPages(followerIndex,
+                followerIndex.getNamesToFetchFollowers(), followerIndex.getNamesToFetchFriends())));
+
+        // at last, resolve the pairs for which neither list could tell us whether they follow each other
+        return lookup.andThen(ids).andThen(timed("twitter.friendships", Completable.defer(() -> {
+            final FollowerIndex.ResolutionPlan plan = followerIndex.planResolution(settings.getMaxFriendshipChecks());
+            LOG.info("Resolving {} pairs of twitter users: fetching the followers of {} and the friends of {} users, "
+                            + "checking {} pairs with friendships/show.", plan.getUnresolvedPairs(),
+                    plan.getFollowersToFetch().size(), plan.getFriendsToFetch().size(), plan.getPairsToCheck().size());
+            metrics.set("twitter.unresolvedPairs", plan.getUnresolvedPairs());
+            metrics.set("twitter.skippedPairs", plan.getSkippedPairs());
+            if (plan.getSkippedPairs() > 0) {
+                incompleteGraph = true;
+                LOG.warn("Skipping {} pairs above the limit of {} friendships/show checks, their mutual follows are "
+                        + "missing from the graph.", plan.getSkippedPairs(), settings.getMaxFriendshipChecks());
+            }
+            return addIdPages(followerIndex, plan.getFollowersToFetch(), plan.getFriendsToFetch())
+                    .andThen(Flowable.merge(twitterAPI.fetchMutualFollows(plan.getPairsToCheck()),
+                            settings.getTwitterConcurrency())
+                            .doOnNext(pair -> addEdge(pair.getKey(), pair.getValue()))
+                            .ignoreElements());
+        }))).doOnComplete(() -> LOG.info("Added all the edges from twitter."))
+                .doOnError(e -> LOG.error("Could not fetch the twitter data.", e));
+    }
+
+    /**
+     * Fetches the followers and the friends of the given names and adds them to the index.
+     */
+    private Completable addIdPages(final FollowerIndex followerIndex, final Set<String> followersOf,
+                                   final Set<String> friendsOf) {
+        return followerIndex.addIdPages(
+                Flowable.merge(twitterAPI.fetchFollowersForNames(followersOf), settings.getTwitterConcurrency())
+                        .doOnNext(account -> {
+                            metrics.increment("twitter.followerPages");
+                            metrics.add("twitter.ids", account.getFollowersIds().length);
+                        }),
+                Flowable.merge(twitterAPI.fetchFriendsForNames(friendsOf), settings.getTwitterConcurrency())
+                        .doOnNext(account -> {
+                            metrics.increment("twitter.friendPages");
+                            metrics.add("twitter.ids", account.getFollowersIds().length);
+                        }),
+                this::addEdge);
     }
 
-    private void addEdgesFromTwitter(final Set<String> names) {
-        // first, map the names to ids
-        final List<Flowable<Pair<String,String>>> lookupFlowables = twitterAPI.fetchIdsForNames(names);
-        final HashMap<String, String> twitterIdNameLookup = new HashMap<>();
-        Flowable.merge(lookupFlowables, MAX_CONCURRENCY)
-                .forEach(nameIdPair -> twitterIdNameLookup.put(nameIdPair.getValue(), nameIdPair.getKey()));
-
-        final List<Flowable<TwitterAccount>> idsFlowables = twitterAPI.fetchFollowersForNames(names);
-        final HashMap<String, Set<String>> adjacencyData = new HashMap<>();
-        Flowable.merge(idsFlowables, MAX_CONCURRENCY)
-                .map(obs ->
-                        new Pair<>(obs.getName(), Arrays.stream(obs.getFollowersIds())
-                                .map(twitterIdNameLookup::get)
-                                .collect(Collectors.toList())))
-
-                .forEach(data -> {
-                    final String name = data.getKey();
-                    final List<String> followers = data.getValue();
-                    followers.forEach(follower -> {
-                        adjacencyData.putIfAbsent(name, new HashSet<>());
-                        adjacencyData.get(name).add(follower);
-                        // add the edges only of both names are adjacent to each other
-                        if (adjacencyData.containsKey(follower) &&
-                            adjacencyData.get(follower).contains(name)) {
-                            graph.addEdge(new Node(name), new Node(follower));
-                        }
-                    });
-                });
+    private void addEdge(final String name, final String otherName) {
+        metrics.increment("graph.edgesAdded");
+        graph.addEdge(name, otherName);
     }
 }
@@ -0,0 +1,136 @@
+package cliquefinder;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts more lines than we want to keep in memory: lines are collected until the buffer is full, then the
+ * buffer is sorted and spilled to a temporary file (a run). Writing the result merges all the runs with a
+ * priority queue which holds the current line of every run.
+ * Created by qr4 on 12.08.17.
+ */
+@ParametersAreNonnullByDefault
+class ExternalSorter implements Closeable {
+    private final int maxLinesInMemory;
+    private final List<String> buffer = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+
+    ExternalSorter(final int maxLinesInMemory) {
+        if (maxLinesInMemory < 1) {
+            throw new IllegalArgumentException("the sort buffer must hold at least one line");
+        }
+        this.maxLinesInMemory = maxLinesInMemory;
+    }
+
+    void add(final String line) throws IOException {
+        buffer.add(line);
+        if (buffer.size() >= maxLinesInMemory) {
+            spill();
+        }
+    }
+
+    int getRunCount() {
+        return runs.size();
+    }
+
+    /**
+     * Writes all the added lines in sorted order.
+     */
+    void writeSorted(final CliqueWriter writer) throws IOException {
+        Collections.sort(buffer);
+        if (runs.isEmpty()) {
+            for (final String line : buffer) {
+                writer.writeLine(line);
+            }
+            return;
+        }
+
+        final List<BufferedReader> readers = new ArrayList<>();
+        try {
+            final PriorityQueue<RunHead> heads = new PriorityQueue<>();
+            for (final Path run : runs) {
+                final BufferedReader reader = Files.newBufferedReader(run, StandardCharsets.UTF_8);
+                readers.add(reader);
+                RunHead.next(reader::readLine, heads);
+            }
+            // the lines which were not spilled yet are the last run
+            final Iterator<String> remaining = buffer.iterator();
+            RunHead.next(() -> remaining.hasNext() ? remaining.next() : null, heads);
+
+            while (!heads.isEmpty()) {
+                final RunHead head = heads.poll();
+                writer.writeLine(head.line);
+                RunHead.next(head.run, heads);
+            }
+        } finally {
+            for (final BufferedReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Deletes the temporary run files.
+     */
+    @Override
+    public void close() throws IOException {
+        for (final Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+        buffer.clear();
+    }
+
+    private void spill() throws IOException {
+        Collections.sort(buffer);
+        final Path run = Files.createTempFile("cliquefinder-run", ".txt");
+        runs.add(run);
+        try (BufferedWriter writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+            for (final String line : buffer) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+        buffer.clear();
+    }
+
+    /**
+     * A sorted run, returns null when it is exhausted.
+     */
+    private interface Run {
+        String readLine() throws IOException;
+    }
+
+    private static class RunHead implements Comparable<RunHead> {
+        private final String line;
+        private final Run run;
+
+        private RunHead(final String line, final Run run) {
+            this.line = line;
+            this.run = run;
+        }
+
+        static void next(final Run run, final PriorityQueue<RunHead> heads) throws IOException {
+            final String line = run.readLine();
+            if (line != null) {
+                heads.add(new RunHead(line, run));
+            }
+        }
+
+        @Override
+        public int compareTo(final RunHead other) {
+            return line.compareTo(other.line);
+        }
+    }
+}
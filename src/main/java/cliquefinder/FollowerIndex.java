@@ -0,0 +1,345 @@
+package cliquefinder;
+
+import cliquefinder.model.TwitterAccount;
+import cliquefinder.model.TwitterUser;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import javafx.util.Pair;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Resolves the follower and friend ids of twitter accounts to the users of our input and detects mutual
+ * follows. It also plans which ids to fetch for every user.
+ *
+ * Planning: an edge u -> v ("u follows v") shows up either in the friends of u or in the followers of v.
+ * For every user we fetch the list which needs fewer pages according to the counts of users/lookup, e.g.
+ * the handful of friends of a celebrity instead of its millions of followers. Both directions of a pair
+ * are then seen, unless u fetches friends and v fetches followers: then v -> u is in neither list. Such
+ * pairs with a known u -> v are resolved by planResolution: either the other list of u or of v is fetched as
+ * well, or the pair is checked with one friendships/show request. That endpoint allows 180 requests per 15
+ * minutes and the ids endpoints 15, so an extra list is fetched if its pages cost less than the checks it
+ * saves, weighing a page like 12 checks. The checks which are left can be capped.
+ *
+ * Resolution: every input user gets a dense index. An id is looked up in a primitive id to index map
+ * first, so the (many) ids which are not part of the input are dropped without creating any object. The
+ * follows among the users are stored as packed pairs of indices in a second primitive map; once the
+ * reverse direction shows up, the two users follow each other. So the memory scales with the input users
+ * and the follows among them, not with the follower counts.
+ *
+ * Not thread safe, the users and the ids have to be added from one thread at a time. The pages of a fetch
+ * can be added with {@link #addIdPages}, which takes care of that.
+ * Created by qr4 on 21.08.17.
+ */
+@ParametersAreNonnullByDefault
+final class FollowerIndex {
+    // followers/ids and friends/ids return up to 5000 ids per page
+    private static final int IDS_PER_PAGE = 5000;
+    // an ids request uses up as much of its rate limit (15 per window) as 12 friendships/show requests (180)
+    private static final int PAGE_WEIGHT = 12;
+
+    private final LongIntHashMap idToIndex;
+    private final Map<String, Integer> nameToIndex;
+    private final List<String> names;
+    // the users which fetch their friends instead of their followers
+    private final BitSet fetchFriends;
+    // per user, the pages of the list which is not fetched
+    private int[] otherPages;
+    // (follower index << 32 | followed index) -> 0, used as a set
+    private final LongIntHashMap follows;
+
+    FollowerIndex(final int expectedUsers) {
+        this.idToIndex = new LongIntHashMap(expectedUsers);
+        this.nameToIndex = new HashMap<>(2 * expectedUsers);
+        this.names = new ArrayList<>(expectedUsers);
+        this.fetchFriends = new BitSet(expectedUsers);
+        this.otherPages = new int[Math.max(1, expectedUsers)];
+        this.follows = new LongIntHashMap(expectedUsers);
+    }
+
+    void addUser(final TwitterUser user) {
+        if (idToIndex.containsKey(user.getId())) {
+            return;
+        }
+        final int index = names.size();
+        names.add(user.getName());
+        // on a tie (e.g. no counts at all) we take the followers
+        final boolean friends = pages(user.getFriendsCount()) < pages(user.getFollowersCount());
+        fetchFriends.set(index, friends);
+        if (index == otherPages.length) {
+            otherPages = Arrays.copyOf(otherPages, 2 * index);
+        }
+        otherPages[index] = pages(friends ? user.getFollowersCount() : user.getFriendsCount());
+        idToIndex.put(user.getId(), index);
+        nameToIndex.put(user.getName(), index);
+    }
+
+    int getUserCount() {
+        return names.size();
+    }
+
+    int getFollowCount() {
+        return follows.size();
+    }
+
+    /**
+     * Returns the names of the users whose followers should be fetched.
+     */
+    Set<String> getNamesToFetchFollowers() {
+        return getNamesToFetch(false);
+    }
+
+    /**
+     * Returns the names of the users whose friends should be fetched.
+     */
+    Set<String> getNamesToFetchFriends() {
+        return getNamesToFetch(true);
+    }
+
+    /**
+     * Adds the followers of the user (or of one page of them) and passes every pair of users which now
+     * follow each other to the consumer. Ids which are not users are ignored, as are users we do not know.
+     */
+    void addFollowers(final String name, final long[] followerIds, final BiConsumer<String, String> mutualFollows) {
+        final Integer user = nameToIndex.get(name);
+        if (user == null) {
+            return;
+        }
+        for (final long followerId : followerIds) {
+            final int follower = idToIndex.get(followerId);
+            if (follower != LongIntHashMap.MISSING) {
+                addFollow(follower, user, mutualFollows);
+            }
+        }
+    }
+
+    /**
+     * Adds the friends (the accounts the user follows) of the user, like {@link #addFollowers}.
+     */
+    void addFriends(final String name, final long[] friendIds, final BiConsumer<String, String> mutualFollows) {
+        final Integer user = nameToIndex.get(name);
+        if (user == null) {
+            return;
+        }
+        for (final long friendId : friendIds) {
+            final int friend = idToIndex.get(friendId);
+            if (friend != LongIntHashMap.MISSING) {
+                addFollow(user, friend, mutualFollows);
+            }
+        }
+    }
+
+    /**
+     * Adds the pages of followers and of friends as they arrive. The two flowables may emit on different
+     * threads, so they are merged first: the merge serializes their pages, and the index is only updated
+     * from one thread at a time. Completes when both are done.
+     */
+    Completable addIdPages(final Flowable<TwitterAccount> followerPages, final Flowable<TwitterAccount> friendPages,
+                           final BiConsumer<String, String> mutualFollows) {
+        // the key tells whether the ids of the page are friends
+        return Flowable.merge(followerPages.map(page -> new Pair<>(false, page)),
+                friendPages.map(page -> new Pair<>(true, page)))
+                .doOnNext(page -> {
+                    final TwitterAccount account = page.getValue();
+                    if (page.getKey()) {
+                        addFriends(account.getName(), account.getFollowersIds(), mutualFollows);
+                    } else {
+                        addFollowers(account.getName(), account.getFollowersIds(), mutualFollows);
+                    }
+                })
+                .ignoreElements();
+    }
+
+    /**
+     * Returns the pairs (u, v) for which we know that u follows v, but would never see whether v follows u,
+     * because u fetched its friends and v its followers. Call this once all the ids were added.
+     */
+    List<Pair<String, String>> getUnresolvedPairs() {
+        final List<Pair<String, String>> pairs = new ArrayList<>();
+        for (final long pair : getUnresolved()) {
+            pairs.add(new Pair<>(names.get(follower(pair)), names.get(followed(pair))));
+        }
+        return pairs;
+    }
+
+    /**
+     * Plans how to resolve the pairs of {@link #getUnresolvedPairs}: the followers of u resolve all the pairs of u,
+     * the friends of v all the pairs of v. Such a list is fetched if it takes fewer (weighted) requests than
+     * checking its pairs, first for the u, then for the v of the pairs which are left. At most maxChecks pairs
+     * (0 for no limit) are left to friendships/show, the others are skipped. Call this once all the ids were
+     * added, and add the ids of the extra lists like the others.
+     */
+    ResolutionPlan planResolution(final int maxChecks) {
+        final long[] unresolved = getUnresolved();
+        final int[] pairCounts = new int[names.size()];
+        for (final long pair : unresolved) {
+            pairCounts[follower(pair)]++;
+        }
+        final BitSet fetchOther = new BitSet(names.size());
+        for (int user = 0; user < names.size(); user++) {
+            if (pairCounts[user] > 0 && (long) otherPages[user] * PAGE_WEIGHT < pairCounts[user]) {
+                fetchOther.set(user);
+            }
+        }
+        Arrays.fill(pairCounts, 0);
+        for (final long pair : unresolved) {
+            if (!fetchOther.get(follower(pair))) {
+                pairCounts[followed(pair)]++;
+            }
+        }
+        for (int user = 0; user < names.size(); user++) {
+            if (pairCounts[user] > 0 && (long) otherPages[user] * PAGE_WEIGHT < pairCounts[user]) {
+                fetchOther.set(user);
+            }
+        }
+
+        final List<Pair<String, String>> checks = new ArrayList<>();
+        int skipped = 0;
+        for (final long pair : unresolved) {
+            if (fetchOther.get(follower(pair)) || fetchOther.get(followed(pair))) {
+                continue;
+            }
+            if (maxChecks > 0 && checks.size() >= maxChecks) {
+                skipped++;
+            } else {
+                checks.add(new Pair<>(names.get(follower(pair)), names.get(followed(pair))));
+            }
+        }
+        // the users which fetched their friends now fetch their followers, and the other way round
+        final Set<String> followers = new HashSet<>();
+        final Set<String> friends = new HashSet<>();
+        for (int user = fetchOther.nextSetBit(0); user >= 0; user = fetchOther.nextSetBit(user + 1)) {
+            if (fetchFriends.get(user)) {
+                followers.add(names.get(user));
+            } else {
+                friends.add(names.get(user));
+            }
+        }
+        return new ResolutionPlan(followers, friends, checks, unresolved.length, skipped);
+    }
+
+    private void addFollow(final int follower, final int followed, final BiConsumer<String, String> mutualFollows) {
+        if (follower == followed) {
+            return;
+        }
+        final long pair = pack(follower, followed);
+        // a follow can be seen twice (in the friends of one and the followers of the other), report it once
+        if (follows.containsKey(pair)) {
+            return;
+        }
+        follows.put(pair, 0);
+        if (follows.containsKey(pack(followed, follower))) {
+            mutualFollows.accept(names.get(followed), names.get(follower));
+        }
+    }
+
+    private long[] getUnresolved() {
+        final LongList pairs = new LongList();
+        follows.forEachKey(pair -> {
+            if (fetchFriends.get(follower(pair)) && !fetchFriends.get(followed(pair))
+                    && !follows.containsKey(pack(followed(pair), follower(pair)))) {
+                pairs.add(pair);
+            }
+        });
+        return pairs.toArray();
+    }
+
+    private Set<String> getNamesToFetch(final boolean friends) {
+        final Set<String> result = new HashSet<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (fetchFriends.get(i) == friends) {
+                result.add(names.get(i));
+            }
+        }
+        return result;
+    }
+
+    private static int pages(final int count) {
+        return Math.max(1, (count + IDS_PER_PAGE - 1) / IDS_PER_PAGE);
+    }
+
+    private static long pack(final int follower, final int followed) {
+        return (long) follower << 32 | followed;
+    }
+
+    private static int follower(final long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    private static int followed(final long pair) {
+        return (int) pair;
+    }
+
+    /**
+     * The extra lists and the friendships/show checks which resolve the unresolved pairs.
+     */
+    static final class ResolutionPlan {
+        private final Set<String> followersToFetch;
+        private final Set<String> friendsToFetch;
+        private final List<Pair<String, String>> pairsToCheck;
+        private final int unresolvedPairs;
+        private final int skippedPairs;
+
+        private ResolutionPlan(final Set<String> followersToFetch, final Set<String> friendsToFetch,
+                               final List<Pair<String, String>> pairsToCheck, final int unresolvedPairs,
+                               final int skippedPairs) {
+            this.followersToFetch = followersToFetch;
+            this.friendsToFetch = friendsToFetch;
+            this.pairsToCheck = pairsToCheck;
+            this.unresolvedPairs = unresolvedPairs;
+            this.skippedPairs = skippedPairs;
+        }
+
+        Set<String> getFollowersToFetch() {
+            return followersToFetch;
+        }
+
+        Set<String> getFriendsToFetch() {
+            return friendsToFetch;
+        }
+
+        List<Pair<String, String>> getPairsToCheck() {
+            return pairsToCheck;
+        }
+
+        int getUnresolvedPairs() {
+            return unresolvedPairs;
+        }
+
+        /**
+         * Returns the number of pairs which are neither checked nor resolved by an extra list, because of the
+         * limit of the checks. Their mutual follows are missing from the graph.
+         */
+        int getSkippedPairs() {
+            return skippedPairs;
+        }
+    }
+
+    /**
+     * A growable list of longs, so that the pairs are not boxed.
+     */
+    private static final class LongList {
+        private long[] values = new long[16];
+        private int size = 0;
+
+        void add(final long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package cliquefinder;
 
 import cliquefinder.solver.Clique;
-import cliquefinder.solver.Node;
+import io.reactivex.Flowable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,8 +10,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
-import java.util.Comparator;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -25,8 +23,14 @@ class IOHandler {
 
     private final Path inputPath;
     private final Path outputPath;
+    private final boolean sortedOutput;
+    private final int sortBufferLines;
+    private long bytesWritten = 0;
 
-    IOHandler(final String inputFilename, final String outputFilename) throws IOException {
+    IOHandler(final String inputFilename, final String outputFilename,
+              final boolean sortedOutput, final int sortBufferLines) throws IOException {
+        this.sortedOutput = sortedOutput;
+        this.sortBufferLines = sortBufferLines;
         inputPath = Paths.get(inputFilename);
         if (!Files.exists(inputPath)) {
             throw new IllegalArgumentException("input file does not exist");
@@ -41,23 +45,51 @@ class IOHandler {
         Files.createFile(outputPath);
     }
 
+    Path getOutputPath() {
+        return outputPath;
+    }
+
+    /**
+     * Returns the size of the output which was written last in bytes.
+     */
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
     Set<String> parseInput() throws IOException {
         // Note that I dont do much input validation here. I assume that the passed file contains the correct
         // data, i.e. one name per line.
         return Files.readAllLines(this.inputPath).stream().collect(Collectors.toSet());
     }
 
-    void writeOutput(final Set<Clique> cliques) {
-        cliques.stream().sorted(Comparator.comparing(clique -> clique.getNodes().first()))
-                .filter(c -> c.getNodes().size() >= 2)
-                .forEach(clique -> {
-                    try {
-                        Files.write(this.outputPath, (String.join(" ",
-                                clique.getNodes().stream().map(Node::getName).collect(Collectors.toList())) + "\n").getBytes(),
-                                StandardOpenOption.APPEND);
-                    } catch (final IOException e) {
-                        LOG.error("could not write clique to file!", e);
-                    }
-                });
+    /**
+     * Writes the cliques with at least two nodes to the output file, one clique per line, and returns the
+     * number of written cliques. The cliques are consumed while they are emitted. For sorted output the
+     * lines go through an external merge sort, which keeps at most sortBufferLines lines in memory.
+     */
+    long writeOutput(final Flowable<Clique> cliques) throws IOException {
+        final Flowable<Clique> filtered = cliques.filter(c -> c.getNodes().size() >= 2);
+        final CliqueWriter writer = new CliqueWriter(this.outputPath);
+        try (CliqueWriter closedWriter = writer) {
+            return write(filtered, closedWriter);
+        } finally {
+            // read after the close, which flushes the last bytes
+            bytesWritten = writer.getBytesWritten();
+        }
+    }
+
+    private long write(final Flowable<Clique> cliques, final CliqueWriter writer) throws IOException {
+        if (!sortedOutput) {
+            return cliques.doOnNext(writer::write).count().blockingGet();
+        }
+
+        try (ExternalSorter sorter = new ExternalSorter(sortBufferLines)) {
+            final long count = cliques.map(CliqueWriter::toLine).doOnNext(sorter::add).count().blockingGet();
+            if (sorter.getRunCount() > 0) {
+                LOG.info("Merging {} sorted runs of the output.", sorter.getRunCount());
+            }
+            sorter.writeSorted(writer);
+            return count;
+        }
     }
 }
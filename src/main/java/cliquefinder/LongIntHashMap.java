@@ -0,0 +1,119 @@
+package cliquefinder;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * A map from long keys to non-negative int values with open addressing (linear probing) on two primitive
+ * arrays, i.e. 12 bytes per slot and no objects per entry. A value of -1 marks an empty slot. The table
+ * is kept at most half full, entries can not be removed.
+ *
+ * Not thread safe.
+ * Created by qr4 on 21.08.17.
+ */
+@ParametersAreNonnullByDefault
+final class LongIntHashMap {
+    static final int MISSING = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+
+    LongIntHashMap(final int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Returns the value of the key or MISSING.
+     */
+    int get(final long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            if (values[slot] == MISSING) {
+                return MISSING;
+            }
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+    }
+
+    boolean containsKey(final long key) {
+        return get(key) != MISSING;
+    }
+
+    /**
+     * Sets the value of the key, which must not be negative.
+     */
+    void put(final long key, final int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Only non-negative values are allowed, got " + value);
+        }
+        if (2 * (size + 1) > values.length) {
+            rehash();
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            if (values[slot] == MISSING) {
+                keys[slot] = key;
+                values[slot] = value;
+                size++;
+                return;
+            }
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEachKey(final LongConsumer consumer) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != MISSING) {
+                consumer.accept(keys[i]);
+            }
+        }
+    }
+
+    private int slot(final long key) {
+        // the finalizer of murmur3, ids and packed pairs are far from random in their low bits
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private void rehash() {
+        final long[] oldKeys = keys;
+        final int[] oldValues = values;
+        allocate(2 * oldValues.length);
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != MISSING) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        mask = capacity - 1;
+    }
+
+    private static int tableSizeFor(final int expectedSize) {
+        int capacity = 16;
+        while (capacity < 2L * expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
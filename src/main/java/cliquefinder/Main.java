@@ -4,19 +4,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 
 public class Main {
     private static final Logger LOG = LoggerFactory.getLogger(Main.class);
+    private static final String SNAPSHOT_OPTION = "--snapshot";
 
     public static void main(String[] args) throws IOException {
-        if (args.length < 2) {
-            LOG.error("You need to pass 2 filenames: <input> <output>");
+        // with a snapshot, the graph is loaded from it instead of being fetched
+        final boolean fromSnapshot = args.length > 0 && SNAPSHOT_OPTION.equals(args[0]);
+        final int first = fromSnapshot ? 2 : 0;
+        if (args.length < first + 2) {
+            LOG.error("You need to pass 2 filenames: [--snapshot <snapshot>] <input> <output>");
             return;
         }
-        final Core c = new Core(args[0], args[1],
+        final Core c = new Core(args[first], args[first + 1],
                 "https://api.github.com",
-                "https://api.twitter.com/1.1"
+                "https://api.twitter.com/1.1",
+                Settings.fromSystemProperties()
         );
-        c.run();
+        if (fromSnapshot) {
+            c.runFromSnapshot(Paths.get(args[1]));
+        } else {
+            c.run();
+        }
     }
 }
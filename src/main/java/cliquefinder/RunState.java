@@ -0,0 +1,88 @@
+package cliquefinder;
+
+import cliquefinder.solver.Clique;
+import cliquefinder.solver.CompactGraph;
+import cliquefinder.solver.GraphSnapshot;
+import cliquefinder.solver.Node;
+import io.reactivex.Flowable;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The graph and the cliques of the previous run, kept in a directory between runs, so that the next run
+ * only has to recompute the cliques around the changed edges.
+ *
+ * The graph is stored as a {@link GraphSnapshot} and the cliques as a copy of the output. The state is only
+ * complete if both files exist: the cliques are removed first and written last, so a run which fails in
+ * between leaves no state behind and the next run computes all the cliques again.
+ * Created by qr4 on 23.08.17.
+ */
+@ParametersAreNonnullByDefault
+class RunState {
+    private static final Pattern SEPARATOR = Pattern.compile(" ");
+
+    private final Path graphFile;
+    private final Path cliquesFile;
+
+    RunState(final Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.graphFile = directory.resolve("graph.snapshot");
+        this.cliquesFile = directory.resolve("cliques.txt");
+    }
+
+    boolean exists() {
+        return Files.exists(graphFile) && Files.exists(cliquesFile);
+    }
+
+    /**
+     * Returns the graph of the previous run, or null if there is no complete state.
+     */
+    @Nullable
+    CompactGraph loadGraph() throws IOException {
+        if (!exists()) {
+            return null;
+        }
+        return GraphSnapshot.load(graphFile);
+    }
+
+    /**
+     * Returns the cliques of the previous run, i.e. the lines of its output. The file is read line by line
+     * while the cliques are consumed, and closed once they are done (or cancelled).
+     */
+    Flowable<Clique> loadCliques() {
+        return Flowable.using(
+                () -> Files.newBufferedReader(cliquesFile, StandardCharsets.UTF_8),
+                reader -> Flowable.fromIterable(() -> reader.lines().iterator()).map(RunState::toClique),
+                BufferedReader::close);
+    }
+
+    private static Clique toClique(final String line) {
+        final List<Node> nodes = new ArrayList<>();
+        for (final String name : SEPARATOR.split(line)) {
+            nodes.add(new Node(name));
+        }
+        return new Clique(nodes);
+    }
+
+    /**
+     * Replaces the state with the graph and the output of this run.
+     */
+    void save(final CompactGraph graph, final Path output) throws IOException {
+        Files.deleteIfExists(cliquesFile);
+        GraphSnapshot.write(graph, graphFile);
+
+        final Path cliquesTemp = cliquesFile.resolveSibling(cliquesFile.getFileName() + ".tmp");
+        Files.copy(output, cliquesTemp, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(cliquesTemp, cliquesFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
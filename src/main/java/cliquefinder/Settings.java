@@ -0,0 +1,188 @@
+package cliquefinder;
+
+import cliquefinder.solver.PivotStrategy;
+import cliquefinder.solver.SolverBudget;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The tuning knobs of a run. They are read from properties prefixed with "cliquefinder.", e.g.
+ * ./gradlew run -Dcliquefinder.solver=bitset -Dexec.args="input output"
+ * Every setting has a default, so an empty set of properties is a valid configuration.
+ * Created by qr4 on 02.08.17.
+ */
+@ParametersAreNonnullByDefault
+class Settings {
+    private static final String PREFIX = "cliquefinder.";
+
+    private final SolverMode solverMode;
+    private final int parallelism;
+    private final PivotStrategy pivotStrategy;
+    private final boolean sortedOutput;
+    private final int sortBufferLines;
+    @Nullable
+    private final Path cacheFile;
+    private final long cacheTtlMinutes;
+    private final int githubConcurrency;
+    private final int twitterConcurrency;
+    private final int maxFriendshipChecks;
+    @Nullable
+    private final Path stateDirectory;
+    @Nullable
+    private final Path snapshotFile;
+    @Nullable
+    private final Path metricsFile;
+    private final int progressSeconds;
+    private final SolverBudget solverBudget;
+
+    Settings(final Properties properties) {
+        this.solverMode = SolverMode.valueOf(
+                properties.getProperty(PREFIX + "solver", SolverMode.SET.name()).toUpperCase(Locale.ROOT));
+        this.parallelism = Integer.parseInt(properties.getProperty(PREFIX + "parallelism",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        this.pivotStrategy = PivotStrategy.valueOf(
+                properties.getProperty(PREFIX + "pivot", PivotStrategy.TOMITA.name()).toUpperCase(Locale.ROOT));
+        this.sortedOutput = Boolean.parseBoolean(properties.getProperty(PREFIX + "output.sorted", "true"));
+        this.sortBufferLines = Integer.parseInt(properties.getProperty(PREFIX + "output.sortBufferLines", "100000"));
+        final String cacheFileName = properties.getProperty(PREFIX + "cache.file", "");
+        this.cacheFile = cacheFileName.isEmpty() ? null : Paths.get(cacheFileName);
+        this.cacheTtlMinutes = Long.parseLong(properties.getProperty(PREFIX + "cache.ttlMinutes", "720"));
+        this.githubConcurrency = Integer.parseInt(properties.getProperty(PREFIX + "github.concurrency", "32"));
+        this.twitterConcurrency = Integer.parseInt(properties.getProperty(PREFIX + "twitter.concurrency", "16"));
+        this.maxFriendshipChecks = Integer.parseInt(
+                properties.getProperty(PREFIX + "twitter.maxFriendshipChecks", "0"));
+        final String stateDirectoryName = properties.getProperty(PREFIX + "state.dir", "");
+        this.stateDirectory = stateDirectoryName.isEmpty() ? null : Paths.get(stateDirectoryName);
+        final String snapshotFileName = properties.getProperty(PREFIX + "snapshot.file", "");
+        this.snapshotFile = snapshotFileName.isEmpty() ? null : Paths.get(snapshotFileName);
+        final String metricsFileName = properties.getProperty(PREFIX + "metrics.file", "");
+        this.metricsFile = metricsFileName.isEmpty() ? null : Paths.get(metricsFileName);
+        this.progressSeconds = Integer.parseInt(properties.getProperty(PREFIX + "metrics.progressSeconds", "0"));
+        this.solverBudget = readSolverBudget(properties);
+    }
+
+    static Settings defaults() {
+        return new Settings(new Properties());
+    }
+
+    static Settings fromSystemProperties() {
+        return new Settings(System.getProperties());
+    }
+
+    SolverMode getSolverMode() {
+        return solverMode;
+    }
+
+    int getParallelism() {
+        return parallelism;
+    }
+
+    PivotStrategy getPivotStrategy() {
+        return pivotStrategy;
+    }
+
+    boolean isSortedOutput() {
+        return sortedOutput;
+    }
+
+    int getSortBufferLines() {
+        return sortBufferLines;
+    }
+
+    /**
+     * Returns the file of the response cache, or null if the responses should not be cached.
+     */
+    @Nullable
+    Path getCacheFile() {
+        return cacheFile;
+    }
+
+    long getCacheTtlMinutes() {
+        return cacheTtlMinutes;
+    }
+
+    /**
+     * Returns the maximum number of requests to github which may be in flight at the same time.
+     */
+    int getGithubConcurrency() {
+        return githubConcurrency;
+    }
+
+    /**
+     * Returns the maximum number of requests to twitter which may be in flight at the same time.
+     */
+    int getTwitterConcurrency() {
+        return twitterConcurrency;
+    }
+
+    /**
+     * Returns the maximum number of pairs which are checked with friendships/show, 0 if there is no limit.
+     */
+    int getMaxFriendshipChecks() {
+        return maxFriendshipChecks;
+    }
+
+    /**
+     * Returns the directory which keeps the graph and the cliques between runs, or null if every run should
+     * compute all the cliques.
+     */
+    @Nullable
+    Path getStateDirectory() {
+        return stateDirectory;
+    }
+
+    /**
+     * Returns the file which the fetched graph is written to, or null if it should not be written.
+     */
+    @Nullable
+    Path getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * Returns the file which the metrics of the run are written to as json, or null if they should not be written.
+     */
+    @Nullable
+    Path getMetricsFile() {
+        return metricsFile;
+    }
+
+    /**
+     * Returns the seconds between two progress lines in the log, 0 if no progress should be logged.
+     */
+    int getProgressSeconds() {
+        return progressSeconds;
+    }
+
+    /**
+     * Returns the limits of the solver, 0 (the default) means no limit.
+     */
+    SolverBudget getSolverBudget() {
+        return solverBudget;
+    }
+
+    private static SolverBudget readSolverBudget(final Properties properties) {
+        SolverBudget budget = SolverBudget.unlimited();
+        final long timeSeconds = Long.parseLong(properties.getProperty(PREFIX + "budget.timeSeconds", "0"));
+        if (timeSeconds > 0) {
+            budget = budget.withTimeLimit(timeSeconds, TimeUnit.SECONDS);
+        }
+        final long maxRecursionCalls = Long.parseLong(properties.getProperty(PREFIX + "budget.maxRecursionCalls", "0"));
+        if (maxRecursionCalls > 0) {
+            budget = budget.withMaxRecursionCalls(maxRecursionCalls);
+        }
+        final long maxCliques = Long.parseLong(properties.getProperty(PREFIX + "budget.maxCliques", "0"));
+        if (maxCliques > 0) {
+            budget = budget.withMaxCliques(maxCliques);
+        }
+        // the output never holds single nodes, so the solver does not have to enumerate them either
+        final int minCliqueSize = Integer.parseInt(properties.getProperty(PREFIX + "budget.minCliqueSize", "2"));
+        return budget.withMinCliqueSize(Math.max(2, minCliqueSize));
+    }
+}
@@ -0,0 +1,28 @@
+package cliquefinder;
+
+/**
+ * The clique solvers which can be selected for a run.
+ * Created by qr4 on 02.08.17.
+ */
+enum SolverMode {
+    /**
+     * The original Bron-Kerbosch implementation on top of immutable node sets.
+     */
+    SET,
+    /**
+     * Bron-Kerbosch on int-indexed nodes with bitsets for P, X and the adjacency rows.
+     */
+    BITSET,
+    /**
+     * The bitset solver with its top-level branches split into fork/join tasks.
+     */
+    PARALLEL,
+    /**
+     * The bitset solver with the outer level iterating over the nodes in degeneracy order.
+     */
+    DEGENERACY,
+    /**
+     * Branch and bound search for a single maximum clique instead of all the maximal ones.
+     */
+    MAXIMUM
+}
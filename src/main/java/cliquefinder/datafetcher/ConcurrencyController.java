@@ -0,0 +1,123 @@
+package cliquefinder.datafetcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Limits the number of requests of one source which are in flight at the same time and adapts the
+ * limit at runtime with AIMD (additive increase, multiplicative decrease, like TCP congestion control):
+ *
+ * - every successful response with a normal latency raises the limit by 1 / limit, i.e. by about one
+ *   request per round trip, up to the configured maximum,
+ * - a 429, a 5xx, a failed request or a latency of more than LATENCY_TOLERANCE times the fastest one we
+ *   have seen halves the limit (at most once per round trip, so a burst of errors counts once).
+ *
+ * Requests beyond the limit wait in a queue without blocking a thread.
+ * Created by qr4 on 19.08.17.
+ */
+@ParametersAreNonnullByDefault
+public class ConcurrencyController {
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyController.class);
+
+    private static final double LATENCY_TOLERANCE = 4.0;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVER_ERROR = 500;
+
+    private final String name;
+    private final int maxLimit;
+    private final ArrayDeque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+    private double limit;
+    private int inFlight = 0;
+    private long minLatencyNanos = Long.MAX_VALUE;
+    // the next decrease is only allowed once the requests which were in flight at the last one came back
+    private int inFlightAtDecrease = 0;
+    private int completedSinceDecrease = 0;
+
+    /**
+     * @param name       used for logging only
+     * @param startLimit the limit we start with
+     * @param maxLimit   the limit is never raised above this
+     */
+    public ConcurrencyController(final String name, final int startLimit, final int maxLimit) {
+        if (startLimit < 1 || maxLimit < startLimit) {
+            throw new IllegalArgumentException("Need 1 <= startLimit <= maxLimit, got " + startLimit + ", " + maxLimit);
+        }
+        this.name = name;
+        this.limit = startLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Returns a future which completes once the request may be sent. Every permit must be handed back with
+     * {@link #release}.
+     */
+    CompletableFuture<Void> acquire() {
+        final CompletableFuture<Void> permit = new CompletableFuture<>();
+        final List<CompletableFuture<Void>> ready;
+        synchronized (this) {
+            waiting.add(permit);
+            ready = drain();
+        }
+        ready.forEach(future -> future.complete(null));
+        return permit;
+    }
+
+    /**
+     * Hands back a permit and adapts the limit to the outcome of the request; the response is null if the
+     * request failed.
+     */
+    void release(@Nullable final HttpResult response, final long latencyNanos) {
+        final List<CompletableFuture<Void>> ready;
+        synchronized (this) {
+            inFlight--;
+            completedSinceDecrease++;
+            if (response == null || response.getStatusCode() == TOO_MANY_REQUESTS
+                    || response.getStatusCode() >= SERVER_ERROR) {
+                decrease(response == null ? "a failed request" : "status " + response.getStatusCode());
+            } else {
+                minLatencyNanos = Math.min(minLatencyNanos, latencyNanos);
+                if (latencyNanos > LATENCY_TOLERANCE * minLatencyNanos) {
+                    decrease("a latency of " + latencyNanos / 1_000_000 + " ms");
+                } else {
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+            }
+            ready = drain();
+        }
+        ready.forEach(future -> future.complete(null));
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void decrease(final String reason) {
+        if (completedSinceDecrease <= inFlightAtDecrease) {
+            return;
+        }
+        limit = Math.max(1, limit / 2);
+        inFlightAtDecrease = inFlight;
+        completedSinceDecrease = 0;
+        LOG.debug("Halved the concurrency of {} to {} because of {}.", name, (int) limit, reason);
+    }
+
+    private List<CompletableFuture<Void>> drain() {
+        final List<CompletableFuture<Void>> ready = new ArrayList<>();
+        while (!waiting.isEmpty() && inFlight < (int) limit) {
+            inFlight++;
+            ready.add(waiting.poll());
+        }
+        return ready;
+    }
+}
@@ -0,0 +1,77 @@
+package cliquefinder.datafetcher;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * One page of a followers/ids (or friends/ids) response: the ids and the cursor of the next page (0 if this
+ * is the last one).
+ *
+ * The page is parsed in a single pass with a streaming {@link JsonReader} straight from the response bytes,
+ * the ids go into a long[] without creating a tree or a String per id. Ids may be numbers or strings
+ * (like "id_str"), all the other fields are skipped.
+ * Created by qr4 on 20.08.17.
+ */
+@ParametersAreNonnullByDefault
+final class FollowerIdsPage {
+    // twitter returns up to 5000 ids per page
+    private static final int INITIAL_CAPACITY = 5000;
+
+    private final long[] ids;
+    private final long nextCursor;
+
+    private FollowerIdsPage(final long[] ids, final long nextCursor) {
+        this.ids = ids;
+        this.nextCursor = nextCursor;
+    }
+
+    static FollowerIdsPage parse(final byte[] json) throws IOException {
+        long[] ids = new long[0];
+        long nextCursor = 0;
+        try (JsonReader reader = new JsonReader(
+                new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String field = reader.nextName();
+                if ("ids".equals(field)) {
+                    ids = readIds(reader);
+                } else if ("next_cursor".equals(field) && reader.peek() != JsonToken.NULL) {
+                    nextCursor = reader.nextLong();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return new FollowerIdsPage(ids, nextCursor);
+    }
+
+    long[] getIds() {
+        return ids;
+    }
+
+    long getNextCursor() {
+        return nextCursor;
+    }
+
+    private static long[] readIds(final JsonReader reader) throws IOException {
+        long[] ids = new long[INITIAL_CAPACITY];
+        int size = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * ids.length);
+            }
+            ids[size++] = reader.nextLong();
+        }
+        reader.endArray();
+        return size == ids.length ? ids : Arrays.copyOf(ids, size);
+    }
+}
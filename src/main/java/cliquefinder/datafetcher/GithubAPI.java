@@ -2,10 +2,9 @@ package cliquefinder.datafetcher;
 
 import cliquefinder.model.GithubAccount;
 import cliquefinder.model.GithubOrganization;
+import com.google.common.collect.ImmutableMap;
 import com.google.gson.Gson;
 import io.reactivex.Flowable;
-import org.asynchttpclient.AsyncHttpClient;
-import org.asynchttpclient.DefaultAsyncHttpClient;
 import org.asynchttpclient.util.HttpConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,7 +12,6 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.io.IOException;
 import java.util.List;
-import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -27,33 +25,40 @@ public class GithubAPI {
     private static final Logger LOG = LoggerFactory.getLogger(GithubAPI.class);
 
     private static final Gson gson = new Gson();
+    // the label of the requests in the metrics
+    private static final String ENDPOINT = "github.orgs";
     private final String baseUrl;
-    private final AsyncHttpClient client;
+    private final RequestExecutor executor;
 
     public GithubAPI(final String baseUrl) {
+        this(baseUrl, new RequestExecutor());
+    }
+
+    public GithubAPI(final String baseUrl, final RequestExecutor executor) {
         this.baseUrl = baseUrl;
-        this.client = new DefaultAsyncHttpClient();
+        this.executor = executor;
     }
 
     public List<Flowable<GithubAccount>> fetchOrganizationsForNames(final Set<String> names) {
         return names.stream().map(
                 name -> {
                     final String url = getUrlForOrgsRequest(name);
-                    return Flowable.fromFuture(client.prepareGet( url ).execute()).retry( 5 )
-                            .map(resp -> {
+                    return RequestExecutor.toSingle(() -> executor.get(ENDPOINT, url, ImmutableMap.of()))
+                            .retry(executor.retries(ENDPOINT, 5)).toFlowable()
+                            .flatMap(resp -> {
                                 if (resp.getStatusCode() != HttpConstants.ResponseStatusCodes.OK_200) {
                                     // Log an error and ignore this name
                                     LOG.error("Could not fetch github data for name: '{}'. Got Error {} {}", name, resp.getStatusCode(), resp.getStatusText());
-                                    return null;
+                                    return Flowable.<GithubAccount>empty();
                                 }
                                 final GithubOrganization[] organizations = gson.fromJson(resp.getResponseBody(), GithubOrganization[].class);
-                                return new GithubAccount(name, organizations);
+                                return Flowable.just(new GithubAccount(name, organizations));
                             });
-                }).filter(Objects::nonNull).collect(Collectors.toList());
+                }).collect(Collectors.toList());
     }
 
     public void close() throws IOException {
-        client.close();
+        executor.close();
     }
 
     private String getUrlForOrgsRequest(final String name) {
@@ -0,0 +1,74 @@
+package cliquefinder.datafetcher;
+
+import com.google.common.collect.ImmutableMap;
+import org.asynchttpclient.Response;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A fully read http response, either fresh from the network or served by the {@link ResponseCache}.
+ * The header names are lower case.
+ * Created by qr4 on 17.08.17.
+ */
+@ParametersAreNonnullByDefault
+class HttpResult {
+    private final int statusCode;
+    private final String statusText;
+    private final byte[] body;
+    private final Map<String, String> headers;
+    private final boolean fromCache;
+
+    HttpResult(final int statusCode, final String statusText, final byte[] body,
+               final Map<String, String> headers, final boolean fromCache) {
+        this.statusCode = statusCode;
+        this.statusText = statusText;
+        this.body = body;
+        this.headers = headers;
+        this.fromCache = fromCache;
+    }
+
+    static HttpResult of(final Response response) {
+        final Map<String, String> headers = new HashMap<>();
+        response.getHeaders().names().forEach(name ->
+                headers.putIfAbsent(name.toLowerCase(Locale.ROOT), response.getHeader(name)));
+        return new HttpResult(response.getStatusCode(), response.getStatusText(),
+                response.getResponseBodyAsBytes(), headers, false);
+    }
+
+    static HttpResult fromCache(final byte[] body) {
+        return new HttpResult(200, "OK", body, ImmutableMap.of(), true);
+    }
+
+    int getStatusCode() {
+        return statusCode;
+    }
+
+    String getStatusText() {
+        return statusText;
+    }
+
+    byte[] getResponseBodyAsBytes() {
+        return body;
+    }
+
+    String getResponseBody() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the value of the header (the first one, if it is repeated) or null if it is missing.
+     */
+    @Nullable
+    String getHeader(final String name) {
+        return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    boolean isFromCache() {
+        return fromCache;
+    }
+}
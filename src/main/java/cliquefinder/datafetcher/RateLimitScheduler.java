@@ -0,0 +1,184 @@
+package cliquefinder.datafetcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Paces the requests to an api with per endpoint rate limits in fixed windows (like twitter: e.g. 15
+ * requests to /followers/ids per 15 minutes).
+ *
+ * Every endpoint has a token bucket, which is refilled when its window resets. A request takes a token
+ * before it is sent; if there is none, it is parked (without blocking a thread) until the reset. The
+ * responses correct the bucket with the x-rate-limit-limit / -remaining / -reset headers, so we use up
+ * exactly the budget the server grants. A 429 empties the bucket until the reset, the request is then
+ * sent again by the {@link RequestExecutor}.
+ *
+ * Before the first response we only know a default limit. If an endpoint answers without any rate
+ * limit headers, it is treated as unlimited until it sends a 429.
+ * Created by qr4 on 18.08.17.
+ */
+@ParametersAreNonnullByDefault
+public class RateLimitScheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(RateLimitScheduler.class);
+
+    private static final int DEFAULT_LIMIT = 15;
+    private static final long DEFAULT_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    // our clock and the one of the server are not exactly in sync
+    private static final long RESET_SLACK_MILLIS = 1000;
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final int defaultLimit;
+    private final long windowMillis;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService timer;
+    private final Map<String, Bucket> buckets = new HashMap<>();
+
+    public RateLimitScheduler() {
+        this(DEFAULT_LIMIT, DEFAULT_WINDOW_MILLIS, System::currentTimeMillis);
+    }
+
+    RateLimitScheduler(final int defaultLimit, final long windowMillis, final LongSupplier clock) {
+        this.defaultLimit = defaultLimit;
+        this.windowMillis = windowMillis;
+        this.clock = clock;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "rate-limit-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns a future which completes once a request to the endpoint may be sent. Every acquired token
+     * must be handed back with {@link #onResponse}.
+     */
+    CompletableFuture<Void> acquire(final String endpoint) {
+        final CompletableFuture<Void> permit = new CompletableFuture<>();
+        final List<CompletableFuture<Void>> ready;
+        synchronized (this) {
+            final Bucket bucket = buckets.computeIfAbsent(endpoint, e -> new Bucket());
+            bucket.waiting.add(permit);
+            ready = drain(endpoint, bucket);
+        }
+        ready.forEach(future -> future.complete(null));
+        return permit;
+    }
+
+    /**
+     * Updates the bucket of the endpoint with the rate limit headers of the response, or just returns the
+     * token if the request failed without a response.
+     */
+    void onResponse(final String endpoint, @Nullable final HttpResult response) {
+        final List<CompletableFuture<Void>> ready;
+        synchronized (this) {
+            final Bucket bucket = buckets.get(endpoint);
+            bucket.inFlight--;
+            if (response != null) {
+                update(endpoint, bucket, response);
+            }
+            ready = drain(endpoint, bucket);
+        }
+        ready.forEach(future -> future.complete(null));
+    }
+
+    // exposed for tests
+    synchronized int getWaitingCount(final String endpoint) {
+        final Bucket bucket = buckets.get(endpoint);
+        return bucket == null ? 0 : bucket.waiting.size();
+    }
+
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    private void update(final String endpoint, final Bucket bucket, final HttpResult response) {
+        final long now = clock.getAsLong();
+        final String limit = response.getHeader("x-rate-limit-limit");
+        final String remaining = response.getHeader("x-rate-limit-remaining");
+        final String reset = response.getHeader("x-rate-limit-reset");
+
+        if (response.getStatusCode() == TOO_MANY_REQUESTS) {
+            bucket.limited = true;
+            bucket.tokens = 0;
+            bucket.resetAt = reset != null
+                    ? Math.max(TimeUnit.SECONDS.toMillis(Long.parseLong(reset)), now + RESET_SLACK_MILLIS)
+                    : now + windowMillis;
+            LOG.info("Hit the rate limit of {}, parking the requests for {} ms.", endpoint, bucket.resetAt - now);
+        } else if (remaining != null && reset != null) {
+            bucket.limited = true;
+            if (limit != null) {
+                bucket.limit = Integer.parseInt(limit);
+            }
+            // the requests which are still on their way are not part of the remaining count yet
+            bucket.tokens = Math.max(0, Integer.parseInt(remaining) - bucket.inFlight);
+            bucket.resetAt = TimeUnit.SECONDS.toMillis(Long.parseLong(reset));
+        } else {
+            bucket.limited = false;
+        }
+    }
+
+    /**
+     * Hands out as many tokens as possible to the waiting requests and schedules a wake up at the reset
+     * of the window if some are left. Returns the permits which can be completed (outside of the lock).
+     */
+    private List<CompletableFuture<Void>> drain(final String endpoint, final Bucket bucket) {
+        final long now = clock.getAsLong();
+        if (now >= bucket.resetAt) {
+            bucket.tokens = bucket.limit;
+            bucket.resetAt = now + windowMillis;
+        }
+
+        final List<CompletableFuture<Void>> ready = new ArrayList<>();
+        while (!bucket.waiting.isEmpty() && (!bucket.limited || bucket.tokens > 0)) {
+            if (bucket.limited) {
+                bucket.tokens--;
+            }
+            bucket.inFlight++;
+            ready.add(bucket.waiting.poll());
+        }
+
+        if (!bucket.waiting.isEmpty() && !bucket.wakeUpScheduled && bucket.inFlight == 0) {
+            bucket.wakeUpScheduled = true;
+            final long delay = bucket.resetAt - now + RESET_SLACK_MILLIS;
+            timer.schedule(() -> wakeUp(endpoint), delay, TimeUnit.MILLISECONDS);
+        }
+        return ready;
+    }
+
+    private void wakeUp(final String endpoint) {
+        final List<CompletableFuture<Void>> ready;
+        synchronized (this) {
+            final Bucket bucket = buckets.get(endpoint);
+            bucket.wakeUpScheduled = false;
+            ready = drain(endpoint, bucket);
+        }
+        ready.forEach(future -> future.complete(null));
+    }
+
+    /**
+     * The rate limit state of one endpoint, guarded by the lock of the scheduler.
+     */
+    private class Bucket {
+        private final ArrayDeque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+        private int limit = defaultLimit;
+        private int tokens = defaultLimit;
+        // the first request starts the window
+        private long resetAt = 0;
+        private int inFlight = 0;
+        private boolean limited = true;
+        private boolean wakeUpScheduled = false;
+    }
+}
@@ -0,0 +1,280 @@
+package cliquefinder.datafetcher;
+
+import cliquefinder.metrics.Metrics;
+import io.reactivex.Single;
+import io.reactivex.functions.BiPredicate;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.BoundRequestBuilder;
+import org.asynchttpclient.DefaultAsyncHttpClient;
+import org.asynchttpclient.DefaultAsyncHttpClientConfig;
+import org.asynchttpclient.util.HttpConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Executes the http requests of the api adapters. GET requests go through the {@link ResponseCache}, if
+ * there is one: a fresh entry is returned without any request, a stale one is revalidated with its etag
+ * and a 304 is answered from the cache. Errors of the cache are logged, the request then simply goes to
+ * the network. With a {@link RateLimitScheduler}, the requests which are sent are paced by the rate
+ * limits of their endpoint and requests rejected with a 429 are repeated after the reset. With a
+ * {@link ConcurrencyController}, the number of requests in flight adapts to the responses of the api.
+ * The connections are kept alive and pooled, the controller bounds how many of them are used at once.
+ *
+ * The requests are labeled with their endpoint by the api adapters (e.g. "twitter.followers"). With
+ * {@link Metrics}, every endpoint gets a latency histogram (http.[endpoint].latencyMicros), a counter per
+ * status (http.[endpoint].status.200, ... or .failed without a response) and counters of the responses served
+ * from the cache (http.[endpoint].cacheHit) and of the retries.
+ * Created by qr4 on 17.08.17.
+ */
+@ParametersAreNonnullByDefault
+public class RequestExecutor {
+    private static final Logger LOG = LoggerFactory.getLogger(RequestExecutor.class);
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int REQUEST_TIMEOUT_MILLIS = 60_000;
+    private static final int POOLED_CONNECTION_IDLE_MILLIS = 60_000;
+
+    private final AsyncHttpClient client;
+    @Nullable
+    private final ResponseCache cache;
+    @Nullable
+    private final RateLimitScheduler scheduler;
+    @Nullable
+    private final ConcurrencyController controller;
+    @Nullable
+    private final Metrics metrics;
+
+    /**
+     * Creates an executor without a cache, rate limits and concurrency control.
+     */
+    public RequestExecutor() {
+        this(null, null, null);
+    }
+
+    public RequestExecutor(@Nullable final ResponseCache cache) {
+        this(cache, null, null);
+    }
+
+    public RequestExecutor(@Nullable final ResponseCache cache, @Nullable final RateLimitScheduler scheduler) {
+        this(cache, scheduler, null);
+    }
+
+    /**
+     * The executor owns the scheduler (if any) and closes it together with the http client.
+     */
+    public RequestExecutor(@Nullable final ResponseCache cache, @Nullable final RateLimitScheduler scheduler,
+                           @Nullable final ConcurrencyController controller) {
+        this(cache, scheduler, controller, null);
+    }
+
+    public RequestExecutor(@Nullable final ResponseCache cache, @Nullable final RateLimitScheduler scheduler,
+                           @Nullable final ConcurrencyController controller, @Nullable final Metrics metrics) {
+        this.client = new DefaultAsyncHttpClient(new DefaultAsyncHttpClientConfig.Builder()
+                .setKeepAlive(true)
+                .setPooledConnectionIdleTimeout(POOLED_CONNECTION_IDLE_MILLIS)
+                .setConnectTimeout(CONNECT_TIMEOUT_MILLIS)
+                .setRequestTimeout(REQUEST_TIMEOUT_MILLIS)
+                .build());
+        this.cache = cache;
+        this.scheduler = scheduler;
+        this.controller = controller;
+        this.metrics = metrics;
+    }
+
+    CompletableFuture<HttpResult> get(final String endpoint, final String url, final Map<String, String> headers) {
+        final ResponseCache.CachedResponse cached = lookup(url);
+        if (cached != null && cached.isFresh()) {
+            return countCacheHit(endpoint, CompletableFuture.completedFuture(HttpResult.fromCache(cached.getBody())));
+        }
+
+        return countCacheHit(endpoint, execute(endpoint, url, () -> {
+            final BoundRequestBuilder request = client.prepareGet(url);
+            headers.forEach(request::setHeader);
+            if (cached != null && cached.getEtag() != null) {
+                request.setHeader("If-None-Match", cached.getEtag());
+            }
+            return request;
+        }).thenApply(result -> {
+            if (cached != null && result.getStatusCode() == HttpConstants.ResponseStatusCodes.NOT_MODIFIED_304) {
+                renew(url);
+                return HttpResult.fromCache(cached.getBody());
+            }
+            if (result.getStatusCode() == HttpConstants.ResponseStatusCodes.OK_200) {
+                store(url, result.getHeader("ETag"), result.getResponseBodyAsBytes());
+            }
+            return result;
+        }));
+    }
+
+    /**
+     * Counts the fresh and the revalidated responses of the cache as http.[endpoint].cacheHit.
+     */
+    private CompletableFuture<HttpResult> countCacheHit(final String endpoint,
+                                                        final CompletableFuture<HttpResult> result) {
+        return result.whenComplete((response, error) -> {
+            if (response != null && response.isFromCache()) {
+                count("http." + endpoint + ".cacheHit");
+            }
+        });
+    }
+
+    /**
+     * POST requests are never cached.
+     */
+    CompletableFuture<HttpResult> post(final String endpoint, final String url, final Map<String, String> headers) {
+        return execute(endpoint, url, () -> {
+            final BoundRequestBuilder request = client.preparePost(url);
+            headers.forEach(request::setHeader);
+            return request;
+        });
+    }
+
+    /**
+     * Wraps a request into a Single, which sends it on every subscription (so that a retry really repeats
+     * the request) and signals the response from the thread which completes the future, without blocking.
+     */
+    static <T> Single<T> toSingle(final Supplier<CompletableFuture<T>> request) {
+        return Single.create(emitter -> {
+            final CompletableFuture<T> future = request.get();
+            emitter.setCancellable(() -> future.cancel(false));
+            future.whenComplete((value, error) -> {
+                if (error != null) {
+                    emitter.onError(error instanceof CompletionException ? error.getCause() : error);
+                } else {
+                    emitter.onSuccess(value);
+                }
+            });
+        });
+    }
+
+    /**
+     * Returns the predicate for {@link Single#retry(BiPredicate)} which retries a failed request up to the given
+     * number of times (like {@link Single#retry(long)}) and counts the retries of the endpoint.
+     */
+    BiPredicate<Integer, Throwable> retries(final String endpoint, final int times) {
+        return (attempt, error) -> {
+            if (attempt > times) {
+                return false;
+            }
+            count("http." + endpoint + ".retries");
+            return true;
+        };
+    }
+
+    /**
+     * Closes the http client and the scheduler. The cache may be shared, so it is closed by its owner.
+     */
+    public void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+        client.close();
+    }
+
+    /**
+     * Sends the request once the rate limit allows it. A request which is rejected with a 429 is built and
+     * sent again, when the scheduler grants the next token.
+     */
+    private CompletableFuture<HttpResult> execute(final String endpoint, final String url,
+                                                  final Supplier<BoundRequestBuilder> request) {
+        if (scheduler == null) {
+            return send(endpoint, request);
+        }
+        final String rateLimitEndpoint = getEndpoint(url);
+        return scheduler.acquire(rateLimitEndpoint)
+                .thenCompose(permit -> send(endpoint, request))
+                .whenComplete((result, error) -> scheduler.onResponse(rateLimitEndpoint, result))
+                .thenCompose(result -> result.getStatusCode() == TOO_MANY_REQUESTS
+                        ? execute(endpoint, url, request)
+                        : CompletableFuture.completedFuture(result));
+    }
+
+    /**
+     * Sends the request once the concurrency controller allows it and reports the outcome back to it.
+     */
+    private CompletableFuture<HttpResult> send(final String endpoint, final Supplier<BoundRequestBuilder> request) {
+        if (controller == null) {
+            return sendNow(endpoint, request);
+        }
+        return controller.acquire().thenCompose(permit -> {
+            final long start = System.nanoTime();
+            return sendNow(endpoint, request)
+                    .whenComplete((result, error) -> controller.release(result, System.nanoTime() - start));
+        });
+    }
+
+    private CompletableFuture<HttpResult> sendNow(final String endpoint, final Supplier<BoundRequestBuilder> request) {
+        final long start = System.nanoTime();
+        // building the request inside of the chain, so that a failure still releases the permit
+        return CompletableFuture.completedFuture(request)
+                .thenCompose(builder -> builder.get().execute().toCompletableFuture())
+                .thenApply(HttpResult::of)
+                .whenComplete((result, error) -> {
+                    if (metrics != null) {
+                        metrics.increment("http.requests");
+                        metrics.record("http." + endpoint + ".latencyMicros",
+                                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                        metrics.increment("http." + endpoint + ".status."
+                                + (result == null ? "failed" : String.valueOf(result.getStatusCode())));
+                    }
+                });
+    }
+
+    private void count(final String name) {
+        if (metrics != null) {
+            metrics.increment(name);
+        }
+    }
+
+    /**
+     * The rate limits are per endpoint, i.e. the url without its query.
+     */
+    private static String getEndpoint(final String url) {
+        final int query = url.indexOf('?');
+        return query < 0 ? url : url.substring(0, query);
+    }
+
+    @Nullable
+    private ResponseCache.CachedResponse lookup(final String url) {
+        if (cache == null) {
+            return null;
+        }
+        try {
+            return cache.get(url);
+        } catch (IOException e) {
+            LOG.warn("Could not read {} from the response cache.", url, e);
+            return null;
+        }
+    }
+
+    private void renew(final String url) {
+        if (cache == null) {
+            return;
+        }
+        try {
+            cache.renew(url);
+        } catch (IOException e) {
+            LOG.warn("Could not renew {} in the response cache.", url, e);
+        }
+    }
+
+    private void store(final String url, @Nullable final String etag, final byte[] body) {
+        if (cache == null) {
+            return;
+        }
+        try {
+            cache.put(url, etag, body);
+        } catch (IOException e) {
+            LOG.warn("Could not write {} to the response cache.", url, e);
+        }
+    }
+}
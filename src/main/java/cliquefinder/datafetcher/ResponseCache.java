@@ -0,0 +1,264 @@
+package cliquefinder.datafetcher;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * A persistent cache of successful GET responses, keyed by url, so that a daily run does not have to
+ * download the data of users which did not change.
+ *
+ * The cache is a single append-only file of records (url, etag, time of storage, body). Only the index
+ * (url to position of the latest record) is kept in memory, the bodies are read from the file on demand.
+ * An entry is fresh for the configured time to live. A stale entry is revalidated with If-None-Match by
+ * {@link RequestExecutor}: a 304 appends a record without a body (a body length of -1), which only renews
+ * the time of storage of the url's latest body, a 200 replaces the entry. If more than half of the file
+ * are outdated records (or renewals) when the cache is opened, the file is compacted.
+ * A record which was only partly written (e.g. the process was killed) is cut off when the cache is opened.
+ * Created by qr4 on 17.08.17.
+ */
+@ParametersAreNonnullByDefault
+public class ResponseCache implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCache.class);
+
+    // compacting tiny files is not worth it
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+    // the body length of a record which renews the previous body of its url
+    private static final int RENEWAL = -1;
+
+    private final Path file;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<String, Entry> index = new HashMap<>();
+    private FileChannel channel;
+    private long liveBytes = 0;
+
+    public ResponseCache(final Path file, final long ttlMillis) throws IOException {
+        this(file, ttlMillis, System::currentTimeMillis);
+    }
+
+    ResponseCache(final Path file, final long ttlMillis, final LongSupplier clock) throws IOException {
+        this.file = file;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        load();
+        final long size = channel.size();
+        if (size - liveBytes > liveBytes && size > MIN_COMPACTION_BYTES) {
+            compact();
+        }
+        LOG.info("Opened the response cache {} with {} entries.", file, index.size());
+    }
+
+    /**
+     * Returns the cached response for the url, or null if there is none (fresh or stale).
+     */
+    @Nullable
+    synchronized CachedResponse get(final String url) throws IOException {
+        final Entry entry = index.get(url);
+        if (entry == null) {
+            return null;
+        }
+        final ByteBuffer body = ByteBuffer.allocate(entry.bodyLength);
+        long position = entry.bodyOffset;
+        while (body.hasRemaining()) {
+            final int read = channel.read(body, position);
+            if (read < 0) {
+                throw new EOFException("The response cache " + file + " was truncated.");
+            }
+            position += read;
+        }
+        final boolean fresh = clock.getAsLong() - entry.storedAt < ttlMillis;
+        return new CachedResponse(entry.etag.isEmpty() ? null : entry.etag, body.array(), fresh);
+    }
+
+    /**
+     * Stores the body of a successful response. The etag may be null, then the entry can not be revalidated.
+     */
+    synchronized void put(final String url, @Nullable final String etag, final byte[] body) throws IOException {
+        final long storedAt = clock.getAsLong();
+        final Entry entry = append(channel, url, etag == null ? "" : etag, storedAt, body);
+        final Entry previous = index.put(url, entry);
+        liveBytes += entry.recordLength - (previous == null ? 0 : previous.recordLength);
+    }
+
+    /**
+     * Renews the time of storage of the cached response after the server confirmed (with a 304) that it did
+     * not change. Only the url and the time are appended, not the body again. Does nothing for unknown urls.
+     */
+    synchronized void renew(final String url) throws IOException {
+        final Entry entry = index.get(url);
+        if (entry == null) {
+            return;
+        }
+        final long storedAt = clock.getAsLong();
+        writeRecord(channel, url, entry.etag, storedAt, RENEWAL, new byte[0]);
+        index.put(url, entry.renewedAt(storedAt));
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private static Entry append(final FileChannel target, final String url, final String etag,
+                                final long storedAt, final byte[] body) throws IOException {
+        return writeRecord(target, url, etag, storedAt, body.length, body);
+    }
+
+    private static Entry writeRecord(final FileChannel target, final String url, final String etag,
+                                     final long storedAt, final int bodyLength, final byte[] body)
+            throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + url.length() + 64);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(url);
+        out.writeUTF(etag);
+        out.writeLong(storedAt);
+        out.writeInt(bodyLength);
+        final int headerLength = out.size();
+        out.write(body);
+        out.flush();
+
+        final long recordStart = target.size();
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        long position = recordStart;
+        while (buffer.hasRemaining()) {
+            position += target.write(buffer, position);
+        }
+        return new Entry(etag, storedAt, recordStart + headerLength, body.length, buffer.capacity());
+    }
+
+    private void load() throws IOException {
+        channel.position(0);
+        final CountingInputStream counter = new CountingInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel)));
+        final DataInputStream in = new DataInputStream(counter);
+        long validLength = 0;
+        try {
+            while (true) {
+                final String url = in.readUTF();
+                final String etag = in.readUTF();
+                final long storedAt = in.readLong();
+                final int bodyLength = in.readInt();
+                if (bodyLength == RENEWAL) {
+                    // a renewal does not count as live, it is dropped when the file is compacted
+                    index.computeIfPresent(url, (u, previous) -> previous.renewedAt(storedAt));
+                    validLength = counter.getCount();
+                    continue;
+                }
+                final long bodyOffset = counter.getCount();
+                ByteStreams.skipFully(in, bodyLength);
+                final int recordLength = (int) (counter.getCount() - validLength);
+                final Entry previous = index.put(url, new Entry(etag, storedAt, bodyOffset, bodyLength, recordLength));
+                liveBytes += recordLength - (previous == null ? 0 : previous.recordLength);
+                validLength = counter.getCount();
+            }
+        } catch (EOFException e) {
+            if (validLength < channel.size()) {
+                LOG.warn("Dropping a partly written record at the end of the response cache {}.", file);
+                channel.truncate(validLength);
+            }
+        }
+    }
+
+    /**
+     * Copies the latest record of every url into a new file, which then replaces the old one.
+     */
+    private void compact() throws IOException {
+        final Path compacted = file.resolveSibling(file.getFileName() + ".compacting");
+        final Map<String, Entry> compactedIndex = new HashMap<>();
+        long compactedBytes = 0;
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (final Map.Entry<String, Entry> entry : index.entrySet()) {
+                final Entry old = entry.getValue();
+                final Entry copy = append(target, entry.getKey(), old.etag, old.storedAt,
+                        get(entry.getKey()).getBody());
+                compactedIndex.put(entry.getKey(), copy);
+                compactedBytes += copy.recordLength;
+            }
+            target.force(true);
+        }
+        channel.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index.clear();
+        index.putAll(compactedIndex);
+        liveBytes = compactedBytes;
+    }
+
+    /**
+     * A cached body together with its etag (or null) and whether it is still within the time to live.
+     */
+    static class CachedResponse {
+        private final String etag;
+        private final byte[] body;
+        private final boolean fresh;
+
+        private CachedResponse(@Nullable final String etag, final byte[] body, final boolean fresh) {
+            this.etag = etag;
+            this.body = body;
+            this.fresh = fresh;
+        }
+
+        @Nullable
+        String getEtag() {
+            return etag;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+
+        boolean isFresh() {
+            return fresh;
+        }
+    }
+
+    private static class Entry {
+        private final String etag;
+        private final long storedAt;
+        private final long bodyOffset;
+        private final int bodyLength;
+        private final int recordLength;
+
+        private Entry(final String etag, final long storedAt, final long bodyOffset,
+                      final int bodyLength, final int recordLength) {
+            this.etag = etag;
+            this.storedAt = storedAt;
+            this.bodyOffset = bodyOffset;
+            this.bodyLength = bodyLength;
+            this.recordLength = recordLength;
+        }
+
+        private Entry renewedAt(final long renewedAt) {
+            return new Entry(etag, renewedAt, bodyOffset, bodyLength, recordLength);
+        }
+    }
+}
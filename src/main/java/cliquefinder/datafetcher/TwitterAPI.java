@@ -1,20 +1,17 @@
 package cliquefinder.datafetcher;
 
 import cliquefinder.model.TwitterAccount;
+import cliquefinder.model.TwitterUser;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Streams;
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
+import io.reactivex.processors.UnicastProcessor;
 import javafx.util.Pair;
-import org.asynchttpclient.AsyncHttpClient;
-import org.asynchttpclient.DefaultAsyncHttpClient;
-import org.asynchttpclient.ListenableFuture;
-import org.asynchttpclient.Response;
 import org.asynchttpclient.util.HttpConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,36 +31,62 @@ import java.util.stream.Collectors;
 public class TwitterAPI {
     private static final Logger LOG = LoggerFactory.getLogger(TwitterAPI.class);
 
-    private static final Gson gson = new Gson();
     private static final JsonParser parser = new JsonParser();
     private static final String BEARER_CODE = System.getenv("BEARER_CODE");
+    private static final int SERVER_ERROR = 500;
+    // the labels of the requests in the metrics
+    private static final String LOOKUP = "twitter.lookup";
+    private static final String FOLLOWERS = "twitter.followers";
+    private static final String FRIENDS = "twitter.friends";
+    private static final String FRIENDSHIPS = "twitter.friendships";
 
     private final String baseUrl;
-    private final AsyncHttpClient client;
+    private final RequestExecutor executor;
 
     public TwitterAPI(String baseUrl) {
+        this(baseUrl, new RequestExecutor(null, new RateLimitScheduler()));
+    }
+
+    public TwitterAPI(final String baseUrl, final RequestExecutor executor) {
         this.baseUrl = baseUrl;
-        client = new DefaultAsyncHttpClient();
+        this.executor = executor;
     }
 
-    private List<Pair<String,String>> parseUserData(final JsonArray jsonUsers) {
+    private List<TwitterUser> parseUserData(final JsonArray jsonUsers) {
         return Streams.stream(jsonUsers).map(jsonElement -> {
             final JsonObject user = jsonElement.getAsJsonObject();
-            return new Pair<>(user.get("screen_name").getAsString(), user.get("id_str").getAsString());
+            return new TwitterUser(user.get("id_str").getAsLong(), user.get("screen_name").getAsString(),
+                    getCount(user, "followers_count"), getCount(user, "friends_count"));
         }).collect(Collectors.toList());
     }
 
+    private static int getCount(final JsonObject user, final String field) {
+        return user.has(field) ? user.get(field).getAsInt() : 0;
+    }
+
     public List<Flowable<Pair<String, String>>> fetchIdsForNames(final Set<String> names) {
+        return fetchUsersForNames(names).stream()
+                .map(users -> users.map(user -> new Pair<>(user.getName(), String.valueOf(user.getId()))))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Looks up the users in batches of 100 names, including their follower and friend counts.
+     */
+    public List<Flowable<TwitterUser>> fetchUsersForNames(final Set<String> names) {
         return Lists.partition(names.stream().collect(Collectors.toList()), 100)
                 .stream()
                 .map(nameBatch -> String.join(",", nameBatch))
                 .map(nameBatchStr ->
-                        Flowable.fromFuture(client.preparePost(getUrlForLookupRequest(nameBatchStr)).execute()).retry( 5 )
+                        RequestExecutor.toSingle(() -> executor.post(LOOKUP, getUrlForLookupRequest(nameBatchStr),
+                                ImmutableMap.of()))
+                                .retry(executor.retries(LOOKUP, 5))
+                                .toFlowable()
                                 .flatMap(response -> {
                                     if (response.getStatusCode() != HttpConstants.ResponseStatusCodes.OK_200) {
                                         LOG.error("Could not fetch ids for names: '{}'. Got Error: {} {}",
                                                 nameBatchStr, response.getStatusCode(), response.getStatusText());
-                                        return Flowable.fromIterable(ImmutableList.of());
+                                        return Flowable.fromIterable(ImmutableList.<TwitterUser>of());
                                     }
 
                                     final JsonArray users = parser.parse(response.getResponseBody()).getAsJsonArray();
@@ -73,47 +96,109 @@ public class TwitterAPI {
     }
 
     public List<Flowable<TwitterAccount>> fetchFollowersForNames(final Set<String> names) {
-        return names.stream().map(
-                name -> Flowable.<TwitterAccount>create(emitter -> {
-                    try {
-                        long cursor = -1;
-                        while (cursor != 0) {
-                            final String url = getUrlForFollowersRequest(name, cursor);
-                            final ListenableFuture<Response> future = client.prepareGet( url )
-                                    .setHeader("Authorization", "Bearer " + BEARER_CODE)
-                                    .execute();
-
-                            final Response response = future.toCompletableFuture().get();
+        return names.stream().map(name -> fetchIdPages(name, "/followers/ids.json", FOLLOWERS))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Fetches the ids of the accounts the users follow. The ids of the returned accounts are friends,
+     * not followers.
+     */
+    public List<Flowable<TwitterAccount>> fetchFriendsForNames(final Set<String> names) {
+        return names.stream().map(name -> fetchIdPages(name, "/friends/ids.json", FRIENDS))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Checks for every pair whether the two users follow each other (one friendships/show request per pair)
+     * and emits the pairs for which they do.
+     */
+    public List<Flowable<Pair<String, String>>> fetchMutualFollows(final List<Pair<String, String>> pairs) {
+        return pairs.stream().map(pair ->
+                RequestExecutor.toSingle(() -> executor.get(FRIENDSHIPS,
+                        getUrlForFriendshipRequest(pair.getKey(), pair.getValue()),
+                        ImmutableMap.of("Authorization", "Bearer " + BEARER_CODE)))
+                        .retry(executor.retries(FRIENDSHIPS, 5))
+                        .toFlowable()
+                        .flatMap(response -> {
                             if (response.getStatusCode() != HttpConstants.ResponseStatusCodes.OK_200) {
-                                // Log error and ignore this request.
-                                LOG.error("Could not fetch twitter follower ids ids for name: '{}'. Got Error: {} {}",
-                                        name, response.getStatusCode(), response.getStatusText());
-                                break;
+                                LOG.error("Could not fetch the friendship of '{}' and '{}'. Got Error: {} {}",
+                                        pair.getKey(), pair.getValue(), response.getStatusCode(), response.getStatusText());
+                                return Flowable.<Pair<String, String>>empty();
                             }
-                            final JsonObject tree = parser.parse(response.getResponseBody()).getAsJsonObject();
-                            final JsonArray users = tree.getAsJsonArray("ids");
-                            final String[] followersIds = gson.fromJson(users.toString(), String[].class);
-
-                            emitter.onNext(new TwitterAccount(name, followersIds));
-                            cursor = tree.get("next_cursor").getAsLong();
-                        }
-                        emitter.onComplete();
-                    } catch (Exception e) {
-                        emitter.onError(e);
-                    }
-                }, BackpressureStrategy.BUFFER).cache()).collect(Collectors.toList());
+                            final JsonObject source = parser.parse(response.getResponseBody()).getAsJsonObject()
+                                    .getAsJsonObject("relationship").getAsJsonObject("source");
+                            return source.get("following").getAsBoolean() && source.get("followed_by").getAsBoolean()
+                                    ? Flowable.just(pair)
+                                    : Flowable.<Pair<String, String>>empty();
+                        }))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Fetches the id pages of one name without blocking a thread: the cursors are fed back into the
+     * flowable and every page is requested when the previous one completed. As concatMap only subscribes to
+     * the next page once the previous one was emitted, we are at most one page ahead of the subscriber.
+     *
+     * A server error is retried like a failed request. If the first page is refused otherwise (e.g. the account
+     * is protected or gone), the name has no ids. Any other failure is an error of the flowable, since the ids
+     * would be cut short.
+     */
+    private Flowable<TwitterAccount> fetchIdPages(final String name, final String path, final String endpoint) {
+        return Flowable.defer(() -> {
+            final UnicastProcessor<Long> cursors = UnicastProcessor.create();
+            cursors.onNext(-1L);
+            return cursors.concatMap(cursor ->
+                    RequestExecutor.toSingle(() -> executor.get(endpoint, getUrlForIdsRequest(path, name, cursor),
+                            ImmutableMap.of("Authorization", "Bearer " + BEARER_CODE)))
+                            .map(response -> {
+                                if (response.getStatusCode() >= SERVER_ERROR) {
+                                    throw new IOException("Fetching the ids from " + path + " for '" + name
+                                            + "' failed with " + response.getStatusCode());
+                                }
+                                return response;
+                            })
+                            .retry(executor.retries(endpoint, 5))
+                            .toFlowable()
+                            .flatMap(response -> {
+                                if (response.getStatusCode() != HttpConstants.ResponseStatusCodes.OK_200) {
+                                    LOG.error("Could not fetch twitter ids from {} for name: '{}'. Got Error: {} {}",
+                                            path, name, response.getStatusCode(), response.getStatusText());
+                                    if (cursor == -1L) {
+                                        cursors.onComplete();
+                                    } else {
+                                        cursors.onError(new IOException("The ids from " + path + " for '" + name
+                                                + "' broke off after cursor " + cursor + "."));
+                                    }
+                                    return Flowable.<TwitterAccount>empty();
+                                }
+                                final FollowerIdsPage page = FollowerIdsPage.parse(response.getResponseBodyAsBytes());
+                                if (page.getNextCursor() == 0) {
+                                    cursors.onComplete();
+                                } else {
+                                    cursors.onNext(page.getNextCursor());
+                                }
+                                return Flowable.just(new TwitterAccount(name, page.getIds()));
+                            }));
+        });
     }
 
     public void close() throws IOException {
-        client.close();
+        executor.close();
     }
 
-    private String getUrlForFollowersRequest(final String name, final long cursor) {
-        return baseUrl + "/followers/ids.json?" +
+    private String getUrlForIdsRequest(final String path, final String name, final long cursor) {
+        return baseUrl + path + "?" +
                 "cursor=" + cursor +
                 "&screen_name=" + name;
     }
 
+    private String getUrlForFriendshipRequest(final String source, final String target) {
+        return baseUrl + "/friendships/show.json?" +
+                "source_screen_name=" + source +
+                "&target_screen_name=" + target;
+    }
+
     private String getUrlForLookupRequest(final String names) {
          return baseUrl + "/users/lookup.json?" + "screen_name=" + names;
     }
@@ -0,0 +1,132 @@
+package cliquefinder.metrics;
+
+import com.google.gson.GsonBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * The metrics of one run: counters, gauges (the last set value) and {@link Histogram}s, each identified by a
+ * dotted name like "http.twitter.followers.status.200". All of them are thread safe and created on first use,
+ * so the instrumented code never registers anything up front.
+ *
+ * At the end of a run the metrics are exported as one json document. While it runs, a progress line with a
+ * few chosen counters can be logged periodically.
+ * Created by qr4 on 27.08.17.
+ */
+@ParametersAreNonnullByDefault
+public class Metrics {
+    private static final Logger LOG = LoggerFactory.getLogger(Metrics.class);
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    public void increment(final String name) {
+        add(name, 1);
+    }
+
+    public void add(final String name, final long delta) {
+        counters.computeIfAbsent(name, n -> new LongAdder()).add(delta);
+    }
+
+    public void set(final String name, final long value) {
+        gauges.computeIfAbsent(name, n -> new AtomicLong()).set(value);
+    }
+
+    /**
+     * Sets the gauge to the value, if that is larger than its current value.
+     */
+    public void max(final String name, final long value) {
+        gauges.computeIfAbsent(name, n -> new AtomicLong(Long.MIN_VALUE)).accumulateAndGet(value, Math::max);
+    }
+
+    public void record(final String name, final long value) {
+        getHistogram(name).record(value);
+    }
+
+    /**
+     * Returns the value of the counter, 0 if it was never incremented.
+     */
+    public long getCount(final String name) {
+        final LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Returns the value of the gauge, 0 if it was never set.
+     */
+    public long getGauge(final String name) {
+        final AtomicLong gauge = gauges.get(name);
+        return gauge == null ? 0 : gauge.get();
+    }
+
+    public Histogram getHistogram(final String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * Returns all the metrics by their names, grouped into "counters", "gauges" and "histograms".
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        final Map<String, Map<String, Object>> snapshot = new LinkedHashMap<>();
+        snapshot.put("counters", new TreeMap<>(counters.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().sum()))));
+        snapshot.put("gauges", new TreeMap<>(gauges.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().get()))));
+        snapshot.put("histograms", new TreeMap<>(histograms.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().summarize()))));
+        return snapshot;
+    }
+
+    public String toJson() {
+        return new GsonBuilder().setPrettyPrinting().create().toJson(snapshot());
+    }
+
+    /**
+     * Writes the json to a temporary file next to the target and moves it into place, so that a reader never
+     * sees half a report.
+     */
+    public void writeJson(final Path file) throws IOException {
+        final Path absolute = file.toAbsolutePath();
+        if (absolute.getParent() != null) {
+            Files.createDirectories(absolute.getParent());
+        }
+        final Path tmp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        Files.write(tmp, toJson().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, absolute, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Logs the counters with the given names every period until the returned handle is closed.
+     */
+    public Closeable startProgressLog(final List<String> names, final long period, final TimeUnit unit) {
+        final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "metrics-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(() -> LOG.info("Progress: {}", names.stream()
+                .map(name -> name + "=" + getCount(name))
+                .collect(Collectors.joining(", "))), period, period, unit);
+        return timer::shutdownNow;
+    }
+}
@@ -9,9 +9,9 @@ import javax.annotation.ParametersAreNonnullByDefault;
 @ParametersAreNonnullByDefault
 public class TwitterAccount {
     private final String name;
-    private final String[] followersIds;
+    private final long[] followersIds;
 
-    public TwitterAccount(String name, String[] followersIds) {
+    public TwitterAccount(String name, long[] followersIds) {
         this.name = name;
         this.followersIds = followersIds;
     }
@@ -20,7 +20,7 @@ public class TwitterAccount {
         return name;
     }
 
-    public String[] getFollowersIds() {
+    public long[] getFollowersIds() {
         return followersIds;
     }
 }
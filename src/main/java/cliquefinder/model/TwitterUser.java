@@ -0,0 +1,40 @@
+package cliquefinder.model;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * A twitter user as returned by users/lookup: the id, the screen name and how many followers and friends
+ * (accounts the user follows) it has. The counts tell us how many pages a followers/ids or friends/ids
+ * request would take.
+ * Created by qr4 on 22.08.17.
+ */
+@ParametersAreNonnullByDefault
+public class TwitterUser {
+    private final long id;
+    private final String name;
+    private final int followersCount;
+    private final int friendsCount;
+
+    public TwitterUser(final long id, final String name, final int followersCount, final int friendsCount) {
+        this.id = id;
+        this.name = name;
+        this.followersCount = followersCount;
+        this.friendsCount = friendsCount;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getFollowersCount() {
+        return followersCount;
+    }
+
+    public int getFriendsCount() {
+        return friendsCount;
+    }
+}
@@ -0,0 +1,69 @@
+package cliquefinder.solver;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The same pivoted Bron-Kerbosch algorithm as {@link BronKerbosch}, but the input nodes are interned to
+ * dense int ids first, and P, X and the adjacency rows are represented as long[] bitsets. This way the
+ * recursion only consists of word-wise AND / ANDNOT operations on preallocated buffers instead of
+ * copying immutable sets on every call.
+ * Created by qr4 on 02.08.17.
+ */
+@ParametersAreNonnullByDefault
+public class BitSetBronKerbosch implements CliqueSolver {
+    private final CompactGraph graph;
+    private final PivotStrategy pivotStrategy;
+    private long recursionCalls;
+    private int maxDepth;
+    private SolverBudget.Completion completion = SolverBudget.Completion.COMPLETE;
+
+    public BitSetBronKerbosch(final Graph graph) {
+        this(graph.freeze(), PivotStrategy.TOMITA);
+    }
+
+    public BitSetBronKerbosch(final Graph graph, final PivotStrategy pivotStrategy) {
+        this(graph.freeze(), pivotStrategy);
+    }
+
+    public BitSetBronKerbosch(final CompactGraph graph, final PivotStrategy pivotStrategy) {
+        this.graph = graph;
+        this.pivotStrategy = pivotStrategy;
+    }
+
+    @Override
+    public void compute(final Set<Node> inputNodes, final SolverBudget budget, final Consumer<Clique> consumer) {
+        recursionCalls = 0;
+        maxDepth = 0;
+        completion = SolverBudget.Completion.COMPLETE;
+        final Set<Node> nodes = budget.getSearchNodes(graph, inputNodes);
+        // If no nodes are left, we have no maximal cliques.
+        if (nodes.isEmpty()) {
+            return;
+        }
+
+        final IndexedGraph indexedGraph = IndexedGraph.of(graph, nodes);
+        final BudgetTracker tracker = budget.start(consumer);
+        final BitSetEnumerator enumerator = new BitSetEnumerator(indexedGraph, pivotStrategy, tracker);
+        enumerator.enumerate(new int[0], 0, indexedGraph.allNodes(), new long[indexedGraph.words()]);
+        recursionCalls = enumerator.getRecursionCalls();
+        maxDepth = enumerator.getMaxDepth();
+        completion = tracker.getCompletion();
+    }
+
+    @Override
+    public long getRecursionCalls() {
+        return recursionCalls;
+    }
+
+    @Override
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public SolverBudget.Completion getCompletion() {
+        return completion;
+    }
+}
@@ -0,0 +1,145 @@
+package cliquefinder.solver;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The pivoted Bron-Kerbosch recursion on top of an {@link IndexedGraph}. P and X are bitsets, R is an int
+ * stack. The bitsets for every recursion depth are allocated once (the first time this depth is reached)
+ * and are reused afterwards, so the recursion itself only allocates when it reports a clique.
+ *
+ * Every recursive call is checked against the budget of the computation. Once it is used up, the recursion
+ * unwinds without branching any further. A branch is pruned as soon as |R| + |P| drops below the minimum
+ * clique size of the budget, as none of its cliques would be reported.
+ *
+ * An enumerator is stateful and must not be shared between threads.
+ * Created by qr4 on 02.08.17.
+ */
+@ParametersAreNonnullByDefault
+final class BitSetEnumerator {
+    private final IndexedGraph graph;
+    private final PivotStrategy pivotStrategy;
+    private final BudgetTracker budget;
+    private final int minCliqueSize;
+    private final int words;
+    private final int[] r;
+
+    // per depth: P, X and the candidates P \ N(pivot) we still have to branch on
+    private long[][] pBuffers = new long[0][];
+    private long[][] xBuffers = new long[0][];
+    private long[][] candidateBuffers = new long[0][];
+
+    private long recursionCalls = 0;
+    private int maxDepth = 0;
+
+    BitSetEnumerator(final IndexedGraph graph, final PivotStrategy pivotStrategy, final BudgetTracker budget) {
+        this.graph = graph;
+        this.pivotStrategy = pivotStrategy;
+        this.budget = budget;
+        this.minCliqueSize = budget.getMinCliqueSize();
+        this.words = graph.words();
+        this.r = new int[graph.size()];
+    }
+
+    /**
+     * Reports all maximal cliques which contain the nodes r[0, rSize), all of P and none of X.
+     * Neither p nor x are modified.
+     */
+    void enumerate(final int[] initialR, final int rSize, final long[] p, final long[] x) {
+        System.arraycopy(initialR, 0, r, 0, rSize);
+        ensureDepth(0);
+        BitSets.copy(p, pBuffers[0]);
+        BitSets.copy(x, xBuffers[0]);
+        recurse(0, rSize);
+    }
+
+    /**
+     * Returns the number of recursive calls of all the enumerations so far.
+     */
+    long getRecursionCalls() {
+        return recursionCalls;
+    }
+
+    /**
+     * Returns the largest R of all the recursive calls so far, including the nodes R started with.
+     */
+    int getMaxDepth() {
+        return maxDepth;
+    }
+
+    private void recurse(final int depth, final int rSize) {
+        recursionCalls++;
+        maxDepth = Math.max(maxDepth, rSize);
+        if (!budget.onCall()) {
+            return;
+        }
+        final long[] p = pBuffers[depth];
+        final long[] x = xBuffers[depth];
+        // R can at most grow by P, so a branch with |R| + |P| below the minimum clique size reports nothing
+        // (the other solvers prune the same way), P is only counted while R is too small
+        int reachable = rSize < minCliqueSize ? rSize + BitSets.cardinality(p) : Integer.MAX_VALUE;
+        if (reachable < minCliqueSize) {
+            return;
+        }
+
+        if (BitSets.isEmpty(p)) {
+            if (BitSets.isEmpty(x)) {
+                report(rSize);
+            }
+            return;
+        }
+
+        ensureDepth(depth + 1);
+        final long[] candidates = candidateBuffers[depth];
+        final long[] nextP = pBuffers[depth + 1];
+        final long[] nextX = xBuffers[depth + 1];
+
+        BitSets.andNot(p, graph.getAdjacencyRow(pivotStrategy.choosePivot(graph, p, x)), candidates);
+
+        for (int v = BitSets.nextSetBit(candidates, 0); v >= 0; v = BitSets.nextSetBit(candidates, v + 1)) {
+            final long[] neighbors = graph.getAdjacencyRow(v);
+            BitSets.and(p, neighbors, nextP);
+            BitSets.and(x, neighbors, nextX);
+            r[rSize] = v;
+            recurse(depth + 1, rSize + 1);
+            if (budget.isStopped()) {
+                return;
+            }
+
+            BitSets.clear(p, v);
+            BitSets.set(x, v);
+            // the remaining branches only have what is left of P
+            if (--reachable < minCliqueSize) {
+                return;
+            }
+        }
+    }
+
+    private void report(final int rSize) {
+        final List<Node> nodes = new ArrayList<>(rSize);
+        for (int i = 0; i < rSize; i++) {
+            nodes.add(graph.getNode(r[i]));
+        }
+        budget.report(new Clique(nodes));
+    }
+
+    private void ensureDepth(final int depth) {
+        if (depth < pBuffers.length) {
+            return;
+        }
+        final int length = Math.max(depth + 1, 2 * pBuffers.length);
+        pBuffers = grow(pBuffers, length);
+        xBuffers = grow(xBuffers, length);
+        candidateBuffers = grow(candidateBuffers, length);
+    }
+
+    private long[][] grow(final long[][] buffers, final int length) {
+        final long[][] grown = new long[length][];
+        System.arraycopy(buffers, 0, grown, 0, buffers.length);
+        for (int i = buffers.length; i < length; i++) {
+            grown[i] = new long[words];
+        }
+        return grown;
+    }
+}
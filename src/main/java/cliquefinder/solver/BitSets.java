@@ -0,0 +1,101 @@
+package cliquefinder.solver;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Static helpers for fixed-size bitsets which are stored as plain long arrays. All the binary operations
+ * write into a caller provided target array, so that the solvers can reuse their buffers and do not
+ * allocate while recursing.
+ * Created by qr4 on 02.08.17.
+ */
+@ParametersAreNonnullByDefault
+final class BitSets {
+    private BitSets() {
+    }
+
+    static int words(final int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    static void set(final long[] bits, final int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    static void clear(final long[] bits, final int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    static boolean get(final long[] bits, final int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    static boolean isEmpty(final long[] bits) {
+        for (final long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int cardinality(final long[] bits) {
+        int count = 0;
+        for (final long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Returns |a ⋂ b| without materializing the intersection.
+     */
+    static int intersectionSize(final long[] a, final long[] b) {
+        int count = 0;
+        for (int i = 0; i < a.length; i++) {
+            count += Long.bitCount(a[i] & b[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the index of the first set bit which is >= fromIndex, or -1 if there is none.
+     */
+    static int nextSetBit(final long[] bits, final int fromIndex) {
+        int wordIndex = fromIndex >>> 6;
+        if (wordIndex >= bits.length) {
+            return -1;
+        }
+        long word = bits[wordIndex] & (-1L << fromIndex);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == bits.length) {
+                return -1;
+            }
+            word = bits[wordIndex];
+        }
+    }
+
+    static void copy(final long[] source, final long[] target) {
+        System.arraycopy(source, 0, target, 0, source.length);
+    }
+
+    /**
+     * target := a ⋂ b
+     */
+    static void and(final long[] a, final long[] b, final long[] target) {
+        for (int i = 0; i < a.length; i++) {
+            target[i] = a[i] & b[i];
+        }
+    }
+
+    /**
+     * target := a \ b
+     */
+    static void andNot(final long[] a, final long[] b, final long[] target) {
+        for (int i = 0; i < a.length; i++) {
+            target[i] = a[i] & ~b[i];
+        }
+    }
+}
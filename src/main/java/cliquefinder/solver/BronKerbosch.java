@@ -6,6 +6,7 @@ import com.google.common.collect.Sets;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * This class implements the Bron-Kerbosch algorithm, which finds maximal cliques.
@@ -24,50 +25,84 @@ import java.util.Set;
  * Created by qr4 on 24.07.17.
  */
 @ParametersAreNonnullByDefault
-public class BronKerbosch {
+public class BronKerbosch implements CliqueSolver {
     private Graph graph;
+    private long recursionCalls;
+    private int maxDepth;
+    private SolverBudget.Completion completion = SolverBudget.Completion.COMPLETE;
 
     public BronKerbosch(final Graph graph) {
         this.graph = graph;
     }
 
-    public Set<Clique> compute(final Set<Node> nodes) {
-        // If the input nodes are empty, we have no maximal cliques.
+    @Override
+    public void compute(final Set<Node> inputNodes, final SolverBudget budget, final Consumer<Clique> consumer) {
+        recursionCalls = 0;
+        maxDepth = 0;
+        completion = SolverBudget.Completion.COMPLETE;
+        final Set<Node> nodes = budget.getSearchNodes(graph, inputNodes);
+        // If no nodes are left, we have no maximal cliques.
         if (nodes.isEmpty()) {
-            return ImmutableSet.of();
+            return;
         }
 
-        return recursionHelper(ImmutableSet.of(), ImmutableSet.copyOf(nodes), ImmutableSet.of());
+        final BudgetTracker tracker = budget.start(consumer);
+        recursionHelper(ImmutableSet.of(), ImmutableSet.copyOf(nodes), ImmutableSet.of(), tracker);
+        completion = tracker.getCompletion();
     }
 
-    private Set<Clique> recursionHelper(final ImmutableSet<Node> R,
-                                        final ImmutableSet<Node> P,
-                                        final ImmutableSet<Node> X) {
+    @Override
+    public long getRecursionCalls() {
+        return recursionCalls;
+    }
+
+    @Override
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public SolverBudget.Completion getCompletion() {
+        return completion;
+    }
+
+    private void recursionHelper(final ImmutableSet<Node> R,
+                                 final ImmutableSet<Node> P,
+                                 final ImmutableSet<Node> X,
+                                 final BudgetTracker tracker) {
+        recursionCalls++;
+        maxDepth = Math.max(maxDepth, R.size());
+        if (!tracker.onCall()) {
+            return;
+        }
+        if (R.size() + P.size() < tracker.getMinCliqueSize()) {
+            return;
+        }
         if (P.isEmpty()) {
             if (X.isEmpty()) {
-                return ImmutableSet.of(new Clique(R));
+                tracker.report(new Clique(R));
             }
-            return ImmutableSet.of();
+            return;
         }
 
-        ImmutableSet.Builder<Clique> resultBuilder = new ImmutableSet.Builder<>();
-
         final Node pivotNode = graph.getNodeWithMaxDegree(P);
 
         final Set<Node> recursionX = new HashSet<>(X);
         final Set<Node> recursionP = new HashSet<>(P);
 
         for (final Node node : Sets.difference(P, graph.getAdjacentNodes(pivotNode))) {
-            resultBuilder.addAll(recursionHelper(
+            recursionHelper(
                     ImmutableSet.<Node>builder().addAll(R).add(node).build(),
                     Sets.intersection(recursionP, graph.getAdjacentNodes(node)).immutableCopy(),
-                    Sets.intersection(recursionX, graph.getAdjacentNodes(node)).immutableCopy()
-            ));
+                    Sets.intersection(recursionX, graph.getAdjacentNodes(node)).immutableCopy(),
+                    tracker
+            );
+            if (tracker.isStopped()) {
+                return;
+            }
 
             recursionP.remove(node);
             recursionX.add(node);
         }
-
-        return resultBuilder.build();
     }
 }
@@ -0,0 +1,109 @@
+package cliquefinder.solver;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * The state of one computation with a {@link SolverBudget}: the recursive calls and the reported cliques so
+ * far, and why it was stopped (if it was). It is shared by the threads of a parallel computation, so every
+ * counter is atomic. The recursive calls are only counted if they or the time are limited, and the clock is
+ * only read every CLOCK_INTERVAL calls of the whole computation, so an unlimited budget costs a volatile read
+ * per call.
+ * Created by qr4 on 27.08.17.
+ */
+@ParametersAreNonnullByDefault
+final class BudgetTracker {
+    private static final int CLOCK_INTERVAL = 256;
+
+    private final SolverBudget budget;
+    private final Consumer<Clique> consumer;
+    private final long startNanos;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong cliques = new AtomicLong();
+    private final AtomicReference<SolverBudget.Completion> stop = new AtomicReference<>();
+    // a plain copy of stop, which the recursion reads on every call
+    private volatile boolean stopped = false;
+
+    BudgetTracker(final SolverBudget budget, final Consumer<Clique> consumer) {
+        this.budget = budget;
+        this.consumer = consumer;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Counts a recursive call. Returns false if the budget is used up and the recursion should unwind.
+     */
+    boolean onCall() {
+        if (stopped) {
+            return false;
+        }
+        if (budget.getMaxRecursionCalls() == Long.MAX_VALUE && budget.getTimeLimitNanos() == Long.MAX_VALUE) {
+            return true;
+        }
+        final long count = calls.incrementAndGet();
+        if (count > budget.getMaxRecursionCalls()) {
+            stop(SolverBudget.Completion.RECURSION_LIMIT);
+            return false;
+        }
+        return count % CLOCK_INTERVAL != 0 || checkTime();
+    }
+
+    /**
+     * Reads the clock, for the work between the recursive calls. Returns false if the budget is used up.
+     */
+    boolean checkTime() {
+        if (stopped) {
+            return false;
+        }
+        if (budget.getTimeLimitNanos() != Long.MAX_VALUE
+                && System.nanoTime() - startNanos > budget.getTimeLimitNanos()) {
+            stop(SolverBudget.Completion.TIME_LIMIT);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns true once the budget is used up.
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Passes the clique on, if it is large enough and the maximum number of cliques was not reported yet.
+     */
+    void report(final Clique clique) {
+        if (clique.getNodes().size() < budget.getMinCliqueSize()) {
+            return;
+        }
+        final long count = cliques.incrementAndGet();
+        if (count > budget.getMaxCliques()) {
+            return;
+        }
+        consumer.accept(clique);
+        if (count == budget.getMaxCliques()) {
+            stop(SolverBudget.Completion.CLIQUE_LIMIT);
+        }
+    }
+
+    /**
+     * Returns the minimum size of the reported cliques, the recursion prunes every branch which can not
+     * reach it.
+     */
+    int getMinCliqueSize() {
+        return budget.getMinCliqueSize();
+    }
+
+    SolverBudget.Completion getCompletion() {
+        final SolverBudget.Completion completion = stop.get();
+        return completion == null ? SolverBudget.Completion.COMPLETE : completion;
+    }
+
+    private void stop(final SolverBudget.Completion reason) {
+        stop.compareAndSet(null, reason);
+        stopped = true;
+    }
+}
@@ -3,7 +3,7 @@ package cliquefinder.solver;
 import com.google.common.collect.Sets;
 
 import javax.annotation.ParametersAreNonnullByDefault;
-import java.util.Set;
+import java.util.Collection;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -16,7 +16,7 @@ import java.util.TreeSet;
 public class Clique {
     private TreeSet<Node> nodes;
 
-    Clique(final Set<Node> nodes) {
+    public Clique(final Collection<Node> nodes) {
         this.nodes = new TreeSet<>(nodes);
     }
 
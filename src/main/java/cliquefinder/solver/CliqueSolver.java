@@ -0,0 +1,76 @@
+package cliquefinder.solver;
+
+import com.google.common.collect.ImmutableSet;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Common interface of our clique solvers, so that the caller can choose the algorithm / data structure
+ * without changing the way it consumes the result.
+ * Created by qr4 on 02.08.17.
+ */
+@ParametersAreNonnullByDefault
+public interface CliqueSolver {
+    /**
+     * Passes every clique of the subgraph which is induced by the given nodes to the consumer as soon as
+     * it is found. Nothing is collected, so the memory usage does not depend on the number of cliques.
+     */
+    default void compute(final Set<Node> nodes, final Consumer<Clique> consumer) {
+        compute(nodes, SolverBudget.unlimited(), consumer);
+    }
+
+    /**
+     * Like {@link #compute(Set, Consumer)}, but stops once the budget is used up. The cliques which were
+     * passed to the consumer until then are kept, {@link #getCompletion()} tells whether these were all.
+     */
+    void compute(final Set<Node> nodes, final SolverBudget budget, final Consumer<Clique> consumer);
+
+    /**
+     * Returns the cliques of the subgraph which is induced by the given nodes.
+     */
+    default Set<Clique> compute(final Set<Node> nodes) {
+        final ImmutableSet.Builder<Clique> resultBuilder = new ImmutableSet.Builder<>();
+        compute(nodes, resultBuilder::add);
+        return resultBuilder.build();
+    }
+
+    /**
+     * Returns a flowable which runs the solver on subscription and emits the cliques while they are found.
+     * The solver runs on the subscribing thread and can not be paused, so subscribers should consume the
+     * cliques right away (and not switch threads), otherwise they are buffered.
+     */
+    default Flowable<Clique> stream(final Set<Node> nodes) {
+        return stream(nodes, SolverBudget.unlimited());
+    }
+
+    /**
+     * Like {@link #stream(Set)}, with a budget for the computation.
+     */
+    default Flowable<Clique> stream(final Set<Node> nodes, final SolverBudget budget) {
+        return Flowable.create(emitter -> {
+            compute(nodes, budget, emitter::onNext);
+            emitter.onComplete();
+        }, BackpressureStrategy.BUFFER);
+    }
+
+    /**
+     * Returns the number of recursive calls of the last computation, which is a measure of the size of
+     * the search tree and does not depend on the machine.
+     */
+    long getRecursionCalls();
+
+    /**
+     * Returns the depth of the search tree of the last computation, i.e. the largest R of any recursive call
+     * (R starts empty, every branch adds one node). Like the recursion calls, it does not depend on the machine.
+     */
+    int getMaxDepth();
+
+    /**
+     * Returns whether the last computation was complete or which limit of its budget stopped it.
+     */
+    SolverBudget.Completion getCompletion();
+}
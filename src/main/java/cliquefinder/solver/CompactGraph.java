@@ -0,0 +1,332 @@
+package cliquefinder.solver;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An immutable graph in compressed sparse row (CSR) format: the nodes are numbered 0 ... n-1 in the order
+ * of their names and the neighbors of node v are neighbors[offsets[v] ... offsets[v + 1]), sorted by id.
+ * Compared to the HashMap of HashSets in {@link Graph} this needs 8 bytes per (undirected) edge and the
+ * rows are contiguous in memory. Because the rows are sorted, common neighbors can be found by merging.
+ *
+ * Besides the edges, the graph has groups: every group is a clique of its members (e.g. the members of a
+ * github organization), which is stored as the list of its members and, per node, the list of its groups.
+ * A group of k members takes 8k bytes instead of 4k(k - 1) for all its edges. The neighbors of a node are
+ * its explicit neighbors and the other members of its groups; an edge may be both explicit and part of
+ * a group, or part of several groups.
+ *
+ * It is created by freezing a {@link Graph} once all the edges are known, the solvers read this structure.
+ * The int arrays are accessed through {@link IntBuffer}s, so that they can either wrap heap arrays or
+ * point straight into a memory mapped {@link GraphSnapshot}.
+ * Created by qr4 on 14.08.17.
+ */
+@ParametersAreNonnullByDefault
+public class CompactGraph {
+    // rough object sizes on a 64 bit JVM with compressed oops, only used for reporting
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int NODE_BYTES = 16;
+    private static final int STRING_BYTES = 24 + ARRAY_HEADER_BYTES;
+
+    private final Node[] nodes;
+    private final IntRows adjacency;
+    // group -> its member nodes and node -> its groups, both sorted
+    private final IntRows groups;
+    private final IntRows memberships;
+
+    CompactGraph(final Node[] nodes, final int[] offsets, final int[] neighbors) {
+        this(nodes, new IntRows(offsets, neighbors), IntRows.empty(0), IntRows.empty(nodes.length));
+    }
+
+    CompactGraph(final Node[] nodes, final IntRows adjacency, final IntRows groups, final IntRows memberships) {
+        this.nodes = nodes;
+        this.adjacency = adjacency;
+        this.groups = groups;
+        this.memberships = memberships;
+    }
+
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    /**
+     * Returns the number of explicit undirected edges, the edges within the groups are not counted.
+     */
+    public long getEdgeCount() {
+        return adjacency.valueCount() / 2;
+    }
+
+    public int getGroupCount() {
+        return groups.rowCount();
+    }
+
+    /**
+     * Returns the sum of the sizes of all the groups.
+     */
+    public long getMembershipCount() {
+        return groups.valueCount();
+    }
+
+    public Node getNode(final int id) {
+        return nodes[id];
+    }
+
+    /**
+     * Returns the id of the node, or -1 if the node is not part of the graph.
+     */
+    public int getId(final Node node) {
+        final int id = Arrays.binarySearch(nodes, node);
+        return id >= 0 ? id : -1;
+    }
+
+    public int getDegree(final int id) {
+        return memberships.length(id) == 0 ? adjacency.length(id) : getNeighbors(id).length;
+    }
+
+    /**
+     * Returns the sorted ids of the neighbors of the given node: the explicit ones and the other members of
+     * its groups.
+     */
+    public int[] getNeighbors(final int id) {
+        if (memberships.length(id) == 0) {
+            return adjacency.row(id);
+        }
+        int size = adjacency.length(id);
+        for (int g = memberships.start(id); g < memberships.end(id); g++) {
+            size += groups.length(memberships.value(g));
+        }
+        final int[] all = new int[size];
+        int count = 0;
+        for (int i = adjacency.start(id); i < adjacency.end(id); i++) {
+            all[count++] = adjacency.value(i);
+        }
+        for (int g = memberships.start(id); g < memberships.end(id); g++) {
+            final int group = memberships.value(g);
+            for (int i = groups.start(group); i < groups.end(group); i++) {
+                all[count++] = groups.value(i);
+            }
+        }
+        Arrays.sort(all);
+
+        int unique = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (all[i] != id && (unique == 0 || all[i] != all[unique - 1])) {
+                all[unique++] = all[i];
+            }
+        }
+        return Arrays.copyOf(all, unique);
+    }
+
+    /**
+     * Returns a copy of the sorted member ids of the given group.
+     */
+    int[] getGroupMembers(final int group) {
+        return groups.row(group);
+    }
+
+    /**
+     * Sets the bits of all the neighbors whose id is mapped to a non-negative index.
+     */
+    void setNeighborBits(final int id, final int[] idToIndex, final long[] bits) {
+        for (int i = adjacency.start(id); i < adjacency.end(id); i++) {
+            final int index = idToIndex[adjacency.value(i)];
+            if (index >= 0) {
+                BitSets.set(bits, index);
+            }
+        }
+        if (memberships.length(id) == 0) {
+            return;
+        }
+        for (int g = memberships.start(id); g < memberships.end(id); g++) {
+            final int group = memberships.value(g);
+            for (int i = groups.start(group); i < groups.end(group); i++) {
+                final int index = idToIndex[groups.value(i)];
+                if (index >= 0) {
+                    BitSets.set(bits, index);
+                }
+            }
+        }
+        // the node is a member of its own groups
+        if (idToIndex[id] >= 0) {
+            BitSets.clear(bits, idToIndex[id]);
+        }
+    }
+
+    public boolean isAdjacent(final int u, final int v) {
+        return adjacency.contains(u, v) || (u != v && memberships.countCommon(u, v) > 0);
+    }
+
+    /**
+     * Returns the number of common neighbors of u and v by merging their sorted rows.
+     */
+    public int countCommonNeighbors(final int u, final int v) {
+        if (memberships.length(u) == 0 && memberships.length(v) == 0) {
+            return adjacency.countCommon(u, v);
+        }
+        final int[] uNeighbors = getNeighbors(u);
+        final int[] vNeighbors = getNeighbors(v);
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < uNeighbors.length && j < vNeighbors.length) {
+            if (uNeighbors[i] < vNeighbors[j]) {
+                i++;
+            } else if (uNeighbors[i] > vNeighbors[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the k-core of the subgraph induced by the given nodes: the nodes which are left after repeatedly
+     * removing every node with less than k neighbors in the subgraph (input nodes without any edge are removed
+     * first). A clique with more than k nodes lies within the k-core, and it is maximal there if and only if it
+     * is maximal in the whole subgraph, so the solvers enumerate large cliques on the core alone.
+     */
+    Set<Node> getCore(final Set<Node> nodes, final int k) {
+        final boolean[] present = new boolean[this.nodes.length];
+        final int[] ids = nodes.stream().mapToInt(this::getId).filter(id -> id >= 0).toArray();
+        for (final int id : ids) {
+            present[id] = true;
+        }
+
+        // the nodes with too few neighbors are removed from present as soon as they are queued
+        final int[] degrees = new int[this.nodes.length];
+        final int[] queue = new int[ids.length];
+        final int[] neighbors = new int[ids.length];
+        final boolean[] marked = new boolean[this.nodes.length];
+        int tail = 0;
+        for (final int id : ids) {
+            degrees[id] = getPresentNeighbors(id, present, marked, neighbors);
+        }
+        for (final int id : ids) {
+            if (degrees[id] < k) {
+                present[id] = false;
+                queue[tail++] = id;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            final int count = getPresentNeighbors(queue[head], present, marked, neighbors);
+            for (int i = 0; i < count; i++) {
+                if (--degrees[neighbors[i]] < k && present[neighbors[i]]) {
+                    present[neighbors[i]] = false;
+                    queue[tail++] = neighbors[i];
+                }
+            }
+        }
+
+        final Set<Node> core = new HashSet<>(2 * (ids.length - tail));
+        for (final int id : ids) {
+            if (present[id]) {
+                core.add(this.nodes[id]);
+            }
+        }
+        return core;
+    }
+
+    /**
+     * Writes the present neighbors of the node into result, each of them once, and returns their number. Like
+     * {@link #setNeighborBits}, it walks the rows instead of merging them. A node may share several groups
+     * with the node or also be an explicit neighbor, so these neighbors are marked while they are collected,
+     * and the marks are cleared again before returning.
+     */
+    private int getPresentNeighbors(final int id, final boolean[] present, final boolean[] marked,
+                                    final int[] result) {
+        int size = 0;
+        if (memberships.length(id) == 0) {
+            for (int i = adjacency.start(id); i < adjacency.end(id); i++) {
+                if (present[adjacency.value(i)]) {
+                    result[size++] = adjacency.value(i);
+                }
+            }
+            return size;
+        }
+        // the node is a member of its own groups
+        marked[id] = true;
+        for (int i = adjacency.start(id); i < adjacency.end(id); i++) {
+            final int neighbor = adjacency.value(i);
+            if (present[neighbor] && !marked[neighbor]) {
+                marked[neighbor] = true;
+                result[size++] = neighbor;
+            }
+        }
+        for (int g = memberships.start(id); g < memberships.end(id); g++) {
+            final int group = memberships.value(g);
+            for (int i = groups.start(group); i < groups.end(group); i++) {
+                final int neighbor = groups.value(i);
+                if (present[neighbor] && !marked[neighbor]) {
+                    marked[neighbor] = true;
+                    result[size++] = neighbor;
+                }
+            }
+        }
+        marked[id] = false;
+        for (int i = 0; i < size; i++) {
+            marked[result[i]] = false;
+        }
+        return size;
+    }
+
+    /**
+     * Converts this graph back into the mutable {@link Graph}, which the set based {@link BronKerbosch} needs.
+     * The groups are expanded into all their edges.
+     */
+    public Graph toGraph() {
+        final Graph graph = new Graph();
+        for (int u = 0; u < nodes.length; u++) {
+            for (int i = adjacency.start(u); i < adjacency.end(u); i++) {
+                if (u < adjacency.value(i)) {
+                    graph.addEdge(nodes[u], nodes[adjacency.value(i)]);
+                }
+            }
+        }
+        for (int group = 0; group < groups.rowCount(); group++) {
+            for (int i = groups.start(group); i < groups.end(group); i++) {
+                for (int j = i + 1; j < groups.end(group); j++) {
+                    graph.addEdge(nodes[groups.value(i)], nodes[groups.value(j)]);
+                }
+            }
+        }
+        return graph;
+    }
+
+    IntRows adjacency() {
+        return adjacency;
+    }
+
+    IntRows groups() {
+        return groups;
+    }
+
+    IntRows memberships() {
+        return memberships;
+    }
+
+    /**
+     * Returns an estimate of the size of this graph in bytes: the CSR arrays and the name table. The arrays of
+     * a mapped snapshot are part of the page cache instead of the heap, they are counted all the same.
+     */
+    public long estimateMemoryFootprint() {
+        long bytes = 6L * ARRAY_HEADER_BYTES + adjacency.bytes() + groups.bytes() + memberships.bytes();
+        bytes += ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * nodes.length;
+        for (final Node node : nodes) {
+            bytes += NODE_BYTES + STRING_BYTES + node.getName().length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the estimated memory footprint divided by the number of explicit undirected edges.
+     */
+    public double getBytesPerEdge() {
+        return getEdgeCount() == 0 ? 0 : (double) estimateMemoryFootprint() / getEdgeCount();
+    }
+}
@@ -0,0 +1,221 @@
+package cliquefinder.solver;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread safe builder for a {@link CompactGraph}, so that several fetchers can add edges at the same time.
+ *
+ * Every name is interned once to a primitive id and its adjacency is an int array which grows on demand.
+ * Appending to an adjacency list locks one of a fixed number of stripes (chosen by the id), so writers only
+ * block each other if they touch nodes of the same stripe. Duplicate edges are allowed while building and
+ * are removed when the graph is frozen.
+ *
+ * Nodes which share a group (e.g. a github organization) are adjacent without adding their edges: a group
+ * only keeps the ids of its members, see {@link CompactGraph}.
+ * Created by qr4 on 16.08.17.
+ */
+@ParametersAreNonnullByDefault
+public class ConcurrentGraphBuilder {
+    private static final int STRIPES = 64;
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final ConcurrentHashMap<String, Vertex> vertices = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Group> groups = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final Object[] locks = new Object[STRIPES];
+
+    public ConcurrentGraphBuilder() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public void addEdge(final String name1, final String name2) {
+        // dont allow self-loops
+        if (name1.equals(name2)) return;
+
+        final Vertex v1 = intern(name1);
+        final Vertex v2 = intern(name2);
+        append(v1, v2.id);
+        append(v2, v1.id);
+    }
+
+    /**
+     * Adds the node to the group, so that it is adjacent to all the other members of the group.
+     */
+    public void addGroupMember(final String group, final String name) {
+        final Vertex vertex = intern(name);
+        groups.computeIfAbsent(group, g -> new Group()).add(vertex.id);
+    }
+
+    public int getNodeCount() {
+        return vertices.size();
+    }
+
+    /**
+     * Creates the CSR graph from the edges added so far. Call this once all the writers are done: it does
+     * not fail on concurrent writes, but an edge which is added meanwhile may only show up in one direction.
+     */
+    public CompactGraph freeze() {
+        // The CSR graph numbers the nodes in the order of their names, our ids are in insertion order.
+        final Vertex[] byName = vertices.values().stream()
+                .sorted(Comparator.comparing(vertex -> vertex.node))
+                .toArray(Vertex[]::new);
+        final int[] idToCompactId = new int[nextId.get()];
+        Arrays.fill(idToCompactId, -1);
+        for (int i = 0; i < byName.length; i++) {
+            idToCompactId[byName[i].id] = i;
+        }
+
+        final int[][] rows = new int[byName.length][];
+        final int[] offsets = new int[byName.length + 1];
+        for (int i = 0; i < byName.length; i++) {
+            rows[i] = sortedUniqueRow(byName[i], idToCompactId);
+            offsets[i + 1] = offsets[i] + rows[i].length;
+        }
+
+        final int[] neighbors = new int[offsets[byName.length]];
+        for (int i = 0; i < byName.length; i++) {
+            System.arraycopy(rows[i], 0, neighbors, offsets[i], rows[i].length);
+        }
+        final IntRows groupRows = freezeGroups(idToCompactId);
+        return new CompactGraph(Arrays.stream(byName).map(vertex -> vertex.node).toArray(Node[]::new),
+                new IntRows(offsets, neighbors), groupRows, memberships(groupRows, byName.length));
+    }
+
+    /**
+     * Returns the members of the groups with at least two members, in the order of the group names.
+     */
+    private IntRows freezeGroups(final int[] idToCompactId) {
+        final List<int[]> members = new ArrayList<>();
+        groups.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    final int[] row = sortedUnique(entry.getValue().snapshot(), idToCompactId);
+                    // a single member has no one to be adjacent to
+                    if (row.length >= 2) {
+                        members.add(row);
+                    }
+                });
+
+        final int[] offsets = new int[members.size() + 1];
+        for (int g = 0; g < members.size(); g++) {
+            offsets[g + 1] = offsets[g] + members.get(g).length;
+        }
+        final int[] values = new int[offsets[members.size()]];
+        for (int g = 0; g < members.size(); g++) {
+            System.arraycopy(members.get(g), 0, values, offsets[g], members.get(g).length);
+        }
+        return new IntRows(offsets, values);
+    }
+
+    /**
+     * Inverts the groups into the (sorted) groups of every node.
+     */
+    private static IntRows memberships(final IntRows groupRows, final int nodeCount) {
+        final int[] offsets = new int[nodeCount + 1];
+        for (int i = 0; i < groupRows.valueCount(); i++) {
+            offsets[groupRows.value(i) + 1]++;
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        final int[] next = Arrays.copyOf(offsets, nodeCount);
+        final int[] values = new int[groupRows.valueCount()];
+        for (int g = 0; g < groupRows.rowCount(); g++) {
+            for (int i = groupRows.start(g); i < groupRows.end(g); i++) {
+                values[next[groupRows.value(i)]++] = g;
+            }
+        }
+        return new IntRows(offsets, values);
+    }
+
+    private Vertex intern(final String name) {
+        final Vertex vertex = vertices.get(name);
+        if (vertex != null) {
+            return vertex;
+        }
+        return vertices.computeIfAbsent(name, n -> new Vertex(nextId.getAndIncrement(), new Node(n)));
+    }
+
+    private void append(final Vertex vertex, final int neighborId) {
+        synchronized (locks[vertex.id % STRIPES]) {
+            if (vertex.size == vertex.neighbors.length) {
+                vertex.neighbors = Arrays.copyOf(vertex.neighbors, 2 * vertex.neighbors.length);
+            }
+            vertex.neighbors[vertex.size++] = neighborId;
+        }
+    }
+
+    private int[] sortedUniqueRow(final Vertex vertex, final int[] idToCompactId) {
+        final int[] ids;
+        synchronized (locks[vertex.id % STRIPES]) {
+            ids = Arrays.copyOf(vertex.neighbors, vertex.size);
+        }
+        return sortedUnique(ids, idToCompactId);
+    }
+
+    /**
+     * Maps the ids to their compact ids, sorts them and removes the duplicates.
+     */
+    private static int[] sortedUnique(final int[] ids, final int[] idToCompactId) {
+        final int[] row = new int[ids.length];
+        int size = 0;
+        for (final int id : ids) {
+            // skip nodes which were added after we took the snapshot of the nodes
+            if (id < idToCompactId.length && idToCompactId[id] >= 0) {
+                row[size++] = idToCompactId[id];
+            }
+        }
+        Arrays.sort(row, 0, size);
+
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || row[i] != row[i - 1]) {
+                row[unique++] = row[i];
+            }
+        }
+        return Arrays.copyOf(row, unique);
+    }
+
+    /**
+     * The adjacency of a node. The neighbors and size fields are guarded by the stripe lock of the id.
+     */
+    private static class Vertex {
+        private final int id;
+        private final Node node;
+        private int[] neighbors = new int[INITIAL_CAPACITY];
+        private int size = 0;
+
+        private Vertex(final int id, final Node node) {
+            this.id = id;
+            this.node = node;
+        }
+    }
+
+    /**
+     * The members of a group, guarded by the group itself.
+     */
+    private static class Group {
+        private int[] members = new int[INITIAL_CAPACITY];
+        private int size = 0;
+
+        private synchronized void add(final int id) {
+            if (size == members.length) {
+                members = Arrays.copyOf(members, 2 * members.length);
+            }
+            members[size++] = id;
+        }
+
+        private synchronized int[] snapshot() {
+            return Arrays.copyOf(members, size);
+        }
+    }
+}
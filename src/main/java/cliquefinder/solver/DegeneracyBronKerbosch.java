@@ -0,0 +1,90 @@
+package cliquefinder.solver;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The Bron-Kerbosch variant of Eppstein, Löffler and Strash for sparse graphs. The outer level does not
+ * pivot, instead it iterates over the nodes in degeneracy order and runs the pivoted recursion for every
+ * node v with
+ *
+ *      P = the neighbors of v which come after v in the order
+ *      X = the neighbors of v which come before v in the order
+ *
+ * Every maximal clique is reported exactly once, namely for its first node in the order. As P never has
+ * more than d nodes (d being the degeneracy of the graph), the size of every subproblem is bounded by d
+ * instead of the number of input nodes. Follower / organization graphs have a small degeneracy even when
+ * they contain a few hubs with very large degrees.
+ * Created by qr4 on 06.08.17.
+ */
+@ParametersAreNonnullByDefault
+public class DegeneracyBronKerbosch implements CliqueSolver {
+    private final CompactGraph graph;
+    private final PivotStrategy pivotStrategy;
+    private long recursionCalls;
+    private int maxDepth;
+    private SolverBudget.Completion completion = SolverBudget.Completion.COMPLETE;
+
+    public DegeneracyBronKerbosch(final Graph graph) {
+        this(graph.freeze(), PivotStrategy.TOMITA);
+    }
+
+    public DegeneracyBronKerbosch(final Graph graph, final PivotStrategy pivotStrategy) {
+        this(graph.freeze(), pivotStrategy);
+    }
+
+    public DegeneracyBronKerbosch(final CompactGraph graph, final PivotStrategy pivotStrategy) {
+        this.graph = graph;
+        this.pivotStrategy = pivotStrategy;
+    }
+
+    @Override
+    public void compute(final Set<Node> inputNodes, final SolverBudget budget, final Consumer<Clique> consumer) {
+        recursionCalls = 0;
+        maxDepth = 0;
+        completion = SolverBudget.Completion.COMPLETE;
+        final Set<Node> nodes = budget.getSearchNodes(graph, inputNodes);
+        // If no nodes are left, we have no maximal cliques.
+        if (nodes.isEmpty()) {
+            return;
+        }
+
+        final IndexedGraph indexedGraph = IndexedGraph.of(graph, nodes);
+        final BudgetTracker tracker = budget.start(consumer);
+        final BitSetEnumerator enumerator = new BitSetEnumerator(indexedGraph, pivotStrategy, tracker);
+
+        final int[] r = new int[1];
+        final long[] later = indexedGraph.allNodes();
+        final long[] p = new long[indexedGraph.words()];
+        final long[] x = new long[indexedGraph.words()];
+        for (final int v : indexedGraph.degeneracyOrder()) {
+            if (tracker.isStopped()) {
+                break;
+            }
+            BitSets.clear(later, v);
+            BitSets.and(indexedGraph.getAdjacencyRow(v), later, p);
+            BitSets.andNot(indexedGraph.getAdjacencyRow(v), later, x);
+            r[0] = v;
+            enumerator.enumerate(r, 1, p, x);
+        }
+        recursionCalls = enumerator.getRecursionCalls();
+        maxDepth = enumerator.getMaxDepth();
+        completion = tracker.getCompletion();
+    }
+
+    @Override
+    public long getRecursionCalls() {
+        return recursionCalls;
+    }
+
+    @Override
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public SolverBudget.Completion getCompletion() {
+        return completion;
+    }
+}
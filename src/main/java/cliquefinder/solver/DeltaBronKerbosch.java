@@ -0,0 +1,148 @@
+package cliquefinder.solver;
+
+import io.reactivex.Flowable;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Updates the maximal cliques of a previous graph to the current one, given the nodes affected by the
+ * changed edges (see {@link GraphDelta}).
+ *
+ * A clique C without an affected node is a clique in both graphs, since none of its edges changed. It is
+ * maximal in both or in neither: a node w extends C iff it is adjacent to every node of C, and the edge
+ * between w and an unaffected node did not change either. So the previous cliques without an affected node
+ * are reported as they are, and only the cliques with at least one affected node are searched. Like the
+ * outer level of {@link DegeneracyBronKerbosch}, the affected nodes are taken one after the other and the
+ * pivoted recursion runs with
+ *
+ *      R = {a}, P = the neighbors of a which are not an earlier affected node, X = the other neighbors
+ *
+ * on the subgraph induced by a and its neighbors, so every such clique is reported once, for its first
+ * affected node. With a small delta this only touches the neighborhoods of a few nodes.
+ *
+ * The previous cliques come from the output of the previous run, which skips cliques of a single node, so
+ * neither are such cliques reported here (unless the node is affected). They are kept or dropped one by one
+ * while they are read, so they are never all in memory.
+ * Created by qr4 on 23.08.17.
+ */
+@ParametersAreNonnullByDefault
+public class DeltaBronKerbosch implements CliqueSolver {
+    private final CompactGraph graph;
+    private final Set<Node> affectedNodes;
+    private final Flowable<Clique> previousCliques;
+    private final PivotStrategy pivotStrategy;
+    private long recursionCalls;
+    private int maxDepth;
+    private SolverBudget.Completion completion = SolverBudget.Completion.COMPLETE;
+
+    public DeltaBronKerbosch(final CompactGraph graph, final Set<Node> affectedNodes,
+                             final Flowable<Clique> previousCliques, final PivotStrategy pivotStrategy) {
+        this.graph = graph;
+        this.affectedNodes = affectedNodes;
+        this.previousCliques = previousCliques;
+        this.pivotStrategy = pivotStrategy;
+    }
+
+    @Override
+    public void compute(final Set<Node> nodes, final SolverBudget budget, final Consumer<Clique> consumer) {
+        recursionCalls = 0;
+        maxDepth = 0;
+        final BudgetTracker tracker = budget.start(consumer);
+        previousCliques
+                .takeWhile(clique -> !tracker.isStopped())
+                .filter(clique -> isUnaffected(clique) && nodes.containsAll(clique.getNodes()))
+                .blockingForEach(tracker::report);
+
+        // the affected nodes in the order of their ids, the ones which are not part of the input are dropped
+        final int[] affected = affectedNodes.stream()
+                .filter(nodes::contains)
+                .mapToInt(graph::getId)
+                .filter(id -> id >= 0)
+                .sorted()
+                .toArray();
+        final boolean[] isInput = new boolean[graph.getNodeCount()];
+        for (int id = 0; id < isInput.length; id++) {
+            isInput[id] = nodes.contains(graph.getNode(id));
+        }
+        final boolean[] done = new boolean[graph.getNodeCount()];
+        final int[] idToIndex = new int[graph.getNodeCount()];
+        Arrays.fill(idToIndex, -1);
+
+        for (final int a : affected) {
+            // the recursion in a small neighborhood may never read the clock, so it is read once per neighborhood
+            if (!tracker.checkTime()) {
+                break;
+            }
+            final int[] closedNeighborhood = closedNeighborhood(a, isInput);
+            final IndexedGraph subgraph = IndexedGraph.of(graph, closedNeighborhood, idToIndex);
+            final long[] p = new long[subgraph.words()];
+            final long[] x = new long[subgraph.words()];
+            final int[] r = new int[1];
+            for (int i = 0; i < closedNeighborhood.length; i++) {
+                if (closedNeighborhood[i] == a) {
+                    r[0] = i;
+                } else if (done[closedNeighborhood[i]]) {
+                    BitSets.set(x, i);
+                } else {
+                    BitSets.set(p, i);
+                }
+            }
+            final BitSetEnumerator enumerator = new BitSetEnumerator(subgraph, pivotStrategy, tracker);
+            enumerator.enumerate(r, 1, p, x);
+            recursionCalls += enumerator.getRecursionCalls();
+            maxDepth = Math.max(maxDepth, enumerator.getMaxDepth());
+            done[a] = true;
+        }
+        completion = tracker.getCompletion();
+    }
+
+    @Override
+    public long getRecursionCalls() {
+        return recursionCalls;
+    }
+
+    @Override
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public SolverBudget.Completion getCompletion() {
+        return completion;
+    }
+
+    private boolean isUnaffected(final Clique clique) {
+        for (final Node node : clique.getNodes()) {
+            if (affectedNodes.contains(node)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the sorted ids of the node and its neighbors which are part of the input.
+     */
+    private int[] closedNeighborhood(final int id, final boolean[] isInput) {
+        final int[] neighbors = graph.getNeighbors(id);
+        final int[] result = new int[neighbors.length + 1];
+        int size = 0;
+        boolean added = false;
+        for (final int neighbor : neighbors) {
+            if (!added && id < neighbor) {
+                result[size++] = id;
+                added = true;
+            }
+            if (isInput[neighbor]) {
+                result[size++] = neighbor;
+            }
+        }
+        if (!added) {
+            result[size++] = id;
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
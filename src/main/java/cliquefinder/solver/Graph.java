@@ -1,12 +1,17 @@
 package cliquefinder.solver;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 
 import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -40,4 +45,52 @@ public class Graph {
         return Collections.max(nodes, Comparator.comparingInt(node -> getAdjacentNodes(node).size()));
     }
 
+    /**
+     * Returns the k-core of the subgraph induced by the given nodes, like {@link CompactGraph#getCore(Set, int)}.
+     */
+    Set<Node> getCore(final Set<Node> nodes, final int k) {
+        final Set<Node> core = new HashSet<>(nodes);
+        final Map<Node, Integer> degrees = new HashMap<>();
+        final Deque<Node> removed = new ArrayDeque<>();
+        for (final Node node : nodes) {
+            final int degree = Sets.intersection(getAdjacentNodes(node), core).size();
+            degrees.put(node, degree);
+            if (degree < k) {
+                removed.add(node);
+            }
+        }
+        core.removeAll(removed);
+        while (!removed.isEmpty()) {
+            for (final Node neighbor : getAdjacentNodes(removed.poll())) {
+                if (core.contains(neighbor) && degrees.merge(neighbor, -1, Integer::sum) < k) {
+                    core.remove(neighbor);
+                    removed.add(neighbor);
+                }
+            }
+        }
+        return core;
+    }
+
+    /**
+     * Converts this graph into the immutable CSR representation which the solvers work on. Call this once
+     * all the edges have been added, later changes to this graph are not reflected.
+     */
+    public CompactGraph freeze() {
+        final Node[] nodes = graph.keySet().stream().sorted().toArray(Node[]::new);
+        final int[] offsets = new int[nodes.length + 1];
+        for (int id = 0; id < nodes.length; id++) {
+            offsets[id + 1] = offsets[id] + graph.get(nodes[id]).size();
+        }
+
+        final int[] neighbors = new int[offsets[nodes.length]];
+        for (int id = 0; id < nodes.length; id++) {
+            int i = offsets[id];
+            for (final Node neighbor : graph.get(nodes[id])) {
+                neighbors[i++] = Arrays.binarySearch(nodes, neighbor);
+            }
+            Arrays.sort(neighbors, offsets[id], offsets[id + 1]);
+        }
+        return new CompactGraph(nodes, offsets, neighbors);
+    }
+
 }
@@ -0,0 +1,101 @@
+package cliquefinder.solver;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The edges which were added and removed between two versions of a graph, e.g. the graphs of two
+ * consecutive runs. The affected nodes are the end points of these edges: the maximal cliques without any
+ * affected node are the same in both graphs, see {@link DeltaBronKerbosch}.
+ *
+ * Both graphs number their nodes in the order of the names, so the node arrays and every pair of rows can
+ * be compared by merging, without any lookup.
+ * Created by qr4 on 23.08.17.
+ */
+@ParametersAreNonnullByDefault
+public class GraphDelta {
+    private final long addedEdges;
+    private final long removedEdges;
+    private final Set<Node> affectedNodes;
+
+    private GraphDelta(final long addedEdges, final long removedEdges, final Set<Node> affectedNodes) {
+        this.addedEdges = addedEdges;
+        this.removedEdges = removedEdges;
+        this.affectedNodes = affectedNodes;
+    }
+
+    public static GraphDelta between(final CompactGraph previous, final CompactGraph current) {
+        final Set<Node> affected = new HashSet<>();
+        long added = 0;
+        long removed = 0;
+        int u = 0;
+        int v = 0;
+        while (u < previous.getNodeCount() || v < current.getNodeCount()) {
+            final int order = u == previous.getNodeCount() ? 1 : v == current.getNodeCount() ? -1
+                    : previous.getNode(u).compareTo(current.getNode(v));
+            if (order < 0) {
+                // the node is gone and so are all its edges
+                removed += addAll(previous, u, affected);
+                u++;
+            } else if (order > 0) {
+                added += addAll(current, v, affected);
+                v++;
+            } else {
+                final int[] previousRow = previous.getNeighbors(u);
+                final int[] currentRow = current.getNeighbors(v);
+                int i = 0;
+                int j = 0;
+                while (i < previousRow.length || j < currentRow.length) {
+                    final int rowOrder = i == previousRow.length ? 1 : j == currentRow.length ? -1
+                            : previous.getNode(previousRow[i]).compareTo(current.getNode(currentRow[j]));
+                    if (rowOrder < 0) {
+                        affected.add(previous.getNode(previousRow[i++]));
+                        affected.add(previous.getNode(u));
+                        removed++;
+                    } else if (rowOrder > 0) {
+                        affected.add(current.getNode(currentRow[j++]));
+                        affected.add(current.getNode(v));
+                        added++;
+                    } else {
+                        i++;
+                        j++;
+                    }
+                }
+                u++;
+                v++;
+            }
+        }
+        // every edge was seen from both of its ends
+        return new GraphDelta(added / 2, removed / 2, affected);
+    }
+
+    /**
+     * Returns the number of undirected edges of the current graph which are not part of the previous one.
+     */
+    public long getAddedEdges() {
+        return addedEdges;
+    }
+
+    /**
+     * Returns the number of undirected edges of the previous graph which are not part of the current one.
+     */
+    public long getRemovedEdges() {
+        return removedEdges;
+    }
+
+    public Set<Node> getAffectedNodes() {
+        return affectedNodes;
+    }
+
+    private static int addAll(final CompactGraph graph, final int id, final Set<Node> affected) {
+        final int[] row = graph.getNeighbors(id);
+        if (row.length > 0) {
+            affected.add(graph.getNode(id));
+        }
+        for (final int neighbor : row) {
+            affected.add(graph.getNode(neighbor));
+        }
+        return row.length;
+    }
+}
@@ -0,0 +1,243 @@
+package cliquefinder.solver;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes a {@link CompactGraph} in a binary file, so that a fetched graph can be solved again
+ * (or on another machine) without asking the apis. All the numbers are little endian ints:
+ *
+ *      header       magic, version, node count, neighbor count, name bytes, group count, membership count, 0
+ *      name table   node count + 1 offsets into the names, then the UTF-8 names, padded to 4 bytes
+ *      CSR          node count + 1 offsets, then the neighbors
+ *      groups       group count + 1 offsets, then the members of the groups
+ *      memberships  node count + 1 offsets, then the groups of the nodes
+ *
+ * Snapshots of version 1 have no groups and their header ends after the name bytes and the 0.
+ *
+ * A snapshot is loaded by mapping the file: the offsets and the neighbors of the graph are views of the
+ * mapping and are paged in by the OS on first access, only the name table is decoded into nodes. The
+ * mapping is read only and stays valid until the graph is garbage collected. Before that, the offsets and ids
+ * are checked in one sequential pass, so a corrupt file fails to load instead of failing the solver.
+ * Created by qr4 on 24.08.17.
+ */
+@ParametersAreNonnullByDefault
+public final class GraphSnapshot {
+    private static final int MAGIC = 0x53475143;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 32;
+    private static final int VERSION_1_HEADER_BYTES = 24;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private GraphSnapshot() {
+    }
+
+    /**
+     * Writes the graph into the file. The snapshot is written next to the file and moved over it once it
+     * is complete, so an existing snapshot is never left half written.
+     */
+    public static void write(final CompactGraph graph, final Path file) throws IOException {
+        final int nodeCount = graph.getNodeCount();
+        final byte[][] names = new byte[nodeCount][];
+        int nameBytes = 0;
+        for (int id = 0; id < nodeCount; id++) {
+            names[id] = graph.getNode(id).getName().getBytes(StandardCharsets.UTF_8);
+            nameBytes += names[id].length;
+        }
+
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            putInt(channel, buffer, MAGIC);
+            putInt(channel, buffer, VERSION);
+            putInt(channel, buffer, nodeCount);
+            putInt(channel, buffer, graph.adjacency().valueCount());
+            putInt(channel, buffer, nameBytes);
+            putInt(channel, buffer, graph.groups().rowCount());
+            putInt(channel, buffer, graph.groups().valueCount());
+            putInt(channel, buffer, 0);
+
+            int nameOffset = 0;
+            putInt(channel, buffer, nameOffset);
+            for (final byte[] name : names) {
+                nameOffset += name.length;
+                putInt(channel, buffer, nameOffset);
+            }
+            for (final byte[] name : names) {
+                for (final byte b : name) {
+                    if (!buffer.hasRemaining()) {
+                        flush(channel, buffer);
+                    }
+                    buffer.put(b);
+                }
+            }
+            for (int i = nameBytes; i < align(nameBytes); i++) {
+                if (!buffer.hasRemaining()) {
+                    flush(channel, buffer);
+                }
+                buffer.put((byte) 0);
+            }
+
+            putRows(channel, buffer, graph.adjacency());
+            putRows(channel, buffer, graph.groups());
+            putRows(channel, buffer, graph.memberships());
+            flush(channel, buffer);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Maps the snapshot into memory and returns its graph.
+     */
+    public static CompactGraph load(final Path file) throws IOException {
+        final MappedByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("The snapshot " + file + " is larger than 2 GB, it can not be mapped at once.");
+            }
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        final ByteBuffer buffer = mapping.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < VERSION_1_HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a graph snapshot.");
+        }
+        final int version = buffer.getInt(4);
+        if (version != 1 && version != VERSION) {
+            throw new IOException("The snapshot " + file + " has the unsupported version " + version + ".");
+        }
+        final int headerBytes = version == 1 ? VERSION_1_HEADER_BYTES : HEADER_BYTES;
+        final int nodeCount = buffer.getInt(8);
+        final int neighborCount = buffer.getInt(12);
+        final int nameBytes = buffer.getInt(16);
+        final int groupCount = version == 1 ? 0 : buffer.getInt(20);
+        final int membershipCount = version == 1 ? 0 : buffer.getInt(24);
+        final long namesStart = headerBytes + 4L * (nodeCount + 1);
+        final long offsetsStart = namesStart + align(nameBytes);
+        final long neighborsStart = offsetsStart + 4L * (nodeCount + 1);
+        final long groupsStart = neighborsStart + 4L * neighborCount;
+        final long membersStart = groupsStart + 4L * (groupCount + 1);
+        final long membershipsStart = membersStart + 4L * membershipCount;
+        final long nodeGroupsStart = membershipsStart + 4L * (nodeCount + 1);
+        final long end = version == 1 ? groupsStart : nodeGroupsStart + 4L * membershipCount;
+        if (nodeCount < 0 || neighborCount < 0 || nameBytes < 0 || groupCount < 0 || membershipCount < 0
+                || end != buffer.capacity()) {
+            throw corrupt(file);
+        }
+        checkRows(file, intView(buffer, headerBytes, nodeCount + 1), null, nameBytes, 0);
+
+        final byte[] nameTable = new byte[nameBytes];
+        ((ByteBuffer) buffer.duplicate().position((int) namesStart)).get(nameTable);
+        final Node[] nodes = new Node[nodeCount];
+        for (int id = 0; id < nodeCount; id++) {
+            final int start = buffer.getInt(headerBytes + 4 * id);
+            final int nameEnd = buffer.getInt(headerBytes + 4 * (id + 1));
+            nodes[id] = new Node(new String(nameTable, start, nameEnd - start, StandardCharsets.UTF_8));
+            // the ids are looked up with a binary search over the names
+            if (id > 0 && nodes[id - 1].compareTo(nodes[id]) >= 0) {
+                throw new IOException("The names of the snapshot " + file + " are not sorted.");
+            }
+        }
+
+        final IntBuffer neighbors = intView(buffer, neighborsStart, neighborCount);
+        final IntRows adjacency = new IntRows(checkRows(file, intView(buffer, offsetsStart, nodeCount + 1),
+                neighbors, neighborCount, nodeCount), neighbors);
+        if (version == 1) {
+            return new CompactGraph(nodes, adjacency, IntRows.empty(0), IntRows.empty(nodeCount));
+        }
+        final IntBuffer members = intView(buffer, membersStart, membershipCount);
+        final IntRows groups = new IntRows(checkRows(file, intView(buffer, groupsStart, groupCount + 1),
+                members, membershipCount, nodeCount), members);
+        final IntBuffer nodeGroups = intView(buffer, nodeGroupsStart, membershipCount);
+        final IntRows memberships = new IntRows(checkRows(file, intView(buffer, membershipsStart, nodeCount + 1),
+                nodeGroups, membershipCount, groupCount), nodeGroups);
+        return new CompactGraph(nodes, adjacency, groups, memberships);
+    }
+
+    /**
+     * Checks that the offsets start at 0, never decrease and end at the value count, and that every row is a
+     * strictly ascending list of ids below the bound (the lookups search and merge the rows). Returns the offsets.
+     */
+    private static IntBuffer checkRows(final Path file, final IntBuffer offsets, @Nullable final IntBuffer values,
+                                       final int valueCount, final int valueBound) throws IOException {
+        int previous = 0;
+        for (int i = 0; i < offsets.limit(); i++) {
+            final int offset = offsets.get(i);
+            if (i == 0 ? offset != 0 : offset < previous) {
+                throw corrupt(file);
+            }
+            previous = offset;
+        }
+        if (previous != valueCount) {
+            throw corrupt(file);
+        }
+        if (values != null) {
+            for (int row = 0; row + 1 < offsets.limit(); row++) {
+                int last = -1;
+                for (int i = offsets.get(row); i < offsets.get(row + 1); i++) {
+                    final int value = values.get(i);
+                    if (value <= last || value >= valueBound) {
+                        throw corrupt(file);
+                    }
+                    last = value;
+                }
+            }
+        }
+        return offsets;
+    }
+
+    private static IOException corrupt(final Path file) {
+        return new IOException("The snapshot " + file + " is truncated or corrupt.");
+    }
+
+    private static IntBuffer intView(final ByteBuffer buffer, final long start, final int length) {
+        final ByteBuffer slice = ((ByteBuffer) buffer.duplicate().position((int) start)).slice();
+        // a slice is big endian again
+        final IntBuffer view = slice.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        view.limit(length);
+        return view.slice();
+    }
+
+    private static void putRows(final FileChannel channel, final ByteBuffer buffer, final IntRows rows)
+            throws IOException {
+        final IntBuffer offsets = rows.offsetBuffer();
+        while (offsets.hasRemaining()) {
+            putInt(channel, buffer, offsets.get());
+        }
+        final IntBuffer values = rows.valueBuffer();
+        while (values.hasRemaining()) {
+            putInt(channel, buffer, values.get());
+        }
+    }
+
+    private static int align(final int bytes) {
+        return (bytes + 3) & ~3;
+    }
+
+    private static void putInt(final FileChannel channel, final ByteBuffer buffer, final int value)
+            throws IOException {
+        if (buffer.remaining() < 4) {
+            flush(channel, buffer);
+        }
+        buffer.putInt(value);
+    }
+
+    private static void flush(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
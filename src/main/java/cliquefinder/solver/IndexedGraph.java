@@ -0,0 +1,198 @@
+package cliquefinder.solver;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * An immutable, int-indexed view of the subgraph induced by a set of nodes. Every node is interned to a
+ * dense id in [0, size) (ordered by name, so that runs are reproducible) and its adjacency is stored as a
+ * bitset row, which lets the solvers intersect neighborhoods word by word.
+ * Created by qr4 on 02.08.17.
+ */
+@ParametersAreNonnullByDefault
+final class IndexedGraph {
+    private final Node[] nodes;
+    private final long[][] adjacency;
+    private final int[] degrees;
+    private final int[] largestGroup;
+
+    private IndexedGraph(final Node[] nodes, final long[][] adjacency, final int[] largestGroup) {
+        this.nodes = nodes;
+        this.adjacency = adjacency;
+        this.largestGroup = largestGroup;
+        this.degrees = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            degrees[i] = BitSets.cardinality(adjacency[i]);
+        }
+    }
+
+    static IndexedGraph of(final Graph graph, final Set<Node> nodes) {
+        return of(graph.freeze(), nodes);
+    }
+
+    static IndexedGraph of(final CompactGraph graph, final Set<Node> nodes) {
+        final Node[] sortedNodes = nodes.stream().sorted().toArray(Node[]::new);
+        final int[] graphIds = new int[sortedNodes.length];
+        final int[] idToIndex = new int[graph.getNodeCount()];
+        Arrays.fill(idToIndex, -1);
+        for (int i = 0; i < sortedNodes.length; i++) {
+            graphIds[i] = graph.getId(sortedNodes[i]);
+            if (graphIds[i] >= 0) {
+                idToIndex[graphIds[i]] = i;
+            }
+        }
+
+        final int words = BitSets.words(sortedNodes.length);
+        final long[][] adjacency = new long[sortedNodes.length][words];
+        for (int i = 0; i < sortedNodes.length; i++) {
+            // input nodes without any edge are not part of the graph
+            if (graphIds[i] >= 0) {
+                graph.setNeighborBits(graphIds[i], idToIndex, adjacency[i]);
+            }
+        }
+        return new IndexedGraph(sortedNodes, adjacency, largestGroup(graph, idToIndex));
+    }
+
+    /**
+     * Returns the subgraph induced by the given ids of the graph, which have to be sorted. The ids get the
+     * indices in the order of the array. idToIndex is a scratch array with an entry of -1 for every node of
+     * the graph, it is left that way, so a caller which builds many small subgraphs only allocates it once.
+     */
+    static IndexedGraph of(final CompactGraph graph, final int[] sortedIds, final int[] idToIndex) {
+        final Node[] nodes = new Node[sortedIds.length];
+        for (int i = 0; i < sortedIds.length; i++) {
+            nodes[i] = graph.getNode(sortedIds[i]);
+            idToIndex[sortedIds[i]] = i;
+        }
+
+        final long[][] adjacency = new long[sortedIds.length][BitSets.words(sortedIds.length)];
+        for (int i = 0; i < sortedIds.length; i++) {
+            graph.setNeighborBits(sortedIds[i], idToIndex, adjacency[i]);
+        }
+        for (final int id : sortedIds) {
+            idToIndex[id] = -1;
+        }
+        return new IndexedGraph(nodes, adjacency, new int[0]);
+    }
+
+    /**
+     * Returns the indices of the members of the group with the most members in the subgraph.
+     */
+    private static int[] largestGroup(final CompactGraph graph, final int[] idToIndex) {
+        int[] largest = new int[0];
+        for (int group = 0; group < graph.getGroupCount(); group++) {
+            final int[] members = graph.getGroupMembers(group);
+            if (members.length <= largest.length) {
+                continue;
+            }
+            final int[] indices = Arrays.stream(members).map(id -> idToIndex[id]).filter(index -> index >= 0).toArray();
+            if (indices.length > largest.length) {
+                largest = indices;
+            }
+        }
+        return largest;
+    }
+
+    int size() {
+        return nodes.length;
+    }
+
+    int words() {
+        return BitSets.words(nodes.length);
+    }
+
+    Node getNode(final int id) {
+        return nodes[id];
+    }
+
+    /**
+     * Returns the indices of the largest group of the graph within this subgraph, which is a known clique,
+     * or an empty array if there are no groups (or the subgraph was built for a neighborhood).
+     */
+    int[] getLargestGroup() {
+        return largestGroup;
+    }
+
+    long[] getAdjacencyRow(final int id) {
+        return adjacency[id];
+    }
+
+    int getDegree(final int id) {
+        return degrees[id];
+    }
+
+    /**
+     * Returns the node ids in degeneracy order, i.e. every node has at most d neighbors which come later
+     * in the order, where d is the degeneracy of the graph. This is the order in which the nodes are
+     * removed when repeatedly removing a node of minimum degree (k-core decomposition, computed in
+     * O(n + m) with the bucket algorithm of Batagelj and Zaversnik).
+     */
+    int[] degeneracyOrder() {
+        final int n = nodes.length;
+        int maxDegree = 0;
+        final int[] degree = new int[n];
+        for (int v = 0; v < n; v++) {
+            degree[v] = degrees[v];
+            maxDegree = Math.max(maxDegree, degree[v]);
+        }
+
+        // bucket sort the nodes by degree: order holds the nodes, position the index of a node in order
+        // and bucketStart the index of the first node with a given degree.
+        final int[] bucketStart = new int[maxDegree + 1];
+        for (int v = 0; v < n; v++) {
+            bucketStart[degree[v]]++;
+        }
+        int start = 0;
+        for (int d = 0; d <= maxDegree; d++) {
+            final int count = bucketStart[d];
+            bucketStart[d] = start;
+            start += count;
+        }
+        final int[] order = new int[n];
+        final int[] position = new int[n];
+        for (int v = 0; v < n; v++) {
+            position[v] = bucketStart[degree[v]]++;
+            order[position[v]] = v;
+        }
+        for (int d = maxDegree; d > 0; d--) {
+            bucketStart[d] = bucketStart[d - 1];
+        }
+        bucketStart[0] = 0;
+
+        // remove the nodes in order, every removal decrements the degree of the remaining neighbors by
+        // swapping them to the front of their bucket and moving the bucket boundary.
+        for (int i = 0; i < n; i++) {
+            final int v = order[i];
+            final long[] neighbors = adjacency[v];
+            for (int u = BitSets.nextSetBit(neighbors, 0); u >= 0; u = BitSets.nextSetBit(neighbors, u + 1)) {
+                if (degree[u] > degree[v]) {
+                    final int du = degree[u];
+                    final int pu = position[u];
+                    final int pw = bucketStart[du];
+                    final int w = order[pw];
+                    if (u != w) {
+                        order[pu] = w;
+                        position[w] = pu;
+                        order[pw] = u;
+                        position[u] = pw;
+                    }
+                    bucketStart[du]++;
+                    degree[u]--;
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Returns a new bitset with all the node ids set.
+     */
+    long[] allNodes() {
+        final long[] all = new long[words()];
+        for (int i = 0; i < nodes.length; i++) {
+            BitSets.set(all, i);
+        }
+        return all;
+    }
+}
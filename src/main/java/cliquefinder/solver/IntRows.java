@@ -0,0 +1,133 @@
+package cliquefinder.solver;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.nio.IntBuffer;
+
+/**
+ * Rows of ints in compressed sparse row format: row r is values[offsets[r] ... offsets[r + 1]). Both arrays
+ * are {@link IntBuffer}s, which either wrap heap arrays or are views of a mapped {@link GraphSnapshot}.
+ * Created by qr4 on 25.08.17.
+ */
+@ParametersAreNonnullByDefault
+final class IntRows {
+    private final IntBuffer offsets;
+    private final IntBuffer values;
+
+    IntRows(final int[] offsets, final int[] values) {
+        this(IntBuffer.wrap(offsets), IntBuffer.wrap(values));
+    }
+
+    IntRows(final IntBuffer offsets, final IntBuffer values) {
+        this.offsets = offsets;
+        this.values = values;
+    }
+
+    /**
+     * Returns rows which are all empty.
+     */
+    static IntRows empty(final int rows) {
+        return new IntRows(new int[rows + 1], new int[0]);
+    }
+
+    int rowCount() {
+        return offsets.limit() - 1;
+    }
+
+    int valueCount() {
+        return values.limit();
+    }
+
+    int start(final int row) {
+        return offsets.get(row);
+    }
+
+    int end(final int row) {
+        return offsets.get(row + 1);
+    }
+
+    int length(final int row) {
+        return end(row) - start(row);
+    }
+
+    int value(final int index) {
+        return values.get(index);
+    }
+
+    /**
+     * Returns a copy of the row.
+     */
+    int[] row(final int row) {
+        final int[] result = new int[length(row)];
+        final int start = start(row);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(start + i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the sorted row contains the value, with a binary search.
+     */
+    boolean contains(final int row, final int value) {
+        int low = start(row);
+        int high = end(row) - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int current = values.get(middle);
+            if (current < value) {
+                low = middle + 1;
+            } else if (current > value) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of values which the two sorted rows have in common, by merging them.
+     */
+    int countCommon(final int row1, final int row2) {
+        int i = start(row1);
+        int j = start(row2);
+        final int iEnd = end(row1);
+        final int jEnd = end(row2);
+        int count = 0;
+        while (i < iEnd && j < jEnd) {
+            final int a = values.get(i);
+            final int b = values.get(j);
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns a read only view of the offsets, for the snapshot writer.
+     */
+    IntBuffer offsetBuffer() {
+        return offsets.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read only view of the values, for the snapshot writer.
+     */
+    IntBuffer valueBuffer() {
+        return values.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the size of the two arrays in bytes.
+     */
+    long bytes() {
+        return 4L * (offsets.limit() + values.limit());
+    }
+}
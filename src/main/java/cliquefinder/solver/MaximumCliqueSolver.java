@@ -0,0 +1,213 @@
+package cliquefinder.solver;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A branch and bound solver which only finds one maximum clique instead of enumerating all the maximal ones.
+ *
+ * The outer level iterates over the nodes in degeneracy order and searches for the largest clique which
+ * starts with v and only contains later neighbors of v (like {@link DegeneracyBronKerbosch}). Inside, P is
+ * greedily colored in every call (MCQ / MCS by Tomita et al., on bitsets like BBMC): nodes with the same
+ * color are pairwise non-adjacent, so a clique can contain at most one node per color. We branch on the
+ * nodes in decreasing color order and stop as soon as |R| + color(v) can not beat the best clique so far.
+ * The largest group of the graph is a clique which we know without searching, so it is the first best one.
+ * With a minimum clique size k, only the (k - 1)-core is searched and the bound starts at k - 1, so nothing
+ * smaller is branched on (and nothing is reported if there is no clique of size k).
+ * Created by qr4 on 09.08.17.
+ */
+@ParametersAreNonnullByDefault
+public class MaximumCliqueSolver implements CliqueSolver {
+    private final CompactGraph graph;
+    private long recursionCalls;
+    private int maxDepth;
+    private SolverBudget.Completion completion = SolverBudget.Completion.COMPLETE;
+
+    private IndexedGraph indexedGraph;
+    private BudgetTracker tracker;
+    private int[] r;
+    private int[] best;
+    private int bestSize;
+    // the size a clique has to exceed: the best size so far, but at least the minimum clique size - 1
+    private int lowerBound;
+
+    // per depth: P, the uncolored nodes and the nodes which can still get the current color while coloring,
+    // and the nodes of P sorted by their color together with the colors.
+    private long[][] pBuffers;
+    private long[][] uncoloredBuffers;
+    private long[][] colorClassBuffers;
+    private int[][] orderBuffers;
+    private int[][] colorBuffers;
+
+    public MaximumCliqueSolver(final Graph graph) {
+        this(graph.freeze());
+    }
+
+    public MaximumCliqueSolver(final CompactGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Passes exactly one maximum clique to the consumer (or nothing, if there are no nodes) once the
+     * search is done. If the budget stops the search, the largest clique found until then is passed on.
+     */
+    @Override
+    public void compute(final Set<Node> inputNodes, final SolverBudget budget, final Consumer<Clique> consumer) {
+        recursionCalls = 0;
+        maxDepth = 0;
+        completion = SolverBudget.Completion.COMPLETE;
+        final Set<Node> nodes = budget.getSearchNodes(graph, inputNodes);
+        // If no nodes are left, we have no cliques.
+        if (nodes.isEmpty()) {
+            return;
+        }
+
+        indexedGraph = IndexedGraph.of(graph, nodes);
+        r = new int[indexedGraph.size()];
+        best = new int[indexedGraph.size()];
+        bestSize = indexedGraph.getLargestGroup().length;
+        System.arraycopy(indexedGraph.getLargestGroup(), 0, best, 0, bestSize);
+        lowerBound = Math.max(bestSize, budget.getMinCliqueSize() - 1);
+        pBuffers = new long[0][];
+        uncoloredBuffers = new long[0][];
+        colorClassBuffers = new long[0][];
+        orderBuffers = new int[0][];
+        colorBuffers = new int[0][];
+
+        tracker = budget.start(consumer);
+        final long[] later = indexedGraph.allNodes();
+        for (final int v : indexedGraph.degeneracyOrder()) {
+            if (tracker.isStopped()) {
+                break;
+            }
+            BitSets.clear(later, v);
+            ensureDepth(0);
+            BitSets.and(indexedGraph.getAdjacencyRow(v), later, pBuffers[0]);
+            // the later neighbors bound the size of every clique which starts with v
+            if (BitSets.cardinality(pBuffers[0]) + 1 <= lowerBound) {
+                continue;
+            }
+            r[0] = v;
+            expand(0, 1);
+        }
+
+        // before the clique is reported, which uses up a limit of one clique
+        completion = tracker.getCompletion();
+        final List<Node> clique = new ArrayList<>(bestSize);
+        for (int i = 0; i < bestSize; i++) {
+            clique.add(indexedGraph.getNode(best[i]));
+        }
+        tracker.report(new Clique(clique));
+    }
+
+    @Override
+    public long getRecursionCalls() {
+        return recursionCalls;
+    }
+
+    @Override
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public SolverBudget.Completion getCompletion() {
+        return completion;
+    }
+
+    private void expand(final int depth, final int rSize) {
+        recursionCalls++;
+        maxDepth = Math.max(maxDepth, rSize);
+        if (!tracker.onCall()) {
+            return;
+        }
+        final long[] p = pBuffers[depth];
+        if (BitSets.isEmpty(p)) {
+            if (rSize > lowerBound) {
+                System.arraycopy(r, 0, best, 0, rSize);
+                bestSize = rSize;
+                lowerBound = rSize;
+            }
+            return;
+        }
+
+        ensureDepth(depth + 1);
+        final int[] order = orderBuffers[depth];
+        final int[] colors = colorBuffers[depth];
+        final int count = colorSort(p, uncoloredBuffers[depth], colorClassBuffers[depth], order, colors);
+        final long[] nextP = pBuffers[depth + 1];
+
+        for (int i = count - 1; i >= 0; i--) {
+            // the nodes left in P use at most colors[i] colors, so R can grow by at most colors[i] nodes
+            if (rSize + colors[i] <= lowerBound) {
+                return;
+            }
+            final int v = order[i];
+            BitSets.and(p, indexedGraph.getAdjacencyRow(v), nextP);
+            r[rSize] = v;
+            expand(depth + 1, rSize + 1);
+            if (tracker.isStopped()) {
+                return;
+            }
+            BitSets.clear(p, v);
+        }
+    }
+
+    /**
+     * Greedily colors the nodes of P, one color class after the other. Writes the nodes sorted by
+     * ascending color to order, their colors to colors and returns the number of nodes.
+     */
+    private int colorSort(final long[] p, final long[] uncolored, final long[] colorClass,
+                          final int[] order, final int[] colors) {
+        BitSets.copy(p, uncolored);
+        int count = 0;
+        int color = 0;
+        while (!BitSets.isEmpty(uncolored)) {
+            color++;
+            BitSets.copy(uncolored, colorClass);
+            for (int v = BitSets.nextSetBit(colorClass, 0); v >= 0; v = BitSets.nextSetBit(colorClass, v + 1)) {
+                BitSets.andNot(colorClass, indexedGraph.getAdjacencyRow(v), colorClass);
+                BitSets.clear(uncolored, v);
+                order[count] = v;
+                colors[count] = color;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void ensureDepth(final int depth) {
+        if (depth < pBuffers.length) {
+            return;
+        }
+        final int length = Math.max(depth + 1, 2 * pBuffers.length);
+        final int words = indexedGraph.words();
+        final int size = indexedGraph.size();
+        pBuffers = grow(pBuffers, length, words);
+        uncoloredBuffers = grow(uncoloredBuffers, length, words);
+        colorClassBuffers = grow(colorClassBuffers, length, words);
+
+        final int[][] grownOrder = new int[length][];
+        final int[][] grownColors = new int[length][];
+        System.arraycopy(orderBuffers, 0, grownOrder, 0, orderBuffers.length);
+        System.arraycopy(colorBuffers, 0, grownColors, 0, colorBuffers.length);
+        for (int i = orderBuffers.length; i < length; i++) {
+            grownOrder[i] = new int[size];
+            grownColors[i] = new int[size];
+        }
+        orderBuffers = grownOrder;
+        colorBuffers = grownColors;
+    }
+
+    private long[][] grow(final long[][] buffers, final int length, final int words) {
+        final long[][] grown = new long[length][];
+        System.arraycopy(buffers, 0, grown, 0, buffers.length);
+        for (int i = buffers.length; i < length; i++) {
+            grown[i] = new long[words];
+        }
+        return grown;
+    }
+}
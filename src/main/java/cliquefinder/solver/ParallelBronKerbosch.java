@@ -0,0 +1,199 @@
+package cliquefinder.solver;
+
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A parallel version of {@link BitSetBronKerbosch}. The loop over P \ N(pivot) is split into fork/join tasks,
+ * one per branch v with its own copies of P ⋂ N(v) and X ⋂ N(v). Branches which are still large are split
+ * again on the next level, so that the work stealing of the ForkJoinPool can balance skewed subtrees.
+ * Small branches are handed to a sequential {@link BitSetEnumerator} of the executing worker thread.
+ *
+ * The cliques of all the workers are collected in a concurrent set (or passed to the consumer under a lock
+ * when streaming), the result is the same as the one of the sequential solvers.
+ * Created by qr4 on 04.08.17.
+ */
+@ParametersAreNonnullByDefault
+public class ParallelBronKerbosch implements CliqueSolver {
+    // branches whose P has fewer candidates than this are not worth the overhead of a task
+    private static final int SPLIT_THRESHOLD = 32;
+
+    private final CompactGraph graph;
+    private final int parallelism;
+    private final PivotStrategy pivotStrategy;
+    private long recursionCalls;
+    private int maxDepth;
+    private SolverBudget.Completion completion = SolverBudget.Completion.COMPLETE;
+
+    public ParallelBronKerbosch(final Graph graph, final int parallelism) {
+        this(graph.freeze(), parallelism, PivotStrategy.TOMITA);
+    }
+
+    public ParallelBronKerbosch(final CompactGraph graph, final int parallelism, final PivotStrategy pivotStrategy) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.graph = graph;
+        this.parallelism = parallelism;
+        this.pivotStrategy = pivotStrategy;
+    }
+
+    @Override
+    public Set<Clique> compute(final Set<Node> nodes) {
+        final Set<Clique> result = ConcurrentHashMap.newKeySet();
+        computeConcurrently(nodes, SolverBudget.unlimited(), result::add);
+        return ImmutableSet.copyOf(result);
+    }
+
+    /**
+     * The consumer is called from all the worker threads, but never concurrently.
+     */
+    @Override
+    public void compute(final Set<Node> nodes, final SolverBudget budget, final Consumer<Clique> consumer) {
+        final Object lock = new Object();
+        computeConcurrently(nodes, budget, clique -> {
+            synchronized (lock) {
+                consumer.accept(clique);
+            }
+        });
+    }
+
+    @Override
+    public long getRecursionCalls() {
+        return recursionCalls;
+    }
+
+    @Override
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public SolverBudget.Completion getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Runs the fork/join tasks, the given sink has to be thread safe.
+     */
+    private void computeConcurrently(final Set<Node> inputNodes, final SolverBudget budget,
+                                     final Consumer<Clique> sink) {
+        recursionCalls = 0;
+        maxDepth = 0;
+        completion = SolverBudget.Completion.COMPLETE;
+        final Set<Node> nodes = budget.getSearchNodes(graph, inputNodes);
+        // If no nodes are left, we have no maximal cliques.
+        if (nodes.isEmpty()) {
+            return;
+        }
+
+        final IndexedGraph indexedGraph = IndexedGraph.of(graph, nodes);
+        // one tracker for all the threads, so that the limits hold for the whole computation
+        final BudgetTracker tracker = budget.start(sink);
+        // remember every enumerator, so that we can sum up their call counts at the end
+        final Queue<BitSetEnumerator> allEnumerators = new ConcurrentLinkedQueue<>();
+        final ThreadLocal<BitSetEnumerator> enumerators = ThreadLocal.withInitial(() -> {
+            final BitSetEnumerator enumerator = new BitSetEnumerator(indexedGraph, pivotStrategy, tracker);
+            allEnumerators.add(enumerator);
+            return enumerator;
+        });
+        final LongAdder splitCalls = new LongAdder();
+        final LongAccumulator splitDepth = new LongAccumulator(Math::max, 0);
+
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new BranchTask(indexedGraph, pivotStrategy, enumerators, tracker, splitCalls, splitDepth,
+                    new int[0], indexedGraph.allNodes(), new long[indexedGraph.words()]));
+        } finally {
+            pool.shutdown();
+        }
+        recursionCalls = splitCalls.sum() +
+                allEnumerators.stream().mapToLong(BitSetEnumerator::getRecursionCalls).sum();
+        maxDepth = Math.max((int) splitDepth.get(),
+                allEnumerators.stream().mapToInt(BitSetEnumerator::getMaxDepth).max().orElse(0));
+        completion = tracker.getCompletion();
+    }
+
+    private static class BranchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IndexedGraph graph;
+        private final PivotStrategy pivotStrategy;
+        private final ThreadLocal<BitSetEnumerator> enumerators;
+        private final BudgetTracker tracker;
+        private final LongAdder splitCalls;
+        private final LongAccumulator splitDepth;
+        private final int[] r;
+        private final long[] p;
+        private final long[] x;
+
+        BranchTask(final IndexedGraph graph, final PivotStrategy pivotStrategy,
+                   final ThreadLocal<BitSetEnumerator> enumerators, final BudgetTracker tracker,
+                   final LongAdder splitCalls, final LongAccumulator splitDepth, final int[] r, final long[] p,
+                   final long[] x) {
+            this.graph = graph;
+            this.pivotStrategy = pivotStrategy;
+            this.enumerators = enumerators;
+            this.tracker = tracker;
+            this.splitCalls = splitCalls;
+            this.splitDepth = splitDepth;
+            this.r = r;
+            this.p = p;
+            this.x = x;
+        }
+
+        @Override
+        protected void compute() {
+            if (tracker.isStopped()) {
+                return;
+            }
+            final int pSize = BitSets.cardinality(p);
+            if (r.length + pSize < tracker.getMinCliqueSize()) {
+                return;
+            }
+            if (pSize < SPLIT_THRESHOLD) {
+                enumerators.get().enumerate(r, r.length, p, x);
+                return;
+            }
+
+            splitCalls.increment();
+            splitDepth.accumulate(r.length);
+            if (!tracker.onCall()) {
+                return;
+            }
+            final long[] candidates = new long[p.length];
+            BitSets.andNot(p, graph.getAdjacencyRow(pivotStrategy.choosePivot(graph, p, x)), candidates);
+
+            final List<BranchTask> branches = new ArrayList<>();
+            for (int v = BitSets.nextSetBit(candidates, 0); v >= 0; v = BitSets.nextSetBit(candidates, v + 1)) {
+                final long[] neighbors = graph.getAdjacencyRow(v);
+                final long[] nextP = new long[p.length];
+                final long[] nextX = new long[x.length];
+                BitSets.and(p, neighbors, nextP);
+                BitSets.and(x, neighbors, nextX);
+
+                final int[] nextR = new int[r.length + 1];
+                System.arraycopy(r, 0, nextR, 0, r.length);
+                nextR[r.length] = v;
+                branches.add(new BranchTask(graph, pivotStrategy, enumerators, tracker, splitCalls, splitDepth,
+                        nextR, nextP, nextX));
+
+                BitSets.clear(p, v);
+                BitSets.set(x, v);
+            }
+            invokeAll(branches);
+        }
+    }
+}
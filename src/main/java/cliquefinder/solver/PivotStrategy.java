@@ -0,0 +1,63 @@
+package cliquefinder.solver;
+
+/**
+ * The strategies to choose the pivot u of a Bron-Kerbosch call. The recursion branches on every node in
+ * P \ N(u), so a good pivot keeps this set small.
+ * Created by qr4 on 07.08.17.
+ */
+public enum PivotStrategy {
+    /**
+     * The node in P with the maximum degree in the indexed (sub)graph the solver runs on, e.g. the core or a
+     * neighborhood, not in the whole graph. It is cheap, but ignores X and the current P.
+     */
+    MAX_DEGREE {
+        @Override
+        int choosePivot(final IndexedGraph graph, final long[] p, final long[] x) {
+            int pivot = -1;
+            int maxDegree = -1;
+            for (int u = BitSets.nextSetBit(p, 0); u >= 0; u = BitSets.nextSetBit(p, u + 1)) {
+                if (graph.getDegree(u) > maxDegree) {
+                    maxDegree = graph.getDegree(u);
+                    pivot = u;
+                }
+            }
+            return pivot;
+        }
+    },
+    /**
+     * Tomita et al.: the node u in P ⋃ X which maximizes |P ⋂ N(u)|, i.e. which leaves the fewest branches.
+     * The intersection sizes are computed with popcounts on the bitset rows.
+     */
+    TOMITA {
+        @Override
+        int choosePivot(final IndexedGraph graph, final long[] p, final long[] x) {
+            // a node from X which is adjacent to all of P leaves nothing to branch on, so try X first
+            final int pSize = BitSets.cardinality(p);
+            int pivot = -1;
+            int maxCovered = -1;
+            for (int u = BitSets.nextSetBit(x, 0); u >= 0; u = BitSets.nextSetBit(x, u + 1)) {
+                final int covered = BitSets.intersectionSize(p, graph.getAdjacencyRow(u));
+                if (covered == pSize) {
+                    return u;
+                }
+                if (covered > maxCovered) {
+                    maxCovered = covered;
+                    pivot = u;
+                }
+            }
+            for (int u = BitSets.nextSetBit(p, 0); u >= 0; u = BitSets.nextSetBit(p, u + 1)) {
+                final int covered = BitSets.intersectionSize(p, graph.getAdjacencyRow(u));
+                if (covered > maxCovered) {
+                    maxCovered = covered;
+                    pivot = u;
+                }
+            }
+            return pivot;
+        }
+    };
+
+    /**
+     * Returns the pivot for the given (non-empty) P and X.
+     */
+    abstract int choosePivot(final IndexedGraph graph, final long[] p, final long[] x);
+}
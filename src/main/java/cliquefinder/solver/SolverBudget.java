@@ -0,0 +1,131 @@
+package cliquefinder.solver;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The limits of one computation of a {@link CliqueSolver}: a time limit, a maximum number of recursive calls,
+ * a maximum number of reported cliques and a minimum size of the reported cliques. The solvers check the
+ * budget on every recursive call and unwind their recursion once it is used up. The cliques reported until
+ * then are maximal cliques (the maximum clique solver reports the largest clique found so far), and
+ * {@link CliqueSolver#getCompletion()} tells whether the enumeration was complete.
+ *
+ * A budget is immutable, the with* methods return a copy with one more limit, e.g.
+ * SolverBudget.unlimited().withTimeLimit(10, TimeUnit.MINUTES).withMaxCliques(1_000_000)
+ * Created by qr4 on 27.08.17.
+ */
+@ParametersAreNonnullByDefault
+public final class SolverBudget {
+    private static final SolverBudget UNLIMITED = new SolverBudget(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, 1);
+
+    private final long timeLimitNanos;
+    private final long maxRecursionCalls;
+    private final long maxCliques;
+    private final int minCliqueSize;
+
+    private SolverBudget(final long timeLimitNanos, final long maxRecursionCalls, final long maxCliques,
+                         final int minCliqueSize) {
+        this.timeLimitNanos = timeLimitNanos;
+        this.maxRecursionCalls = maxRecursionCalls;
+        this.maxCliques = maxCliques;
+        this.minCliqueSize = minCliqueSize;
+    }
+
+    public static SolverBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * The wall clock time of a computation, counted from its start.
+     */
+    public SolverBudget withTimeLimit(final long duration, final TimeUnit unit) {
+        return new SolverBudget(positive(unit.toNanos(duration)), maxRecursionCalls, maxCliques, minCliqueSize);
+    }
+
+    public SolverBudget withMaxRecursionCalls(final long maxRecursionCalls) {
+        return new SolverBudget(timeLimitNanos, positive(maxRecursionCalls), maxCliques, minCliqueSize);
+    }
+
+    /**
+     * The computation stops right after the last clique, so it is not complete, even if there was no other
+     * clique left.
+     */
+    public SolverBudget withMaxCliques(final long maxCliques) {
+        return new SolverBudget(timeLimitNanos, maxRecursionCalls, positive(maxCliques), minCliqueSize);
+    }
+
+    /**
+     * Smaller cliques are not reported and do not count against the maximum number of cliques. They are not
+     * enumerated either: the solvers only search the (minCliqueSize - 1)-core of the graph and prune every
+     * branch whose clique can not grow to this size.
+     */
+    public SolverBudget withMinCliqueSize(final int minCliqueSize) {
+        return new SolverBudget(timeLimitNanos, maxRecursionCalls, maxCliques, (int) positive(minCliqueSize));
+    }
+
+    /**
+     * Returns the time limit in nanoseconds, Long.MAX_VALUE if there is none.
+     */
+    public long getTimeLimitNanos() {
+        return timeLimitNanos;
+    }
+
+    public long getMaxRecursionCalls() {
+        return maxRecursionCalls;
+    }
+
+    public long getMaxCliques() {
+        return maxCliques;
+    }
+
+    public int getMinCliqueSize() {
+        return minCliqueSize;
+    }
+
+    /**
+     * Returns the nodes which have to be searched for the cliques of this budget: the (k - 1)-core of the nodes
+     * for a minimum clique size k, or all of them if k <= 2 (the 1-core only lacks the isolated nodes). Every
+     * node of a clique with k nodes has k - 1 neighbors in it, so the nodes outside of the core are in no clique
+     * which would be reported, and the solvers only search the core.
+     */
+    Set<Node> getSearchNodes(final CompactGraph graph, final Set<Node> nodes) {
+        return minCliqueSize <= 2 ? nodes : graph.getCore(nodes, minCliqueSize - 1);
+    }
+
+    Set<Node> getSearchNodes(final Graph graph, final Set<Node> nodes) {
+        return minCliqueSize <= 2 ? nodes : graph.getCore(nodes, minCliqueSize - 1);
+    }
+
+    /**
+     * Starts a computation with this budget, which reports its cliques to the consumer.
+     */
+    BudgetTracker start(final Consumer<Clique> consumer) {
+        return new BudgetTracker(this, consumer);
+    }
+
+    @Override
+    public String toString() {
+        return "SolverBudget{timeLimitNanos=" + timeLimitNanos + ", maxRecursionCalls=" + maxRecursionCalls
+                + ", maxCliques=" + maxCliques + ", minCliqueSize=" + minCliqueSize + "}";
+    }
+
+    private static long positive(final long value) {
+        if (value < 1) {
+            throw new IllegalArgumentException("The limits of a budget must be positive, got " + value);
+        }
+        return value;
+    }
+
+    /**
+     * How a computation ended: complete, or stopped by one of the limits.
+     */
+    public enum Completion {
+        COMPLETE, TIME_LIMIT, RECURSION_LIMIT, CLIQUE_LIMIT;
+
+        public boolean isComplete() {
+            return this == COMPLETE;
+        }
+    }
+}
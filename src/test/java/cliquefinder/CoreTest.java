@@ -2,8 +2,11 @@ package cliquefinder;
 
 import cliquefinder.datafetcher.GithubAPITest;
 import cliquefinder.datafetcher.TwitterAPITest;
+import cliquefinder.metrics.Metrics;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -11,8 +14,10 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.List;
+import java.util.Properties;
 import java.util.stream.Collectors;
 
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
@@ -83,6 +88,143 @@ public class CoreTest {
         Assert.assertEquals(output.get(4), "eve sly");
     }
 
+    @Test
+    public void recordsTheTimingsOfThePhases() throws IOException {
+        sut.run();
+
+        Assert.assertEquals(sut.getPhaseMillis().keySet(), ImmutableSet.of(
+                "github", "twitter.lookup", "twitter.ids", "twitter.friendships", "fetch", "freeze", "solve"));
+        Assert.assertTrue(sut.getPhaseMillis().get("fetch") >= sut.getPhaseMillis().get("github"));
+    }
+
+    @Test
+    public void recordsTheMetricsOfTheRun() throws IOException {
+        final File metricsFile = File.createTempFile("metrics", ".json");
+        metricsFile.deleteOnExit();
+        final Properties properties = new Properties();
+        properties.setProperty("cliquefinder.metrics.file", metricsFile.getAbsolutePath());
+        final Core core = new Core(inputFile.getAbsolutePath(), outputFile.getAbsolutePath(),
+                "http://localhost:8089", "http://localhost:8089", new Settings(properties));
+        core.run();
+
+        final Metrics metrics = core.getMetrics();
+        Assert.assertEquals(metrics.getCount("http.github.orgs.status.200"), 6);
+        Assert.assertEquals(metrics.getCount("http.twitter.lookup.status.200"), 1);
+        Assert.assertEquals(metrics.getHistogram("http.github.orgs.latencyMicros").getCount(), 6);
+        Assert.assertEquals(metrics.getCount("github.accounts"), 6);
+        Assert.assertEquals(metrics.getCount("twitter.users"), 6);
+        Assert.assertTrue(metrics.getCount("graph.edgesAdded") > 0);
+        Assert.assertEquals(metrics.getGauge("output.cliques"), 5);
+        Assert.assertEquals(metrics.getGauge("output.bytes"), Files.size(outputFile.toPath()));
+        Assert.assertEquals(metrics.getGauge("solver.largestClique"), 3);
+        // the search tree is at least as deep as the largest clique
+        Assert.assertTrue(metrics.getGauge("solver.maxDepth") >= 3);
+        Assert.assertTrue(metrics.getGauge("solver.recursionCalls") > 0);
+        Assert.assertTrue(new String(Files.readAllBytes(metricsFile.toPath()), StandardCharsets.UTF_8)
+                .contains("\"http.github.orgs.latencyMicros\""));
+    }
+
+    @Test
+    public void solvesTheGraphOfASnapshotWithoutFetching() throws IOException {
+        final File snapshot = File.createTempFile("graph", ".snapshot");
+        snapshot.deleteOnExit();
+        final Properties properties = new Properties();
+        properties.setProperty("cliquefinder.snapshot.file", snapshot.getAbsolutePath());
+        new Core(inputFile.getAbsolutePath(), outputFile.getAbsolutePath(),
+                "http://localhost:8089", "http://localhost:8089", new Settings(properties)).run();
+        final List<String> expected = Files.readAllLines(outputFile.toPath());
+
+        wireMock.removeMappings();
+        sut.runFromSnapshot(snapshot.toPath());
+
+        Assert.assertEquals(Files.readAllLines(outputFile.toPath()), expected);
+        Assert.assertEquals(expected.size(), 5);
+    }
+
+    @Test
+    public void reusesTheStateOfThePreviousRun() throws IOException {
+        final File stateDirectory = Files.createTempDirectory("state").toFile();
+        stateDirectory.deleteOnExit();
+        final Properties properties = new Properties();
+        properties.setProperty("cliquefinder.state.dir", stateDirectory.getAbsolutePath());
+        final Settings settings = new Settings(properties);
+
+        new Core(inputFile.getAbsolutePath(), outputFile.getAbsolutePath(),
+                "http://localhost:8089", "http://localhost:8089", settings).run();
+        final List<String> firstOutput = Files.readAllLines(outputFile.toPath());
+        Assert.assertEquals(Files.readAllLines(new File(stateDirectory, "cliques.txt").toPath()), firstOutput);
+
+        // grunt leaves all the organizations, so the cliques around grunt are recomputed
+        GithubAPITest.mockOkOrgsResponse(wireMock, "grunt", "[]");
+        new Core(inputFile.getAbsolutePath(), outputFile.getAbsolutePath(),
+                "http://localhost:8089", "http://localhost:8089", settings).run();
+
+        final List<String> output = Files.readAllLines(outputFile.toPath());
+        Assert.assertEquals(output, ImmutableList.of("alex alice", "alice bob", "bob eve", "eve grunt", "eve sly"));
+        // the same as without the state
+        sut.run();
+        Assert.assertEquals(Files.readAllLines(outputFile.toPath()), output);
+    }
+
+    @Test
+    public void failsWithoutWritingAnythingIfAFetchFails() throws IOException {
+        final File stateDirectory = Files.createTempDirectory("state").toFile();
+        stateDirectory.deleteOnExit();
+        final Properties properties = new Properties();
+        properties.setProperty("cliquefinder.state.dir", stateDirectory.getAbsolutePath());
+        // the response of grunt can not be parsed, so the graph would lack its organizations
+        GithubAPITest.mockOkOrgsResponse(wireMock, "grunt", "{not json");
+        final Core core = new Core(inputFile.getAbsolutePath(), outputFile.getAbsolutePath(),
+                "http://localhost:8089", "http://localhost:8089", new Settings(properties));
+
+        try {
+            core.run();
+            Assert.fail("The run has to fail.");
+        } catch (final IOException e) {
+            Assert.assertTrue(e.getMessage().contains("no cliques were written"));
+        }
+        Assert.assertEquals(Files.size(outputFile.toPath()), 0);
+        Assert.assertFalse(new File(stateDirectory, "cliques.txt").exists());
+    }
+
+    @Test
+    public void reportsTheMetricsIfSolvingFails() throws IOException {
+        final File metricsFile = File.createTempFile("metrics", ".json");
+        metricsFile.deleteOnExit();
+        final File snapshot = File.createTempFile("graph", ".snapshot");
+        snapshot.deleteOnExit();
+        Files.write(snapshot.toPath(), "no snapshot".getBytes(StandardCharsets.UTF_8));
+        final Properties properties = new Properties();
+        properties.setProperty("cliquefinder.metrics.file", metricsFile.getAbsolutePath());
+        final Core core = new Core(inputFile.getAbsolutePath(), outputFile.getAbsolutePath(),
+                "http://localhost:8089", "http://localhost:8089", new Settings(properties));
+
+        try {
+            core.runFromSnapshot(snapshot.toPath());
+            Assert.fail("The run has to fail.");
+        } catch (final IOException e) {
+            Assert.assertTrue(e.getMessage().contains("is not a graph snapshot"));
+        }
+        // the metrics are written when the core is closed
+        Assert.assertTrue(Files.size(metricsFile.toPath()) > 0);
+    }
+
+    @Test
+    public void writesTheCliquesFoundWithinTheBudget() throws IOException {
+        final File stateDirectory = Files.createTempDirectory("state").toFile();
+        stateDirectory.deleteOnExit();
+        final Properties properties = new Properties();
+        properties.setProperty("cliquefinder.budget.maxCliques", "2");
+        properties.setProperty("cliquefinder.state.dir", stateDirectory.getAbsolutePath());
+        final Core core = new Core(inputFile.getAbsolutePath(), outputFile.getAbsolutePath(),
+                "http://localhost:8089", "http://localhost:8089", new Settings(properties));
+        core.run();
+
+        Assert.assertEquals(Files.readAllLines(outputFile.toPath()).size(), 2);
+        Assert.assertEquals(core.getMetrics().getGauge("solver.complete"), 0);
+        // an incomplete result is no base for the next run
+        Assert.assertFalse(new File(stateDirectory, "cliques.txt").exists());
+    }
 
     private String getResponse(final String fileName) {
         try {
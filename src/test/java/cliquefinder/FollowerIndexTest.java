@@ -0,0 +1,209 @@
+package cliquefinder;
+
+import cliquefinder.model.TwitterAccount;
+import cliquefinder.model.TwitterUser;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import javafx.util.Pair;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+/**
+ * Tests for the fetch planning, the primitive id resolution and the detection of mutual follows.
+ * Created by qr4 on 21.08.17.
+ */
+public class FollowerIndexTest {
+
+    @Test
+    public void longIntHashMapGrowsAndKeepsAllEntries() {
+        final LongIntHashMap map = new LongIntHashMap(1);
+        final Random random = new Random(42);
+        final long[] keys = new long[10000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+            map.put(keys[i], i);
+        }
+        map.put(keys[0], 7);
+
+        Assert.assertEquals(map.size(), keys.length);
+        Assert.assertEquals(map.get(keys[0]), 7);
+        for (int i = 1; i < keys.length; i++) {
+            Assert.assertEquals(map.get(keys[i]), i);
+        }
+        Assert.assertEquals(map.get(12345L), LongIntHashMap.MISSING);
+        Assert.assertFalse(map.containsKey(0L));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void longIntHashMapRejectsNegativeValues() {
+        new LongIntHashMap(4).put(1L, -1);
+    }
+
+    @Test
+    public void reportsMutualFollowsOnceBothDirectionsAreKnown() {
+        final FollowerIndex sut = new FollowerIndex(3);
+        sut.addUser(user(1, "a", 0, 0));
+        sut.addUser(user(2, "b", 0, 0));
+        sut.addUser(user(3, "c", 0, 0));
+        final List<Pair<String, String>> edges = new ArrayList<>();
+
+        // b and c follow a, 99 is not one of our users
+        sut.addFollowers("a", new long[]{2, 3, 99}, (x, y) -> edges.add(new Pair<>(x, y)));
+        Assert.assertTrue(edges.isEmpty());
+
+        // a follows b
+        sut.addFollowers("b", new long[]{1, 98}, (x, y) -> edges.add(new Pair<>(x, y)));
+        Assert.assertEquals(edges, ImmutableList.of(new Pair<>("b", "a")));
+
+        // a does not follow c
+        sut.addFollowers("c", new long[]{2}, (x, y) -> edges.add(new Pair<>(x, y)));
+        Assert.assertEquals(edges, ImmutableList.of(new Pair<>("b", "a")));
+        Assert.assertEquals(sut.getUserCount(), 3);
+    }
+
+    @Test
+    public void fetchesTheListWithFewerPages() {
+        final FollowerIndex sut = new FollowerIndex(4);
+        sut.addUser(user(1, "celebrity", 3_000_000, 120));
+        sut.addUser(user(2, "regular", 300, 250));
+        sut.addUser(user(3, "follower", 10, 9000));
+        // both fit into one page, so we stay with the followers
+        sut.addUser(user(4, "tie", 4000, 10));
+
+        Assert.assertEquals(sut.getNamesToFetchFriends(), ImmutableSet.of("celebrity"));
+        Assert.assertEquals(sut.getNamesToFetchFollowers(), ImmutableSet.of("regular", "follower", "tie"));
+    }
+
+    @Test
+    public void combinesFriendsAndFollowersAndReportsThePairsNoListCanResolve() {
+        final FollowerIndex sut = new FollowerIndex(3);
+        sut.addUser(user(1, "celebrity", 3_000_000, 120));
+        sut.addUser(user(2, "regular", 300, 250));
+        sut.addUser(user(3, "other", 300, 250));
+        final List<Pair<String, String>> edges = new ArrayList<>();
+
+        // the celebrity follows both, regular follows the celebrity (which we can not see) and other
+        sut.addFriends("celebrity", new long[]{2, 3}, (x, y) -> edges.add(new Pair<>(x, y)));
+        sut.addFollowers("regular", new long[]{1, 3}, (x, y) -> edges.add(new Pair<>(x, y)));
+        sut.addFollowers("other", new long[]{1, 2}, (x, y) -> edges.add(new Pair<>(x, y)));
+
+        // celebrity -> regular is in both lists, but counted once
+        Assert.assertEquals(sut.getFollowCount(), 4);
+        Assert.assertEquals(edges, ImmutableList.of(new Pair<>("other", "regular")));
+        Assert.assertEquals(ImmutableSet.copyOf(sut.getUnresolvedPairs()), ImmutableSet.of(
+                new Pair<>("celebrity", "regular"), new Pair<>("celebrity", "other")));
+    }
+
+    @Test
+    public void fetchesTheOtherListIfThatTakesFewerRequestsThanTheChecks() {
+        final FollowerIndex sut = new FollowerIndex(62);
+        // u fetches its friends (1 page), its followers take 2 pages
+        sut.addUser(user(1, "u", 6000, 100));
+        // v fetches its followers (1 page), its friends take 2 pages
+        sut.addUser(user(2, "v", 100, 6000));
+        final long[] regulars = new long[30];
+        final long[] celebrities = new long[30];
+        for (int i = 0; i < 30; i++) {
+            regulars[i] = 100 + i;
+            sut.addUser(user(regulars[i], "regular" + i, 10, 10));
+            celebrities[i] = 200 + i;
+            sut.addUser(user(celebrities[i], "celebrity" + i, 3_000_000, 100));
+        }
+        // u follows 30 regulars and 30 celebrities follow v, none of them can be resolved by the lists
+        sut.addFriends("u", regulars, (x, y) -> Assert.fail());
+        for (int i = 0; i < 30; i++) {
+            sut.addFriends("celebrity" + i, new long[]{2}, (x, y) -> Assert.fail());
+        }
+        Assert.assertEquals(sut.getUnresolvedPairs().size(), 60);
+
+        // 30 checks cost more than 2 pages (24 checks) each
+        final FollowerIndex.ResolutionPlan plan = sut.planResolution(0);
+        Assert.assertEquals(plan.getUnresolvedPairs(), 60);
+        Assert.assertEquals(plan.getFollowersToFetch(), ImmutableSet.of("u"));
+        Assert.assertEquals(plan.getFriendsToFetch(), ImmutableSet.of("v"));
+        Assert.assertTrue(plan.getPairsToCheck().isEmpty());
+
+        // the extra lists resolve the pairs like any other list
+        final List<Pair<String, String>> edges = new ArrayList<>();
+        sut.addFollowers("u", new long[]{100, 101}, (x, y) -> edges.add(new Pair<>(x, y)));
+        sut.addFriends("v", new long[]{200}, (x, y) -> edges.add(new Pair<>(x, y)));
+        Assert.assertEquals(ImmutableSet.copyOf(edges), ImmutableSet.of(new Pair<>("u", "regular0"),
+                new Pair<>("u", "regular1"), new Pair<>("celebrity0", "v")));
+    }
+
+    @Test
+    public void checksFewPairsAndSkipsThoseAboveTheLimit() {
+        final FollowerIndex sut = new FollowerIndex(3);
+        sut.addUser(user(1, "celebrity", 3_000_000, 120));
+        sut.addUser(user(2, "regular", 300, 250));
+        sut.addUser(user(3, "other", 300, 250));
+        sut.addFriends("celebrity", new long[]{2, 3}, (x, y) -> Assert.fail());
+
+        final FollowerIndex.ResolutionPlan plan = sut.planResolution(0);
+        Assert.assertTrue(plan.getFollowersToFetch().isEmpty());
+        Assert.assertTrue(plan.getFriendsToFetch().isEmpty());
+        Assert.assertEquals(ImmutableSet.copyOf(plan.getPairsToCheck()), ImmutableSet.of(
+                new Pair<>("celebrity", "regular"), new Pair<>("celebrity", "other")));
+        Assert.assertEquals(plan.getSkippedPairs(), 0);
+
+        final FollowerIndex.ResolutionPlan limited = sut.planResolution(1);
+        Assert.assertEquals(limited.getPairsToCheck().size(), 1);
+        Assert.assertEquals(limited.getSkippedPairs(), 1);
+    }
+
+    @Test
+    public void ignoresUnknownUsersAndSelfFollows() {
+        final FollowerIndex sut = new FollowerIndex(2);
+        sut.addUser(user(1, "a", 0, 0));
+        sut.addUser(user(2, "b", 0, 0));
+        final List<Pair<String, String>> edges = new ArrayList<>();
+
+        sut.addFollowers("unknown", new long[]{1, 2}, (x, y) -> edges.add(new Pair<>(x, y)));
+        sut.addFollowers("a", new long[]{1}, (x, y) -> edges.add(new Pair<>(x, y)));
+
+        Assert.assertTrue(edges.isEmpty());
+        Assert.assertEquals(sut.getFollowCount(), 0);
+    }
+
+    @Test
+    public void addsThePagesOfBothListsFromDifferentThreads() {
+        final int users = 300;
+        // a small expected size, so that the maps grow while the pages arrive
+        final FollowerIndex sut = new FollowerIndex(1);
+        for (int i = 0; i < users; i++) {
+            sut.addUser(user(i + 1, "u" + i, 0, 0));
+        }
+        final Set<Pair<String, String>> edges = ConcurrentHashMap.newKeySet();
+        final AtomicInteger reported = new AtomicInteger();
+
+        // every user v is followed by the users before it (its followers) and follows them (its friends)
+        final Flowable<TwitterAccount> followerPages = Flowable.range(1, users - 1)
+                .map(v -> new TwitterAccount("u" + v, LongStream.rangeClosed(1, v).toArray()))
+                .subscribeOn(Schedulers.newThread());
+        final Flowable<TwitterAccount> friendPages = Flowable.range(1, users - 1)
+                .map(v -> new TwitterAccount("u" + v, LongStream.rangeClosed(1, v).toArray()))
+                .subscribeOn(Schedulers.newThread());
+        sut.addIdPages(followerPages, friendPages, (x, y) -> {
+            edges.add(new Pair<>(x, y));
+            reported.incrementAndGet();
+        }).blockingAwait();
+
+        Assert.assertEquals(sut.getFollowCount(), users * (users - 1));
+        Assert.assertEquals(edges.size(), users * (users - 1) / 2);
+        Assert.assertEquals(reported.get(), edges.size());
+    }
+
+    private static TwitterUser user(final long id, final String name, final int followers, final int friends) {
+        return new TwitterUser(id, name, followers, friends);
+    }
+}
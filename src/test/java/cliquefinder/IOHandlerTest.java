@@ -0,0 +1,95 @@
+package cliquefinder;
+
+import cliquefinder.solver.BitSetBronKerbosch;
+import cliquefinder.solver.Clique;
+import cliquefinder.solver.Graph;
+import cliquefinder.solver.Node;
+import io.reactivex.Flowable;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Unit tests for writing the output, with and without the external sort.
+ * Created by qr4 on 12.08.17.
+ */
+public class IOHandlerTest {
+    private File inputFile;
+    private File outputFile;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        inputFile = File.createTempFile("inputNames", ".txt");
+        inputFile.deleteOnExit();
+        outputFile = File.createTempFile("outputNames", ".txt");
+        outputFile.deleteOnExit();
+    }
+
+    @Test
+    public void writesSortedOutputWithSpilledRuns() throws IOException {
+        // a buffer of 3 lines forces several runs for the 40 cliques
+        final IOHandler sut = new IOHandler(inputFile.getAbsolutePath(), outputFile.getAbsolutePath(), true, 3);
+        final long written = sut.writeOutput(getCliques());
+
+        final List<String> output = Files.readAllLines(outputFile.toPath());
+        Assert.assertEquals(written, 40);
+        Assert.assertEquals(output.size(), 40);
+        Assert.assertEquals(output, output.stream().sorted().collect(Collectors.toList()));
+        Assert.assertEquals(output.get(0), "a0 b0");
+    }
+
+    @Test
+    public void writesUnsortedOutputInEmissionOrder() throws IOException {
+        final IOHandler sut = new IOHandler(inputFile.getAbsolutePath(), outputFile.getAbsolutePath(), false, 3);
+        sut.writeOutput(Flowable.just(
+                clique("z", "y"), clique("single"), clique("b", "a", "c")));
+
+        final List<String> output = Files.readAllLines(outputFile.toPath());
+        Assert.assertEquals(output.size(), 2);
+        Assert.assertEquals(output.get(0), "y z");
+        Assert.assertEquals(output.get(1), "a b c");
+    }
+
+    @Test
+    public void writesNonAsciiNames() throws IOException {
+        final IOHandler sut = new IOHandler(inputFile.getAbsolutePath(), outputFile.getAbsolutePath(), true, 100);
+        sut.writeOutput(Flowable.just(clique("jürgen", "zoë")));
+
+        Assert.assertEquals(Files.readAllLines(outputFile.toPath()), Collections.singletonList("jürgen zoë"));
+    }
+
+    // 40 disjoint edges a_i - b_i, emitted in decreasing order
+    private Flowable<Clique> getCliques() {
+        final Graph graph = new Graph();
+        IntStream.range(0, 40).forEach(i -> graph.addEdge(new Node("a" + i), new Node("b" + i)));
+        final Set<Node> nodes = IntStream.range(0, 40)
+                .boxed()
+                .flatMap(i -> Stream.of(new Node("a" + i), new Node("b" + i)))
+                .collect(Collectors.toSet());
+        return new BitSetBronKerbosch(graph).stream(nodes);
+    }
+
+    // the solvers are the only ones which create cliques
+    private Clique clique(final String... names) {
+        final Graph graph = new Graph();
+        for (final String n1 : names) {
+            for (final String n2 : names) {
+                graph.addEdge(new Node(n1), new Node(n2));
+            }
+        }
+        return new BitSetBronKerbosch(graph)
+                .compute(Arrays.stream(names).map(Node::new).collect(Collectors.toSet()))
+                .iterator().next();
+    }
+}
@@ -0,0 +1,99 @@
+package cliquefinder.datafetcher;
+
+import com.google.common.collect.ImmutableMap;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tests for the AIMD concurrency limit.
+ * Created by qr4 on 19.08.17.
+ */
+public class ConcurrencyControllerTest {
+    private static final long LATENCY = 1_000_000;
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsAStartLimitAboveTheMaximum() {
+        new ConcurrencyController("test", 4, 2);
+    }
+
+    @Test
+    public void queuesRequestsBeyondTheLimit() {
+        final ConcurrencyController sut = new ConcurrencyController("test", 2, 2);
+        final CompletableFuture<Void> first = sut.acquire();
+        final CompletableFuture<Void> second = sut.acquire();
+        final CompletableFuture<Void> third = sut.acquire();
+        Assert.assertTrue(first.isDone());
+        Assert.assertTrue(second.isDone());
+        Assert.assertFalse(third.isDone());
+
+        sut.release(response(200), LATENCY);
+        Assert.assertTrue(third.isDone());
+        Assert.assertEquals(sut.getInFlight(), 2);
+    }
+
+    @Test
+    public void raisesTheLimitByAboutOnePerRoundTrip() {
+        final ConcurrencyController sut = new ConcurrencyController("test", 2, 4);
+        // 2 + 1/2 + 1/2.5 + 1/2.9
+        completeRequests(sut, 3, 200, LATENCY);
+        Assert.assertEquals(sut.getLimit(), 3);
+
+        for (int i = 0; i < 10; i++) {
+            completeRequests(sut, sut.getLimit(), 200, LATENCY);
+        }
+        Assert.assertEquals(sut.getLimit(), 4);
+    }
+
+    @Test
+    public void halvesTheLimitOnTooManyRequestsOncePerRoundTrip() {
+        final ConcurrencyController sut = new ConcurrencyController("test", 8, 8);
+        for (int i = 0; i < 8; i++) {
+            sut.acquire();
+        }
+        // all of the requests in flight get a 429, but only the first one counts
+        for (int i = 0; i < 8; i++) {
+            sut.release(response(429), LATENCY);
+        }
+        Assert.assertEquals(sut.getLimit(), 4);
+
+        // the next round trip fails as well
+        sut.acquire();
+        sut.release(null, LATENCY);
+        Assert.assertEquals(sut.getLimit(), 2);
+    }
+
+    @Test
+    public void halvesTheLimitOnServerErrorsAndSlowResponses() {
+        final ConcurrencyController sut = new ConcurrencyController("test", 8, 8);
+        completeRequests(sut, 1, 503, LATENCY);
+        Assert.assertEquals(sut.getLimit(), 4);
+
+        completeRequests(sut, 1, 200, LATENCY);
+        completeRequests(sut, 1, 200, 10 * LATENCY);
+        Assert.assertEquals(sut.getLimit(), 2);
+    }
+
+    @Test
+    public void neverGoesBelowOne() {
+        final ConcurrencyController sut = new ConcurrencyController("test", 1, 1);
+        completeRequests(sut, 5, 500, LATENCY);
+        Assert.assertEquals(sut.getLimit(), 1);
+        Assert.assertTrue(sut.acquire().isDone());
+    }
+
+    private static void completeRequests(final ConcurrencyController sut, final int count, final int status,
+                                         final long latency) {
+        for (int i = 0; i < count; i++) {
+            sut.acquire();
+        }
+        for (int i = 0; i < count; i++) {
+            sut.release(response(status), latency);
+        }
+    }
+
+    private static HttpResult response(final int status) {
+        return new HttpResult(status, "", new byte[0], ImmutableMap.of(), false);
+    }
+}
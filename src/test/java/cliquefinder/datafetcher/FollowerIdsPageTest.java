@@ -0,0 +1,60 @@
+package cliquefinder.datafetcher;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests for the streaming parser of the follower id pages.
+ * Created by qr4 on 20.08.17.
+ */
+public class FollowerIdsPageTest {
+
+    @Test
+    public void parsesNumericIdsAndSkipsTheOtherFields() throws IOException {
+        final FollowerIdsPage page = parse("{\"previous_cursor\":0, \"ids\":[1, 9007199254740993],"
+                + " \"next_cursor\":1570000000000000000, \"next_cursor_str\":\"1570000000000000000\","
+                + " \"extra\":{\"nested\":[1, 2, {\"a\":null}]}}");
+
+        Assert.assertEquals(page.getIds(), new long[]{1, 9007199254740993L});
+        Assert.assertEquals(page.getNextCursor(), 1570000000000000000L);
+    }
+
+    @Test
+    public void parsesIdsAndCursorsGivenAsStrings() throws IOException {
+        final FollowerIdsPage page = parse("{\"next_cursor\":\"0\", \"ids\":[\"2\",\"3\"]}");
+
+        Assert.assertEquals(page.getIds(), new long[]{2, 3});
+        Assert.assertEquals(page.getNextCursor(), 0);
+    }
+
+    @Test
+    public void growsBeyondAFullPage() throws IOException {
+        final StringBuilder json = new StringBuilder("{\"ids\":[");
+        for (int i = 0; i < 12345; i++) {
+            json.append(i == 0 ? "" : ",").append(i);
+        }
+        final FollowerIdsPage page = parse(json.append("]}").toString());
+
+        Assert.assertEquals(page.getIds().length, 12345);
+        Assert.assertEquals(page.getIds()[12344], 12344);
+        Assert.assertEquals(page.getNextCursor(), 0);
+    }
+
+    @Test
+    public void handlesEmptyPagesAndMissingFields() throws IOException {
+        Assert.assertEquals(parse("{\"ids\":[], \"next_cursor\":null}").getIds().length, 0);
+        Assert.assertEquals(parse("{}").getIds().length, 0);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void rejectsTruncatedPages() throws IOException {
+        parse("{\"ids\":[1, 2");
+    }
+
+    private static FollowerIdsPage parse(final String json) throws IOException {
+        return FollowerIdsPage.parse(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
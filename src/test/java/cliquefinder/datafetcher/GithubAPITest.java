@@ -1,5 +1,6 @@
 package cliquefinder.datafetcher;
 
+import cliquefinder.metrics.Metrics;
 import cliquefinder.model.GithubAccount;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
@@ -10,7 +11,11 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
@@ -50,7 +55,7 @@ public class GithubAPITest {
     public void constructsRequestsCorrectly() {
         final List<Flowable<GithubAccount>> observables = sut.fetchOrganizationsForNames(ImmutableSet.of("foo", "bar"));
 
-        assertOnlyOneEmittedGithubAccountsEquals(observables.get(0).test().assertComplete().values(),
+        assertOnlyOneEmittedGithubAccountsEquals(observables.get(0).test().awaitDone(5, TimeUnit.SECONDS).assertComplete().values(),
                 account -> {
                     Assert.assertEquals(account.getName(), "foo");
                     Assert.assertEquals(account.getGithubOrganizations().length, 2);
@@ -59,7 +64,7 @@ public class GithubAPITest {
                     return true;
                 });
 
-        assertOnlyOneEmittedGithubAccountsEquals(observables.get(1).test().assertComplete().values(),
+        assertOnlyOneEmittedGithubAccountsEquals(observables.get(1).test().awaitDone(5, TimeUnit.SECONDS).assertComplete().values(),
                 account -> {
                     Assert.assertEquals(account.getName(), "bar");
                     Assert.assertEquals(account.getGithubOrganizations().length, 1);
@@ -74,7 +79,7 @@ public class GithubAPITest {
         wireMock.register(WireMock.get(WireMock.urlEqualTo("/users/faulty/orgs"))
                 .willReturn(WireMock.badRequest()));
 
-        assertOnlyOneEmittedGithubAccountsEquals(observables.get(0).test().assertComplete().values(),
+        assertOnlyOneEmittedGithubAccountsEquals(observables.get(0).test().awaitDone(5, TimeUnit.SECONDS).assertComplete().values(),
                 account -> {
                     Assert.assertEquals(account.getName(), "foo");
                     Assert.assertEquals(account.getGithubOrganizations().length, 2);
@@ -83,7 +88,39 @@ public class GithubAPITest {
                     return true;
                 });
 
-        Assert.assertEquals(observables.get(1).test().valueCount(), 0);
+        // the name is skipped, the fetch as a whole goes on
+        Assert.assertEquals(observables.get(1).test().awaitDone(5, TimeUnit.SECONDS).assertComplete().valueCount(), 0);
+    }
+
+    @Test
+    public void revalidatesCachedResponsesWithTheirEtag() throws IOException {
+        final Path file = Files.createTempFile("responses", ".cache");
+        try (ResponseCache cache = new ResponseCache(file, 0)) {
+            final Metrics metrics = new Metrics();
+            final GithubAPI cachedSut = new GithubAPI("http://localhost:8089",
+                    new RequestExecutor(cache, null, null, metrics));
+            wireMock.register(WireMock.get(WireMock.urlEqualTo("/users/baz/orgs"))
+                    .willReturn(WireMock.okJson("[{\"id\":\"bazId\"}]").withHeader("ETag", "\"v1\"")));
+            cachedSut.fetchOrganizationsForNames(ImmutableSet.of("baz")).get(0).test().awaitDone(5, TimeUnit.SECONDS).assertComplete();
+
+            // the entry is stale right away (ttl 0), so the second fetch asks whether it changed
+            wireMock.register(WireMock.get(WireMock.urlEqualTo("/users/baz/orgs"))
+                    .withHeader("If-None-Match", WireMock.equalTo("\"v1\""))
+                    .willReturn(WireMock.aResponse().withStatus(304)));
+            assertOnlyOneEmittedGithubAccountsEquals(
+                    cachedSut.fetchOrganizationsForNames(ImmutableSet.of("baz")).get(0).test().awaitDone(5, TimeUnit.SECONDS).assertComplete().values(),
+                    account -> {
+                        Assert.assertEquals(account.getGithubOrganizations().length, 1);
+                        Assert.assertEquals(account.getGithubOrganizations()[0].getId(), "bazId");
+                        return true;
+                    });
+            wireMock.verifyThat(WireMock.getRequestedFor(WireMock.urlEqualTo("/users/baz/orgs"))
+                    .withHeader("If-None-Match", WireMock.equalTo("\"v1\"")));
+            Assert.assertEquals(metrics.getCount("http.github.orgs.cacheHit"), 1);
+            cachedSut.close();
+        } finally {
+            Files.delete(file);
+        }
     }
 
     private void assertOnlyOneEmittedGithubAccountsEquals(
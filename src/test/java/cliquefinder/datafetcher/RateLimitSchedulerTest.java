@@ -0,0 +1,110 @@
+package cliquefinder.datafetcher;
+
+import com.google.common.collect.ImmutableMap;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the pacing of the requests by the rate limit scheduler.
+ * Created by qr4 on 18.08.17.
+ */
+public class RateLimitSchedulerTest {
+    private static final String ENDPOINT = "http://localhost/followers/ids.json";
+
+    private RateLimitScheduler sut;
+
+    @BeforeMethod
+    public void createScheduler() {
+        sut = new RateLimitScheduler(2, TimeUnit.MINUTES.toMillis(15), System::currentTimeMillis);
+    }
+
+    @AfterMethod
+    public void closeScheduler() {
+        sut.close();
+    }
+
+    @Test
+    public void handsOutTheDefaultLimitBeforeTheFirstResponse() {
+        final CompletableFuture<Void> first = sut.acquire(ENDPOINT);
+        final CompletableFuture<Void> second = sut.acquire(ENDPOINT);
+        final CompletableFuture<Void> third = sut.acquire(ENDPOINT);
+
+        Assert.assertTrue(first.isDone());
+        Assert.assertTrue(second.isDone());
+        Assert.assertFalse(third.isDone());
+        Assert.assertEquals(sut.getWaitingCount(ENDPOINT), 1);
+    }
+
+    @Test
+    public void endpointsWithoutRateLimitHeadersAreUnlimited() {
+        sut.acquire(ENDPOINT);
+        sut.acquire(ENDPOINT);
+        final CompletableFuture<Void> third = sut.acquire(ENDPOINT);
+        Assert.assertFalse(third.isDone());
+
+        sut.onResponse(ENDPOINT, response(200, ImmutableMap.of()));
+
+        Assert.assertTrue(third.isDone());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(sut.acquire(ENDPOINT).isDone());
+        }
+    }
+
+    @Test
+    public void usesTheRemainingRequestsOfTheServer() {
+        sut.acquire(ENDPOINT);
+        sut.onResponse(ENDPOINT, response(200, limitHeaders(3, nowInSeconds() + 60)));
+
+        Assert.assertTrue(sut.acquire(ENDPOINT).isDone());
+        Assert.assertTrue(sut.acquire(ENDPOINT).isDone());
+        Assert.assertTrue(sut.acquire(ENDPOINT).isDone());
+        Assert.assertFalse(sut.acquire(ENDPOINT).isDone());
+    }
+
+    @Test
+    public void parksRequestsUntilTheReset() throws Exception {
+        sut.acquire(ENDPOINT);
+        final long start = System.currentTimeMillis();
+        sut.onResponse(ENDPOINT, response(429, limitHeaders(0, nowInSeconds() + 1)));
+
+        final CompletableFuture<Void> parked = sut.acquire(ENDPOINT);
+        Assert.assertFalse(parked.isDone());
+
+        parked.get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(System.currentTimeMillis() - start >= 1000);
+    }
+
+    @Test
+    public void subtractsTheRequestsInFlightFromTheRemainingOnes() {
+        sut.acquire(ENDPOINT);
+        sut.acquire(ENDPOINT);
+        // the second request is still on its way, so it will use up the last remaining one
+        sut.onResponse(ENDPOINT, response(200, limitHeaders(1, nowInSeconds() + 60)));
+        final CompletableFuture<Void> parked = sut.acquire(ENDPOINT);
+        Assert.assertFalse(parked.isDone());
+
+        // it did not: the server still counts one
+        sut.onResponse(ENDPOINT, response(200, limitHeaders(1, nowInSeconds() + 60)));
+        Assert.assertTrue(parked.isDone());
+    }
+
+    private static HttpResult response(final int status, final ImmutableMap<String, String> headers) {
+        return new HttpResult(status, "", new byte[0], headers, false);
+    }
+
+    private static ImmutableMap<String, String> limitHeaders(final int remaining, final long reset) {
+        return ImmutableMap.of(
+                "x-rate-limit-limit", "15",
+                "x-rate-limit-remaining", String.valueOf(remaining),
+                "x-rate-limit-reset", String.valueOf(reset));
+    }
+
+    private static long nowInSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,152 @@
+package cliquefinder.datafetcher;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for the append-only response cache.
+ * Created by qr4 on 17.08.17.
+ */
+public class ResponseCacheTest {
+    private static final long TTL = 1000;
+
+    private Path file;
+    private AtomicLong now;
+
+    @BeforeMethod
+    public void createFile() throws IOException {
+        file = Files.createTempFile("responses", ".cache");
+        now = new AtomicLong(0);
+    }
+
+    @AfterMethod
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void returnsNothingForUnknownUrls() throws IOException {
+        try (ResponseCache cache = open()) {
+            Assert.assertNull(cache.get("http://localhost/unknown"));
+        }
+    }
+
+    @Test
+    public void entriesAreFreshForTheTimeToLive() throws IOException {
+        try (ResponseCache cache = open()) {
+            cache.put("http://localhost/a", "\"etag\"", bytes("body"));
+
+            ResponseCache.CachedResponse cached = cache.get("http://localhost/a");
+            Assert.assertTrue(cached.isFresh());
+            Assert.assertEquals(cached.getEtag(), "\"etag\"");
+            Assert.assertEquals(cached.getBody(), bytes("body"));
+
+            now.set(TTL);
+            cached = cache.get("http://localhost/a");
+            Assert.assertFalse(cached.isFresh());
+            Assert.assertEquals(cached.getBody(), bytes("body"));
+        }
+    }
+
+    @Test
+    public void laterEntriesReplaceEarlierOnesAndSurviveReopening() throws IOException {
+        try (ResponseCache cache = open()) {
+            cache.put("http://localhost/a", null, bytes("old"));
+            cache.put("http://localhost/b", "\"b\"", bytes("other"));
+            cache.put("http://localhost/a", "\"a\"", bytes("new"));
+        }
+
+        try (ResponseCache cache = open()) {
+            Assert.assertEquals(cache.size(), 2);
+            Assert.assertEquals(cache.get("http://localhost/a").getBody(), bytes("new"));
+            Assert.assertEquals(cache.get("http://localhost/a").getEtag(), "\"a\"");
+            Assert.assertEquals(cache.get("http://localhost/b").getBody(), bytes("other"));
+        }
+    }
+
+    @Test
+    public void renewalsKeepTheBodyAndOnlyAppendTheTime() throws IOException {
+        final byte[] body = new byte[4096];
+        try (ResponseCache cache = open()) {
+            cache.put("http://localhost/a", "\"a\"", body);
+            final long size = Files.size(file);
+
+            now.set(TTL);
+            Assert.assertFalse(cache.get("http://localhost/a").isFresh());
+            for (int i = 0; i < 10; i++) {
+                cache.renew("http://localhost/a");
+            }
+            cache.renew("http://localhost/unknown");
+
+            Assert.assertTrue(cache.get("http://localhost/a").isFresh());
+            Assert.assertTrue(Files.size(file) - size < body.length);
+        }
+
+        try (ResponseCache cache = open()) {
+            final ResponseCache.CachedResponse cached = cache.get("http://localhost/a");
+            Assert.assertTrue(cached.isFresh());
+            Assert.assertEquals(cached.getEtag(), "\"a\"");
+            Assert.assertEquals(cached.getBody(), body);
+            Assert.assertNull(cache.get("http://localhost/unknown"));
+        }
+    }
+
+    @Test
+    public void dropsPartlyWrittenRecords() throws IOException {
+        try (ResponseCache cache = open()) {
+            cache.put("http://localhost/a", null, bytes("complete"));
+            cache.put("http://localhost/b", null, bytes("cut off"));
+        }
+        final long size = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        try (ResponseCache cache = open()) {
+            Assert.assertEquals(cache.size(), 1);
+            Assert.assertEquals(cache.get("http://localhost/a").getBody(), bytes("complete"));
+            Assert.assertNull(cache.get("http://localhost/b"));
+            // new records are appended right after the last complete one
+            cache.put("http://localhost/b", null, bytes("again"));
+        }
+
+        try (ResponseCache cache = open()) {
+            Assert.assertEquals(cache.get("http://localhost/b").getBody(), bytes("again"));
+        }
+    }
+
+    @Test
+    public void compactsFilesWithMostlyOutdatedRecords() throws IOException {
+        final byte[] body = new byte[64 * 1024];
+        try (ResponseCache cache = open()) {
+            for (int i = 0; i < 32; i++) {
+                body[0] = (byte) i;
+                cache.put("http://localhost/a", null, body);
+            }
+        }
+        Assert.assertTrue(Files.size(file) > 32L * body.length);
+
+        try (ResponseCache cache = open()) {
+            Assert.assertTrue(Files.size(file) < 2L * body.length);
+            Assert.assertEquals(cache.get("http://localhost/a").getBody()[0], (byte) 31);
+        }
+    }
+
+    private ResponseCache open() throws IOException {
+        return new ResponseCache(file, TTL, now::get);
+    }
+
+    private static byte[] bytes(final String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+}
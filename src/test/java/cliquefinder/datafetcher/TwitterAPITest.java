@@ -1,18 +1,23 @@
 package cliquefinder.datafetcher;
 
 import cliquefinder.model.TwitterAccount;
+import cliquefinder.model.TwitterUser;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import io.reactivex.Flowable;
+import io.reactivex.subscribers.TestSubscriber;
 import javafx.util.Pair;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
@@ -74,7 +79,7 @@ public class TwitterAPITest {
     @Test
     public void constructsLookupRequestsCorrectly() {
        final List<Flowable<Pair<String,String>>> flowables = sut.fetchIdsForNames(ImmutableSet.of("name1", "name2"));
-       Assert.assertEquals(flowables.get(0).test().assertComplete().values(),
+       Assert.assertEquals(flowables.get(0).test().awaitDone(5, TimeUnit.SECONDS).assertComplete().values(),
                ImmutableList.of(new Pair<>("name1","1"), new Pair<>("name2", "2")));
     }
 
@@ -82,27 +87,96 @@ public class TwitterAPITest {
     public void constructsFollowersRequestsCorrectly() {
         final List<Flowable<TwitterAccount>> flowables = sut.fetchFollowersForNames(ImmutableSet.of("foo", "bar"));
 
-        assertEmittedTwitterAccount(flowables.get(0).test().assertComplete().values(),
+        assertEmittedTwitterAccount(flowables.get(0).test().awaitDone(5, TimeUnit.SECONDS).assertComplete().values(),
                 account -> {
                     Assert.assertEquals(account.getName(), "foo");
                     Assert.assertEquals(account.getFollowersIds().length, 2);
-                    Assert.assertEquals(account.getFollowersIds()[0],"123");
-                    Assert.assertEquals(account.getFollowersIds()[1],"42");
+                    Assert.assertEquals(account.getFollowersIds()[0],123L);
+                    Assert.assertEquals(account.getFollowersIds()[1],42L);
                     return true;
                 });
 
         // we expect 2 emissions
-        final List<TwitterAccount> emittedValues = flowables.get(1).test().assertComplete().values();
+        final List<TwitterAccount> emittedValues = flowables.get(1).test().awaitDone(5, TimeUnit.SECONDS).assertComplete().values();
         Assert.assertEquals(emittedValues.size(), 2);
 
         Assert.assertEquals(emittedValues.get(0).getName(), "bar");
         Assert.assertEquals(emittedValues.get(0).getFollowersIds().length, 1);
-        Assert.assertEquals(emittedValues.get(0).getFollowersIds()[0], "1");
+        Assert.assertEquals(emittedValues.get(0).getFollowersIds()[0], 1L);
 
         Assert.assertEquals(emittedValues.get(1).getName(), "bar");
         Assert.assertEquals(emittedValues.get(1).getFollowersIds().length, 2);
-        Assert.assertEquals(emittedValues.get(1).getFollowersIds()[0], "2");
-        Assert.assertEquals(emittedValues.get(1).getFollowersIds()[1], "3");
+        Assert.assertEquals(emittedValues.get(1).getFollowersIds()[0], 2L);
+        Assert.assertEquals(emittedValues.get(1).getFollowersIds()[1], 3L);
+    }
+
+    @Test
+    public void fetchesAtMostOnePageAheadOfTheSubscriber() throws InterruptedException {
+        mockOkIdsResponse(wireMock, "-1", "baz", "{\"next_cursor\":1, \"ids\":[\"1\"]}");
+        mockOkIdsResponse(wireMock, "1", "baz", "{\"next_cursor\":2, \"ids\":[\"2\"]}");
+        mockOkIdsResponse(wireMock, "2", "baz", "{\"next_cursor\":0, \"ids\":[\"3\"]}");
+
+        final TestSubscriber<TwitterAccount> subscriber = sut.fetchFollowersForNames(ImmutableSet.of("baz")).get(0).test(1);
+        subscriber.awaitCount(1);
+        Thread.sleep(200);
+        wireMock.verifyThat(0, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/followers/ids.json"))
+                .withQueryParam("cursor", WireMock.equalTo("2")));
+
+        subscriber.requestMore(2);
+        subscriber.awaitDone(5, TimeUnit.SECONDS).assertComplete().assertValueCount(3);
+    }
+
+    @Test
+    public void fetchesUsersWithTheirCounts() {
+        wireMock.register(WireMock.post(WireMock.urlPathEqualTo("/users/lookup.json"))
+                .withQueryParam("screen_name", WireMock.equalTo("star"))
+                .willReturn(WireMock.okJson("[{\"id_str\":\"5\", \"screen_name\":\"star\","
+                        + " \"followers_count\":2000000, \"friends_count\":12}]")));
+
+        final List<TwitterUser> users = sut.fetchUsersForNames(ImmutableSet.of("star")).get(0).test()
+                .awaitDone(5, TimeUnit.SECONDS).assertComplete().values();
+        Assert.assertEquals(users.size(), 1);
+        Assert.assertEquals(users.get(0).getId(), 5L);
+        Assert.assertEquals(users.get(0).getName(), "star");
+        Assert.assertEquals(users.get(0).getFollowersCount(), 2000000);
+        Assert.assertEquals(users.get(0).getFriendsCount(), 12);
+    }
+
+    @Test
+    public void fetchesFriends() {
+        wireMock.register(WireMock.get(WireMock.urlPathEqualTo("/friends/ids.json"))
+                .withQueryParam("screen_name", WireMock.equalTo("star"))
+                .withQueryParam("cursor", WireMock.equalTo("-1"))
+                .willReturn(WireMock.okJson("{\"next_cursor\":0, \"ids\":[1, 2]}")));
+
+        assertEmittedTwitterAccount(sut.fetchFriendsForNames(ImmutableSet.of("star")).get(0).test()
+                        .awaitDone(5, TimeUnit.SECONDS).assertComplete().values(),
+                account -> {
+                    Assert.assertEquals(account.getFollowersIds(), new long[]{1, 2});
+                    return true;
+                });
+    }
+
+    @Test
+    public void emitsOnlyMutualFriendships() {
+        mockFriendshipResponse("a", "b", true, true);
+        mockFriendshipResponse("a", "c", true, false);
+
+        final List<Flowable<Pair<String, String>>> flowables = sut.fetchMutualFollows(
+                ImmutableList.of(new Pair<>("a", "b"), new Pair<>("a", "c")));
+
+        Assert.assertEquals(flowables.get(0).test().awaitDone(5, TimeUnit.SECONDS).assertComplete().values(),
+                ImmutableList.of(new Pair<>("a", "b")));
+        Assert.assertEquals(flowables.get(1).test().awaitDone(5, TimeUnit.SECONDS).assertComplete().valueCount(), 0);
+    }
+
+    private void mockFriendshipResponse(final String source, final String target,
+                                        final boolean following, final boolean followedBy) {
+        wireMock.register(WireMock.get(WireMock.urlPathEqualTo("/friendships/show.json"))
+                .withQueryParam("source_screen_name", WireMock.equalTo(source))
+                .withQueryParam("target_screen_name", WireMock.equalTo(target))
+                .willReturn(WireMock.okJson("{\"relationship\":{\"source\":{\"following\":" + following
+                        + ", \"followed_by\":" + followedBy + "}, \"target\":{}}}")));
     }
 
     @Test
@@ -114,7 +188,72 @@ public class TwitterAPITest {
                 .withQueryParam("screen_name", WireMock.equalTo("faulty"))
                 .willReturn(WireMock.badRequest())) ;
 
-        Assert.assertEquals(observables.get(0).test().assertComplete().valueCount(), 0);
+        Assert.assertEquals(observables.get(0).test().awaitDone(5, TimeUnit.SECONDS).assertComplete().valueCount(), 0);
+    }
+
+    @Test
+    public void retriesServerErrorsAndFailsIfThePagesBreakOff() {
+        mockOkIdsResponse(wireMock, "-1", "flaky", "{\"next_cursor\":1, \"ids\":[\"1\"]}");
+        wireMock.register(WireMock.get(WireMock.urlPathEqualTo("/followers/ids.json"))
+                .withQueryParam("screen_name", WireMock.equalTo("flaky"))
+                .withQueryParam("cursor", WireMock.equalTo("1"))
+                .inScenario("server error").whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.serverError())
+                .willSetStateTo("recovered"));
+        wireMock.register(WireMock.get(WireMock.urlPathEqualTo("/followers/ids.json"))
+                .withQueryParam("screen_name", WireMock.equalTo("flaky"))
+                .withQueryParam("cursor", WireMock.equalTo("1"))
+                .inScenario("server error").whenScenarioStateIs("recovered")
+                .willReturn(WireMock.okJson("{\"next_cursor\":0, \"ids\":[\"2\"]}")));
+
+        sut.fetchFollowersForNames(ImmutableSet.of("flaky")).get(0).test()
+                .awaitDone(5, TimeUnit.SECONDS).assertComplete().assertValueCount(2);
+
+        // the second page keeps failing, so the ids of the first one must not pass for the whole list
+        mockOkIdsResponse(wireMock, "-1", "broken", "{\"next_cursor\":1, \"ids\":[\"1\"]}");
+        wireMock.register(WireMock.get(WireMock.urlPathEqualTo("/followers/ids.json"))
+                .withQueryParam("screen_name", WireMock.equalTo("broken"))
+                .withQueryParam("cursor", WireMock.equalTo("1"))
+                .willReturn(WireMock.serverError()));
+
+        sut.fetchFollowersForNames(ImmutableSet.of("broken")).get(0).test()
+                .awaitDone(5, TimeUnit.SECONDS).assertError(IOException.class);
+        wireMock.verifyThat(6, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/followers/ids.json"))
+                .withQueryParam("screen_name", WireMock.equalTo("broken"))
+                .withQueryParam("cursor", WireMock.equalTo("1")));
+
+        // a page which is refused after the first one breaks the list off as well
+        mockOkIdsResponse(wireMock, "-1", "gone", "{\"next_cursor\":1, \"ids\":[\"1\"]}");
+        sut.fetchFollowersForNames(ImmutableSet.of("gone")).get(0).test()
+                .awaitDone(5, TimeUnit.SECONDS).assertError(IOException.class);
+    }
+
+    @Test
+    public void waitsForTheResetOfTheRateLimit() {
+        final long reset = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 1;
+        wireMock.register(WireMock.get(WireMock.urlPathEqualTo("/followers/ids.json"))
+                .withQueryParam("screen_name", WireMock.equalTo("limited"))
+                .inScenario("rate limit").whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.aResponse().withStatus(429)
+                        .withHeader("x-rate-limit-limit", "15")
+                        .withHeader("x-rate-limit-remaining", "0")
+                        .withHeader("x-rate-limit-reset", String.valueOf(reset)))
+                .willSetStateTo("reset"));
+        wireMock.register(WireMock.get(WireMock.urlPathEqualTo("/followers/ids.json"))
+                .withQueryParam("screen_name", WireMock.equalTo("limited"))
+                .inScenario("rate limit").whenScenarioStateIs("reset")
+                .willReturn(WireMock.okJson("{\"next_cursor\":0, \"ids\":[\"7\"]}")));
+
+        final List<Flowable<TwitterAccount>> flowables = sut.fetchFollowersForNames(ImmutableSet.of("limited"));
+
+        assertEmittedTwitterAccount(flowables.get(0).test().awaitDone(10, TimeUnit.SECONDS).assertComplete().values(),
+                account -> {
+                    Assert.assertEquals(account.getFollowersIds().length, 1);
+                    Assert.assertEquals(account.getFollowersIds()[0], 7L);
+                    return true;
+                });
+        wireMock.verifyThat(2, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/followers/ids.json"))
+                .withQueryParam("screen_name", WireMock.equalTo("limited")));
     }
 
     private void assertEmittedTwitterAccount(
@@ -0,0 +1,53 @@
+package cliquefinder.metrics;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Unit tests for the log-linear histogram.
+ * Created by qr4 on 27.08.17.
+ */
+public class HistogramTest {
+    @Test
+    public void bucketsCoverAllValuesWithoutGaps() {
+        for (int bucket = 0; bucket < 200; bucket++) {
+            final long upperBound = Histogram.upperBound(bucket);
+            Assert.assertEquals(Histogram.bucket(upperBound), bucket);
+            Assert.assertEquals(Histogram.bucket(upperBound + 1), bucket + 1);
+        }
+        Assert.assertEquals(Histogram.upperBound(Histogram.bucket(Long.MAX_VALUE)), Long.MAX_VALUE);
+    }
+
+    @Test
+    public void percentilesAreAtMostAnEighthAboveTheExactOnes() {
+        final Histogram sut = new Histogram();
+        final Random random = new Random(5);
+        final long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 15);
+            sut.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (final double quantile : new double[]{0.1, 0.5, 0.9, 0.99}) {
+            final long exact = values[(int) Math.ceil(quantile * values.length) - 1];
+            Assert.assertTrue(sut.getPercentile(quantile) >= exact);
+            Assert.assertTrue(sut.getPercentile(quantile) <= exact * 1.125, quantile + ": " + exact);
+        }
+        Assert.assertEquals(sut.getPercentile(1), values[values.length - 1]);
+        Assert.assertEquals(sut.getCount(), values.length);
+        Assert.assertEquals(sut.getMean(), Arrays.stream(values).average().getAsDouble(), 1e-6);
+    }
+
+    @Test
+    public void emptyHistogramsAreAllZero() {
+        final Histogram sut = new Histogram();
+
+        Assert.assertEquals(sut.getPercentile(0.99), 0);
+        Assert.assertEquals(sut.getMean(), 0.0);
+        Assert.assertEquals(sut.summarize().get("max"), 0L);
+    }
+}
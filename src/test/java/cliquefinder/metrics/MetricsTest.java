@@ -0,0 +1,80 @@
+package cliquefinder.metrics;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Unit tests for the metrics registry and its json export.
+ * Created by qr4 on 27.08.17.
+ */
+public class MetricsTest {
+    @Test
+    public void countsFromSeveralThreads() throws Exception {
+        final Metrics sut = new Metrics();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        sut.increment("requests");
+                        sut.record("latency", i);
+                        sut.max("depth", i);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertEquals(sut.getCount("requests"), 40_000);
+        Assert.assertEquals(sut.getHistogram("latency").getCount(), 40_000);
+        Assert.assertEquals(sut.getGauge("depth"), 9_999);
+    }
+
+    @Test
+    public void unknownMetricsAreZero() {
+        final Metrics sut = new Metrics();
+
+        Assert.assertEquals(sut.getCount("unknown"), 0);
+        Assert.assertEquals(sut.getGauge("unknown"), 0);
+    }
+
+    @Test
+    public void exportsAllTheMetricsAsJson() throws IOException {
+        final Metrics sut = new Metrics();
+        sut.add("http.github.orgs.status.200", 3);
+        sut.set("graph.nodes", 42);
+        sut.record("http.github.orgs.latencyMicros", 100);
+        final Path file = Files.createTempFile("metrics", ".json");
+        try {
+            sut.writeJson(file);
+
+            final JsonObject json = new JsonParser().parse(
+                    new String(Files.readAllBytes(file), StandardCharsets.UTF_8)).getAsJsonObject();
+            Assert.assertEquals(json.getAsJsonObject("counters").get("http.github.orgs.status.200").getAsLong(), 3);
+            Assert.assertEquals(json.getAsJsonObject("gauges").get("graph.nodes").getAsLong(), 42);
+            final JsonObject latency = json.getAsJsonObject("histograms")
+                    .getAsJsonObject("http.github.orgs.latencyMicros");
+            Assert.assertEquals(latency.get("count").getAsLong(), 1);
+            Assert.assertEquals(latency.get("p99").getAsLong(), 100);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package cliquefinder.solver;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static cliquefinder.solver.BronKerboschTest.getGraphFromFile;
+import static cliquefinder.solver.BronKerboschTest.getNodes;
+import static cliquefinder.solver.BronKerboschTest.getRandomGraph;
+
+/**
+ * Unit tests for the bitset based Bron-Kerbosch solver. Besides the small example graphs we check that it
+ * finds exactly the same cliques as the set based implementation on random graphs.
+ * Created by qr4 on 02.08.17.
+ */
+public class BitSetBronKerboschTest {
+    private void assertResultEquals(final Set<Clique> result, final Set<Clique> expected) {
+        Assert.assertTrue(Sets.symmetricDifference(result, expected).isEmpty());
+    }
+
+    @Test
+    public void testWikiExampleGraph() {
+        final BitSetBronKerbosch sut = new BitSetBronKerbosch(getGraphFromFile("wikipedia_example_graph.txt"));
+        final Set<Clique> result = sut.compute(Stream.of("v1", "v2", "v3", "v4", "v5", "v6")
+                .map(Node::new)
+                .collect(Collectors.toSet()));
+
+        assertResultEquals(result, ImmutableSet.of(
+                new Clique(ImmutableSet.of(new Node("v6"), new Node("v4"))),
+                new Clique(ImmutableSet.of(new Node("v2"), new Node("v3"))),
+                new Clique(ImmutableSet.of(new Node("v2"), new Node("v5"), new Node("v1"))),
+                new Clique(ImmutableSet.of(new Node("v4"), new Node("v3"))),
+                new Clique(ImmutableSet.of(new Node("v4"), new Node("v5"))
+        )));
+    }
+
+    @Test
+    public void testWikiExampleGraphEmptyInputNodes() {
+        final BitSetBronKerbosch sut = new BitSetBronKerbosch(getGraphFromFile("wikipedia_example_graph.txt"));
+        assertResultEquals(sut.compute(ImmutableSet.of()), ImmutableSet.of());
+    }
+
+    @Test
+    public void testWikiExampleGraphTriangleNodes() {
+        final BitSetBronKerbosch sut = new BitSetBronKerbosch(getGraphFromFile("wikipedia_example_graph.txt"));
+        final Set<Clique> result = sut.compute(ImmutableSet.of(
+                new Node("v2"), new Node("v5"), new Node("v1")));
+
+        assertResultEquals(result, ImmutableSet.of(
+                new Clique(ImmutableSet.of(
+                        new Node("v1"), new Node("v2"), new Node("v5")))));
+    }
+
+    /**
+     * The input nodes contain a node which has no edges at all, it is a maximal clique on its own.
+     */
+    @Test
+    public void testIsolatedInputNode() {
+        final BitSetBronKerbosch sut = new BitSetBronKerbosch(getGraphFromFile("simple_graph.txt"));
+        final Set<Clique> result = sut.compute(ImmutableSet.of(
+                new Node("v1"), new Node("v2"), new Node("isolated")));
+
+        assertResultEquals(result, ImmutableSet.of(
+                new Clique(ImmutableSet.of(new Node("v1"), new Node("v2"))),
+                new Clique(ImmutableSet.of(new Node("isolated")))));
+    }
+
+    /**
+     * More than 64 nodes, so that the bitsets span multiple words.
+     */
+    @Test
+    public void matchesSetBasedSolverOnRandomGraphs() {
+        for (int seed = 0; seed < 10; seed++) {
+            final Graph graph = getRandomGraph(seed, 150, 0.2);
+            final Set<Node> nodes = getNodes(150);
+
+            assertResultEquals(new BitSetBronKerbosch(graph).compute(nodes), new BronKerbosch(graph).compute(nodes));
+        }
+    }
+}
@@ -8,8 +8,12 @@ import org.testng.annotations.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -103,9 +107,38 @@ public class BronKerboschTest {
         ));
     }
 
-    private Graph getGraphFromFile(final String fileName) {
+    @Test
+    public void testStreamEmitsEveryCliqueOnce() {
+        final BronKerbosch sut = new BronKerbosch(getGraphFromFile("two_scc_graph.txt"));
+        final List<Clique> emitted = sut.stream(ImmutableSet.of(
+                new Node("v1"),
+                new Node("v2"),
+                new Node("v3"),
+                new Node("v4"),
+                new Node("v5"),
+                new Node("v6"))).test().assertComplete().values();
+
+        Assert.assertEquals(emitted.size(), 2);
+        assertResultEquals(ImmutableSet.copyOf(emitted), ImmutableSet.of(
+                new Clique(ImmutableSet.of(new Node("v1"), new Node("v2"), new Node("v3"))),
+                new Clique(ImmutableSet.of(new Node("v4"), new Node("v5"), new Node("v6")))
+        ));
+    }
+
+    @Test
+    public void testConsumerIsCalledForEveryClique() {
+        final BronKerbosch sut = new BronKerbosch(getGraphFromFile("wikipedia_example_graph.txt"));
+        final List<Clique> consumed = new ArrayList<>();
+        sut.compute(Stream.of("v1", "v2", "v3", "v4", "v5", "v6").map(Node::new).collect(Collectors.toSet()),
+                consumed::add);
+
+        Assert.assertEquals(consumed.size(), 5);
+    }
+
+    // exposed for other tests
+    static Graph getGraphFromFile(final String fileName) {
         try {
-            final File file = new File( this.getClass().getResource( fileName ).getFile() );
+            final File file = new File( BronKerboschTest.class.getResource( fileName ).getFile() );
             final Graph graph = new Graph();
 
             Files.lines(file.toPath())
@@ -119,5 +152,24 @@ public class BronKerboschTest {
             return null;
         }
     }
+
+    // exposed for other tests: an Erdős–Rényi graph G(n, p) on the nodes v0 ... v(n-1)
+    static Graph getRandomGraph(final long seed, final int n, final double p) {
+        final Random random = new Random(seed);
+        final Graph graph = new Graph();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (random.nextDouble() < p) {
+                    graph.addEdge(new Node("v" + i), new Node("v" + j));
+                }
+            }
+        }
+        return graph;
+    }
+
+    // exposed for other tests
+    static Set<Node> getNodes(final int n) {
+        return IntStream.range(0, n).mapToObj(i -> new Node("v" + i)).collect(Collectors.toSet());
+    }
 }
 
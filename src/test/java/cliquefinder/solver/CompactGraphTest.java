@@ -0,0 +1,112 @@
+package cliquefinder.solver;
+
+import com.google.common.collect.ImmutableSet;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+import static cliquefinder.solver.BronKerboschTest.getGraphFromFile;
+
+/**
+ * Unit tests for the CSR graph which we get by freezing a {@link Graph}.
+ * Created by qr4 on 14.08.17.
+ */
+public class CompactGraphTest {
+    @Test
+    public void freezesNodesAndSortedNeighbors() {
+        final CompactGraph sut = getGraphFromFile("wikipedia_example_graph.txt").freeze();
+
+        Assert.assertEquals(sut.getNodeCount(), 6);
+        Assert.assertEquals(sut.getEdgeCount(), 7);
+        // ids are ordered by name: v1 -> 0, ..., v6 -> 5
+        Assert.assertEquals(sut.getNode(1), new Node("v2"));
+        Assert.assertEquals(sut.getId(new Node("v4")), 3);
+        Assert.assertEquals(sut.getNeighbors(3), new int[]{2, 4, 5});
+        Assert.assertEquals(sut.getDegree(1), 3);
+    }
+
+    @Test
+    public void returnsInvalidIdForUnknownNode() {
+        final CompactGraph sut = getGraphFromFile("simple_graph.txt").freeze();
+        Assert.assertEquals(sut.getId(new Node("unknown")), -1);
+    }
+
+    @Test
+    public void answersAdjacencyAndCommonNeighbors() {
+        final CompactGraph sut = getGraphFromFile("wikipedia_example_graph.txt").freeze();
+
+        Assert.assertTrue(sut.isAdjacent(0, 4));
+        Assert.assertTrue(sut.isAdjacent(4, 0));
+        Assert.assertFalse(sut.isAdjacent(0, 2));
+        // v1 and v2 share v5, v4 and v2 share v3 and v5
+        Assert.assertEquals(sut.countCommonNeighbors(0, 1), 1);
+        Assert.assertEquals(sut.countCommonNeighbors(3, 1), 2);
+        Assert.assertEquals(sut.countCommonNeighbors(5, 0), 0);
+    }
+
+    @Test
+    public void reportsMemoryFootprint() {
+        final CompactGraph sut = getGraphFromFile("two_scc_graph.txt").freeze();
+
+        Assert.assertEquals(sut.getEdgeCount(), 6);
+        Assert.assertTrue(sut.estimateMemoryFootprint() > 4 * 12);
+        Assert.assertEquals(sut.getBytesPerEdge(), sut.estimateMemoryFootprint() / 6.0, 1e-9);
+        Assert.assertEquals(new Graph().freeze().getBytesPerEdge(), 0.0);
+    }
+
+    @Test
+    public void convertsBackToGraph() {
+        final Graph graph = getGraphFromFile("wikipedia_example_graph.txt").freeze().toGraph();
+
+        Assert.assertEquals(graph.getAdjacentNodes(new Node("v4")),
+                ImmutableSet.of(new Node("v3"), new Node("v5"), new Node("v6")));
+    }
+
+    @Test
+    public void computesTheCoreOfTheInducedSubgraph() {
+        final CompactGraph sut = getGraphFromFile("wikipedia_example_graph.txt").freeze();
+        final ImmutableSet<Node> nodes = ImmutableSet.of(new Node("v1"), new Node("v2"), new Node("v3"),
+                new Node("v4"), new Node("v5"), new Node("v6"), new Node("unknown"));
+
+        // v6 has one neighbor, the others are on the cycles v1 v2 v5 and v2 v3 v4 v5
+        Assert.assertEquals(sut.getCore(nodes, 2), ImmutableSet.of(new Node("v1"), new Node("v2"), new Node("v3"),
+                new Node("v4"), new Node("v5")));
+        // removing v6, v1 and v3 leaves the path v2 v5 v4, which falls apart as well
+        Assert.assertEquals(sut.getCore(nodes, 3), ImmutableSet.of());
+        // the path v1 v2 v3 v4 has no 2-core, although v2 and v3 have more neighbors in the whole graph
+        Assert.assertEquals(sut.getCore(ImmutableSet.of(new Node("v1"), new Node("v2"), new Node("v3"),
+                new Node("v4")), 2), ImmutableSet.of());
+    }
+
+    @Test
+    public void countsTheGroupsForTheCore() {
+        final ConcurrentGraphBuilder builder = new ConcurrentGraphBuilder();
+        for (final String member : new String[]{"a", "b", "c", "d"}) {
+            builder.addGroupMember("org", member);
+        }
+        builder.addEdge("d", "e");
+        builder.addEdge("e", "f");
+        final CompactGraph sut = builder.freeze();
+        final ImmutableSet<Node> nodes = ImmutableSet.of(new Node("a"), new Node("b"), new Node("c"),
+                new Node("d"), new Node("e"), new Node("f"));
+
+        Assert.assertEquals(sut.getCore(nodes, 3), ImmutableSet.of(new Node("a"), new Node("b"), new Node("c"),
+                new Node("d")));
+        Assert.assertEquals(sut.getCore(nodes, 1), nodes);
+    }
+
+    @Test
+    public void computesTheSameCoreAsTheExpandedGraph() {
+        for (int seed = 0; seed < 5; seed++) {
+            // the organizations overlap, and their members may also have explicit edges
+            final CompactGraph sut = ConcurrentGraphBuilderTest.getRandomGroupedGraph(seed, 120);
+            final Graph expanded = sut.toGraph();
+            final Set<Node> nodes = BronKerboschTest.getNodes(100);
+
+            for (int k = 1; k < 12; k++) {
+                Assert.assertEquals(sut.getCore(nodes, k), expanded.getCore(nodes, k), "seed " + seed + ", k " + k);
+            }
+        }
+    }
+}
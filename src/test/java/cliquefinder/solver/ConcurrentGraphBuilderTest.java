@@ -0,0 +1,147 @@
+package cliquefinder.solver;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Unit tests for the thread safe graph builder.
+ * Created by qr4 on 16.08.17.
+ */
+public class ConcurrentGraphBuilderTest {
+    @Test
+    public void selfLoopsAreIgnored() {
+        final ConcurrentGraphBuilder sut = new ConcurrentGraphBuilder();
+        sut.addEdge("node1", "node1");
+
+        Assert.assertEquals(sut.getNodeCount(), 0);
+        Assert.assertEquals(sut.freeze().getNodeCount(), 0);
+    }
+
+    @Test
+    public void removesDuplicateEdgesAndOrdersNodesByName() {
+        final ConcurrentGraphBuilder sut = new ConcurrentGraphBuilder();
+        sut.addEdge("node3", "node1");
+        sut.addEdge("node1", "node3");
+        sut.addEdge("node2", "node1");
+
+        final CompactGraph graph = sut.freeze();
+        Assert.assertEquals(graph.getNodeCount(), 3);
+        Assert.assertEquals(graph.getEdgeCount(), 2);
+        Assert.assertEquals(graph.getNode(0), new Node("node1"));
+        Assert.assertEquals(graph.getNeighbors(0), new int[]{1, 2});
+        Assert.assertEquals(graph.getNeighbors(2), new int[]{0});
+    }
+
+    /**
+     * Several threads add the edges of a complete graph at the same time, every edge is added by two threads.
+     */
+    @Test
+    public void buildsTheSameGraphWhenWrittenConcurrently() throws Exception {
+        final int n = 200;
+        final int threads = 8;
+        final ConcurrentGraphBuilder sut = new ConcurrentGraphBuilder();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < n; i++) {
+                        for (int j = 0; j < n; j++) {
+                            if ((i * n + j) % threads == thread) {
+                                sut.addEdge("v" + i, "v" + j);
+                            }
+                        }
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        final CompactGraph graph = sut.freeze();
+        Assert.assertEquals(graph.getNodeCount(), n);
+        Assert.assertEquals(graph.getEdgeCount(), n * (n - 1) / 2);
+        for (int id = 0; id < n; id++) {
+            Assert.assertEquals(graph.getDegree(id), n - 1);
+        }
+    }
+
+    @Test
+    public void groupsMakeTheirMembersAdjacent() {
+        final ConcurrentGraphBuilder sut = new ConcurrentGraphBuilder();
+        sut.addGroupMember("org1", "a");
+        sut.addGroupMember("org1", "b");
+        sut.addGroupMember("org1", "c");
+        sut.addGroupMember("org2", "c");
+        sut.addGroupMember("org2", "d");
+        sut.addGroupMember("org2", "d");
+        sut.addGroupMember("solo", "e");
+        sut.addEdge("a", "d");
+        sut.addEdge("a", "b");
+
+        final CompactGraph graph = sut.freeze();
+        // a -> 0, ..., e -> 4
+        Assert.assertEquals(graph.getEdgeCount(), 2);
+        Assert.assertEquals(graph.getGroupCount(), 2);
+        Assert.assertEquals(graph.getMembershipCount(), 5);
+        Assert.assertEquals(graph.getNeighbors(0), new int[]{1, 2, 3});
+        Assert.assertEquals(graph.getNeighbors(2), new int[]{0, 1, 3});
+        Assert.assertEquals(graph.getNeighbors(4), new int[0]);
+        Assert.assertEquals(graph.getDegree(3), 2);
+        Assert.assertTrue(graph.isAdjacent(1, 2));
+        Assert.assertTrue(graph.isAdjacent(3, 2));
+        Assert.assertFalse(graph.isAdjacent(1, 3));
+        Assert.assertFalse(graph.isAdjacent(2, 2));
+        Assert.assertEquals(graph.countCommonNeighbors(0, 2), 2);
+        Assert.assertEquals(graph.toGraph().getAdjacentNodes(new Node("c")),
+                ImmutableSet.of(new Node("a"), new Node("b"), new Node("d")));
+    }
+
+    @Test
+    public void solversSeeTheGroupsAsTheirEdges() {
+        for (int seed = 0; seed < 5; seed++) {
+            final CompactGraph graph = getRandomGroupedGraph(seed, 120);
+            final Set<Node> nodes = BronKerboschTest.getNodes(120);
+            final Set<Clique> expected = new BronKerbosch(graph.toGraph()).compute(nodes);
+
+            Assert.assertTrue(Sets.symmetricDifference(
+                    new DegeneracyBronKerbosch(graph, PivotStrategy.TOMITA).compute(nodes), expected).isEmpty());
+            Assert.assertTrue(Sets.symmetricDifference(
+                    new ParallelBronKerbosch(graph, 4, PivotStrategy.TOMITA).compute(nodes), expected).isEmpty());
+        }
+    }
+
+    // exposed for other tests: sparse random edges and a few random organizations on the nodes v0 ... v(n-1)
+    static CompactGraph getRandomGroupedGraph(final long seed, final int n) {
+        final Random random = new Random(seed);
+        final ConcurrentGraphBuilder builder = new ConcurrentGraphBuilder();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (random.nextDouble() < 0.03) {
+                    builder.addEdge("v" + i, "v" + j);
+                }
+            }
+        }
+        for (int group = 0; group < 10; group++) {
+            final int size = 2 + random.nextInt(n / 5);
+            for (int i = 0; i < size; i++) {
+                builder.addGroupMember("org" + group, "v" + random.nextInt(n));
+            }
+        }
+        return builder.freeze();
+    }
+}
@@ -0,0 +1,81 @@
+package cliquefinder.solver;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static cliquefinder.solver.BronKerboschTest.getGraphFromFile;
+import static cliquefinder.solver.BronKerboschTest.getNodes;
+import static cliquefinder.solver.BronKerboschTest.getRandomGraph;
+
+/**
+ * Unit tests for the degeneracy ordered Bron-Kerbosch solver.
+ * Created by qr4 on 06.08.17.
+ */
+public class DegeneracyBronKerboschTest {
+    private void assertResultEquals(final Set<Clique> result, final Set<Clique> expected) {
+        Assert.assertTrue(Sets.symmetricDifference(result, expected).isEmpty());
+    }
+
+    @Test
+    public void testWikiExampleGraph() {
+        final DegeneracyBronKerbosch sut = new DegeneracyBronKerbosch(getGraphFromFile("wikipedia_example_graph.txt"));
+        final Set<Clique> result = sut.compute(Stream.of("v1", "v2", "v3", "v4", "v5", "v6")
+                .map(Node::new)
+                .collect(Collectors.toSet()));
+
+        assertResultEquals(result, ImmutableSet.of(
+                new Clique(ImmutableSet.of(new Node("v6"), new Node("v4"))),
+                new Clique(ImmutableSet.of(new Node("v2"), new Node("v3"))),
+                new Clique(ImmutableSet.of(new Node("v2"), new Node("v5"), new Node("v1"))),
+                new Clique(ImmutableSet.of(new Node("v4"), new Node("v3"))),
+                new Clique(ImmutableSet.of(new Node("v4"), new Node("v5"))
+        )));
+    }
+
+    @Test
+    public void matchesSetBasedSolverOnRandomGraphs() {
+        for (int seed = 0; seed < 10; seed++) {
+            final Graph graph = getRandomGraph(seed, 150, 0.1);
+            final Set<Node> nodes = getNodes(150);
+
+            assertResultEquals(new DegeneracyBronKerbosch(graph).compute(nodes), new BronKerbosch(graph).compute(nodes));
+        }
+    }
+
+    /**
+     * A hub with 100 leaves and a triangle hanging off the hub has degeneracy 2: no node may have more
+     * than 2 neighbors later in the order, although the hub has 102 neighbors.
+     */
+    @Test
+    public void degeneracyOrderBoundsLaterNeighbors() {
+        final Graph graph = new Graph();
+        final Node hub = new Node("hub");
+        final Set<Node> nodes = new HashSet<>(ImmutableSet.of(hub, new Node("t1"), new Node("t2")));
+        for (int i = 0; i < 100; i++) {
+            final Node leaf = new Node("leaf" + i);
+            nodes.add(leaf);
+            graph.addEdge(hub, leaf);
+        }
+        graph.addEdge(hub, new Node("t1"));
+        graph.addEdge(hub, new Node("t2"));
+        graph.addEdge(new Node("t1"), new Node("t2"));
+
+        final IndexedGraph indexedGraph = IndexedGraph.of(graph, nodes);
+        final int[] order = indexedGraph.degeneracyOrder();
+        Assert.assertEquals(order.length, nodes.size());
+
+        final long[] later = indexedGraph.allNodes();
+        for (final int v : order) {
+            BitSets.clear(later, v);
+            Assert.assertTrue(BitSets.intersectionSize(indexedGraph.getAdjacencyRow(v), later) <= 2);
+        }
+        Assert.assertTrue(BitSets.isEmpty(later));
+    }
+}
@@ -0,0 +1,159 @@
+package cliquefinder.solver;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import io.reactivex.Flowable;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static cliquefinder.solver.BronKerboschTest.getNodes;
+
+/**
+ * Unit tests for the edge delta between two graphs and the recomputation of the affected cliques.
+ * Created by qr4 on 23.08.17.
+ */
+public class DeltaBronKerboschTest {
+
+    @Test
+    public void findsTheChangedEdgesAndTheirEndPoints() {
+        final Graph previous = new Graph();
+        previous.addEdge(new Node("a"), new Node("b"));
+        previous.addEdge(new Node("b"), new Node("c"));
+        previous.addEdge(new Node("c"), new Node("gone"));
+        final Graph current = new Graph();
+        current.addEdge(new Node("a"), new Node("b"));
+        current.addEdge(new Node("c"), new Node("d"));
+
+        final GraphDelta sut = GraphDelta.between(previous.freeze(), current.freeze());
+
+        Assert.assertEquals(sut.getAddedEdges(), 1);
+        Assert.assertEquals(sut.getRemovedEdges(), 2);
+        Assert.assertEquals(sut.getAffectedNodes(),
+                ImmutableSet.of(new Node("b"), new Node("c"), new Node("d"), new Node("gone")));
+    }
+
+    @Test
+    public void keepsTheUnaffectedCliquesAndRecomputesTheOthers() {
+        final Graph previous = new Graph();
+        previous.addEdge(new Node("a"), new Node("b"));
+        previous.addEdge(new Node("b"), new Node("c"));
+        previous.addEdge(new Node("x"), new Node("y"));
+        final Graph current = new Graph();
+        current.addEdge(new Node("a"), new Node("b"));
+        current.addEdge(new Node("b"), new Node("c"));
+        current.addEdge(new Node("a"), new Node("c"));
+        current.addEdge(new Node("x"), new Node("y"));
+        final Set<Node> nodes = ImmutableSet.of(new Node("a"), new Node("b"), new Node("c"), new Node("x"),
+                new Node("y"));
+        // the previous clique of x and y is taken as it is, even if it was not computed from the graph
+        final Clique unaffected = new Clique(ImmutableSet.of(new Node("x"), new Node("y")));
+
+        final DeltaBronKerbosch sut = new DeltaBronKerbosch(current.freeze(),
+                GraphDelta.between(previous.freeze(), current.freeze()).getAffectedNodes(),
+                Flowable.just(unaffected, new Clique(ImmutableSet.of(new Node("a"), new Node("b")))),
+                PivotStrategy.TOMITA);
+
+        Assert.assertEquals(sut.compute(nodes), ImmutableSet.of(unaffected,
+                new Clique(ImmutableSet.of(new Node("a"), new Node("b"), new Node("c")))));
+    }
+
+    @Test
+    public void matchesAFullComputationOnRandomChanges() {
+        for (int seed = 0; seed < 10; seed++) {
+            final Random random = new Random(seed);
+            final Graph previous = new Graph();
+            final Graph current = new Graph();
+            for (int i = 0; i < 150; i++) {
+                for (int j = i + 1; j < 150; j++) {
+                    final boolean edge = random.nextDouble() < 0.1;
+                    final boolean changed = random.nextDouble() < 0.01;
+                    if (edge) {
+                        previous.addEdge(new Node("v" + i), new Node("v" + j));
+                    }
+                    // the last nodes were removed from the input, so their edges are gone
+                    if (edge != changed && j < 140) {
+                        current.addEdge(new Node("v" + i), new Node("v" + j));
+                    }
+                }
+            }
+            final Set<Node> nodes = getNodes(150);
+
+            final GraphDelta delta = GraphDelta.between(previous.freeze(), current.freeze());
+            Assert.assertTrue(delta.getAddedEdges() + delta.getRemovedEdges() > 0);
+            final DeltaBronKerbosch sut = new DeltaBronKerbosch(current.freeze(), delta.getAffectedNodes(),
+                    Flowable.fromIterable(withoutSingleNodes(new BronKerbosch(previous).compute(nodes))),
+                    PivotStrategy.TOMITA);
+
+            final Set<Clique> result = sut.compute(nodes);
+            Assert.assertTrue(Sets.symmetricDifference(withoutSingleNodes(result),
+                    withoutSingleNodes(new BronKerbosch(current).compute(nodes))).isEmpty());
+            Assert.assertTrue(sut.getRecursionCalls() > 0);
+            Assert.assertTrue(sut.getMaxDepth() > 0);
+        }
+    }
+
+    @Test
+    public void readsThePreviousCliquesOnlyUntilTheBudgetIsUsedUp() {
+        final Graph graph = new Graph();
+        graph.addEdge(new Node("a"), new Node("b"));
+        final AtomicInteger read = new AtomicInteger();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final Flowable<Clique> previous = Flowable.range(0, 1000)
+                .map(i -> new Clique(ImmutableSet.of(new Node("x" + i), new Node("y" + i))))
+                .doOnNext(clique -> read.incrementAndGet())
+                .doOnCancel(() -> cancelled.set(true));
+        final Set<Node> nodes = previous.flatMapIterable(Clique::getNodes).collect(HashSet<Node>::new, Set::add)
+                .blockingGet();
+        read.set(0);
+        final DeltaBronKerbosch sut = new DeltaBronKerbosch(graph.freeze(), ImmutableSet.of(), previous,
+                PivotStrategy.TOMITA);
+
+        final List<Clique> result = new ArrayList<>();
+        sut.compute(nodes, SolverBudget.unlimited().withMaxCliques(10), result::add);
+
+        Assert.assertEquals(result.size(), 10);
+        Assert.assertTrue(cancelled.get());
+        Assert.assertTrue(read.get() < 1000);
+    }
+
+    @Test
+    public void stopsAtTheTimeLimitInManySmallNeighborhoods() {
+        // every node is affected, and the recursion in each neighborhood makes far less calls than the
+        // interval at which the clock is read
+        final Graph graph = new Graph();
+        for (int i = 0; i < 20000; i++) {
+            graph.addEdge(new Node("a" + i), new Node("b" + i));
+            graph.addEdge(new Node("b" + i), new Node("c" + i));
+            graph.addEdge(new Node("a" + i), new Node("c" + i));
+        }
+        final CompactGraph current = graph.freeze();
+        final Set<Node> nodes = new HashSet<>();
+        for (int id = 0; id < current.getNodeCount(); id++) {
+            nodes.add(current.getNode(id));
+        }
+        final DeltaBronKerbosch sut = new DeltaBronKerbosch(current,
+                GraphDelta.between(new Graph().freeze(), current).getAffectedNodes(), Flowable.empty(),
+                PivotStrategy.TOMITA);
+
+        final List<Clique> result = new ArrayList<>();
+        sut.compute(nodes, SolverBudget.unlimited().withTimeLimit(1, TimeUnit.MILLISECONDS), result::add);
+
+        Assert.assertEquals(sut.getCompletion(), SolverBudget.Completion.TIME_LIMIT);
+        Assert.assertTrue(result.size() < 20000);
+        result.forEach(clique -> Assert.assertEquals(clique.getNodes().size(), 3));
+    }
+
+    private static Set<Clique> withoutSingleNodes(final Set<Clique> cliques) {
+        return cliques.stream().filter(clique -> clique.getNodes().size() >= 2).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,153 @@
+package cliquefinder.solver;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+
+import static cliquefinder.solver.BronKerboschTest.getGraphFromFile;
+import static cliquefinder.solver.BronKerboschTest.getNodes;
+import static cliquefinder.solver.BronKerboschTest.getRandomGraph;
+
+/**
+ * Unit tests for writing and mapping the binary graph snapshots.
+ * Created by qr4 on 24.08.17.
+ */
+public class GraphSnapshotTest {
+    private Path file;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        file = Files.createTempFile("graph", ".snapshot");
+    }
+
+    @AfterMethod
+    public void cleanUp() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void loadsTheSameGraph() throws IOException {
+        final CompactGraph graph = getRandomGraph(7, 200, 0.05).freeze();
+        GraphSnapshot.write(graph, file);
+
+        final CompactGraph sut = GraphSnapshot.load(file);
+
+        Assert.assertEquals(sut.getNodeCount(), graph.getNodeCount());
+        Assert.assertEquals(sut.getEdgeCount(), graph.getEdgeCount());
+        for (int id = 0; id < graph.getNodeCount(); id++) {
+            Assert.assertEquals(sut.getNode(id), graph.getNode(id));
+            Assert.assertEquals(sut.getNeighbors(id), graph.getNeighbors(id));
+        }
+        Assert.assertTrue(sut.isAdjacent(0, graph.getNeighbors(0)[0]));
+        Assert.assertEquals(sut.countCommonNeighbors(0, 1), graph.countCommonNeighbors(0, 1));
+
+        final Set<Node> nodes = getNodes(200);
+        Assert.assertEquals(new DegeneracyBronKerbosch(sut, PivotStrategy.TOMITA).compute(nodes),
+                new DegeneracyBronKerbosch(graph, PivotStrategy.TOMITA).compute(nodes));
+    }
+
+    @Test
+    public void keepsTheGroups() throws IOException {
+        final CompactGraph graph = ConcurrentGraphBuilderTest.getRandomGroupedGraph(3, 100);
+        GraphSnapshot.write(graph, file);
+
+        final CompactGraph sut = GraphSnapshot.load(file);
+
+        Assert.assertEquals(sut.getGroupCount(), graph.getGroupCount());
+        Assert.assertEquals(sut.getMembershipCount(), graph.getMembershipCount());
+        for (int group = 0; group < graph.getGroupCount(); group++) {
+            Assert.assertEquals(sut.getGroupMembers(group), graph.getGroupMembers(group));
+        }
+        for (int id = 0; id < graph.getNodeCount(); id++) {
+            Assert.assertEquals(sut.getNeighbors(id), graph.getNeighbors(id));
+        }
+    }
+
+    @Test
+    public void keepsNonAsciiNamesAndEmptyGraphs() throws IOException {
+        final Graph graph = new Graph();
+        graph.addEdge(new Node("jürgen"), new Node("zoë"));
+        GraphSnapshot.write(graph.freeze(), file);
+        Assert.assertEquals(GraphSnapshot.load(file).getId(new Node("zoë")), 1);
+        Assert.assertTrue(GraphSnapshot.load(file).isAdjacent(0, 1));
+
+        GraphSnapshot.write(new Graph().freeze(), file);
+        Assert.assertEquals(GraphSnapshot.load(file).getNodeCount(), 0);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void rejectsTruncatedSnapshots() throws IOException {
+        GraphSnapshot.write(getGraphFromFile("wikipedia_example_graph.txt").freeze(), file);
+        final byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+
+        GraphSnapshot.load(file);
+    }
+
+    @Test
+    public void rejectsCorruptOffsetsAndIds() throws IOException {
+        final Graph graph = new Graph();
+        graph.addEdge(new Node("a"), new Node("b"));
+        graph.addEdge(new Node("b"), new Node("c"));
+        GraphSnapshot.write(graph.freeze(), file);
+        final byte[] bytes = Files.readAllBytes(file);
+
+        // the header takes 32 bytes, the name offsets 16 and the names 4, then come the offsets of the CSR
+        // (0, 1, 3, 4) and the neighbors (1, 0, 2, 1), then the empty groups and the 4 membership offsets
+        final int[][] corruptions = {
+                {36, 5},   // a name that ends behind the name table
+                {52, 1},   // the first neighbor offset is not 0
+                {56, 4},   // decreasing neighbor offsets
+                {64, 3},   // the last neighbor offset is not the neighbor count
+                {68, 3},   // a neighbor which is no node
+                {72, -1},  // a negative neighbor
+                {72, 2, 76, 0},  // the neighbors of b are not ascending
+                {76, 0},   // b has the neighbor 0 twice
+                {100, 1},  // more memberships than stored
+        };
+        for (final int[] corruption : corruptions) {
+            final ByteBuffer corrupt = ByteBuffer.wrap(bytes.clone()).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < corruption.length; i += 2) {
+                corrupt.putInt(corruption[i], corruption[i + 1]);
+            }
+            Files.write(file, corrupt.array());
+            try {
+                GraphSnapshot.load(file);
+                Assert.fail("The snapshot with " + Arrays.toString(corruption) + " has to be rejected.");
+            } catch (final IOException e) {
+                Assert.assertTrue(e.getMessage().contains("truncated or corrupt"), e.getMessage());
+            }
+        }
+        Files.write(file, bytes);
+        Assert.assertEquals(GraphSnapshot.load(file).getEdgeCount(), 2);
+
+        // the last int is the last group of the last node with a group
+        final CompactGraph grouped = ConcurrentGraphBuilderTest.getRandomGroupedGraph(3, 100);
+        GraphSnapshot.write(grouped, file);
+        final ByteBuffer corrupt = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        corrupt.putInt(corrupt.capacity() - 4, grouped.getGroupCount());
+        Files.write(file, corrupt.array());
+        try {
+            GraphSnapshot.load(file);
+            Assert.fail("A membership in a group which does not exist has to be rejected.");
+        } catch (final IOException e) {
+            Assert.assertTrue(e.getMessage().contains("truncated or corrupt"), e.getMessage());
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        Files.write(file, "v1 v2\nv2 v3\nv3 v1\n".getBytes());
+
+        GraphSnapshot.load(file);
+    }
+}
@@ -4,6 +4,9 @@ import com.google.common.collect.ImmutableSet;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import static cliquefinder.solver.BronKerboschTest.getGraphFromFile;
+import static cliquefinder.solver.BronKerboschTest.getNodes;
+
 /**
  * Unit tests for our graph representation.
  * Created by qr4 on 30.07.17.
@@ -53,4 +56,13 @@ public class GraphTest {
         final Graph g = new Graph();
         Assert.assertEquals(g.getAdjacentNodes(new Node("testNode")), ImmutableSet.of());
     }
+
+    @Test
+    public void computesTheCoreOfTheInducedSubgraph() {
+        final Graph g = getGraphFromFile("wikipedia_example_graph.txt");
+
+        Assert.assertEquals(g.getCore(getNodes(7), 2), ImmutableSet.of(new Node("v1"), new Node("v2"),
+                new Node("v3"), new Node("v4"), new Node("v5")));
+        Assert.assertEquals(g.getCore(getNodes(7), 3), ImmutableSet.of());
+    }
 }
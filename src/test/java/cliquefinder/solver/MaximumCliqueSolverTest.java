@@ -0,0 +1,107 @@
+package cliquefinder.solver;
+
+import com.google.common.collect.ImmutableSet;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static cliquefinder.solver.BronKerboschTest.getGraphFromFile;
+import static cliquefinder.solver.BronKerboschTest.getNodes;
+import static cliquefinder.solver.BronKerboschTest.getRandomGraph;
+
+/**
+ * Unit tests for the maximum clique solver.
+ * Created by qr4 on 09.08.17.
+ */
+public class MaximumCliqueSolverTest {
+    @Test
+    public void testWikiExampleGraph() {
+        final MaximumCliqueSolver sut = new MaximumCliqueSolver(getGraphFromFile("wikipedia_example_graph.txt"));
+        final Set<Clique> result = sut.compute(Stream.of("v1", "v2", "v3", "v4", "v5", "v6")
+                .map(Node::new)
+                .collect(Collectors.toSet()));
+
+        Assert.assertEquals(result, ImmutableSet.of(
+                new Clique(ImmutableSet.of(new Node("v1"), new Node("v2"), new Node("v5")))));
+    }
+
+    @Test
+    public void testEmptyInputNodes() {
+        final MaximumCliqueSolver sut = new MaximumCliqueSolver(getGraphFromFile("wikipedia_example_graph.txt"));
+        Assert.assertEquals(sut.compute(ImmutableSet.of()), ImmutableSet.of());
+    }
+
+    @Test
+    public void testGraphWithoutEdges() {
+        final MaximumCliqueSolver sut = new MaximumCliqueSolver(new Graph());
+        final Set<Clique> result = sut.compute(ImmutableSet.of(new Node("v1")));
+
+        Assert.assertEquals(result, ImmutableSet.of(new Clique(ImmutableSet.of(new Node("v1")))));
+    }
+
+    /**
+     * The maximum clique has to be one of the largest maximal cliques which Bron-Kerbosch enumerates.
+     */
+    @Test
+    public void findsLargestMaximalCliqueOnRandomGraphs() {
+        for (int seed = 0; seed < 10; seed++) {
+            final Graph graph = getRandomGraph(seed, 120, 0.4);
+            final Set<Node> nodes = getNodes(120);
+
+            final Set<Clique> allCliques = new BitSetBronKerbosch(graph).compute(nodes);
+            final int maxSize = allCliques.stream().mapToInt(c -> c.getNodes().size()).max().getAsInt();
+
+            final Set<Clique> result = new MaximumCliqueSolver(graph).compute(nodes);
+            Assert.assertEquals(result.size(), 1);
+            final Clique maximum = result.iterator().next();
+            Assert.assertEquals(maximum.getNodes().size(), maxSize);
+            Assert.assertTrue(allCliques.contains(maximum));
+        }
+    }
+
+    @Test
+    public void findsPlantedClique() {
+        final Graph graph = getRandomGraph(7, 300, 0.05);
+        final Set<Node> planted = getNodes(300).stream()
+                .filter(node -> Integer.parseInt(node.getName().substring(1)) % 15 == 0)
+                .collect(Collectors.toSet());
+        planted.forEach(n1 -> planted.forEach(n2 -> graph.addEdge(n1, n2)));
+
+        final MaximumCliqueSolver sut = new MaximumCliqueSolver(graph);
+        Assert.assertEquals(sut.compute(getNodes(300)), ImmutableSet.of(new Clique(planted)));
+    }
+
+    @Test
+    public void findsTheCliquesOfGroupedGraphs() {
+        for (int seed = 0; seed < 5; seed++) {
+            final CompactGraph graph = ConcurrentGraphBuilderTest.getRandomGroupedGraph(seed, 120);
+            final Set<Node> nodes = getNodes(120);
+            final int maximumSize = new BronKerbosch(graph.toGraph()).compute(nodes).stream()
+                    .mapToInt(clique -> clique.getNodes().size()).max().getAsInt();
+
+            final Set<Clique> result = new MaximumCliqueSolver(graph).compute(nodes);
+            Assert.assertEquals(result.iterator().next().getNodes().size(), maximumSize);
+        }
+    }
+
+    /**
+     * The group is the maximum clique, so it is found without branching on any node.
+     */
+    @Test
+    public void startsWithTheLargestGroup() {
+        final ConcurrentGraphBuilder builder = new ConcurrentGraphBuilder();
+        for (int i = 0; i < 40; i++) {
+            builder.addGroupMember("org", "v" + i);
+            builder.addEdge("v" + i, "v" + (i + 40));
+        }
+        final MaximumCliqueSolver sut = new MaximumCliqueSolver(builder.freeze());
+
+        final Set<Clique> result = sut.compute(getNodes(80));
+
+        Assert.assertEquals(result.iterator().next().getNodes(), getNodes(40));
+        Assert.assertEquals(sut.getRecursionCalls(), 0);
+    }
+}
@@ -0,0 +1,59 @@
+package cliquefinder.solver;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+import static cliquefinder.solver.BronKerboschTest.getGraphFromFile;
+import static cliquefinder.solver.BronKerboschTest.getNodes;
+import static cliquefinder.solver.BronKerboschTest.getRandomGraph;
+
+/**
+ * Unit tests for the fork/join Bron-Kerbosch solver: it has to find exactly the cliques of the sequential one.
+ * Created by qr4 on 04.08.17.
+ */
+public class ParallelBronKerboschTest {
+    private void assertResultEquals(final Set<Clique> result, final Set<Clique> expected) {
+        Assert.assertTrue(Sets.symmetricDifference(result, expected).isEmpty());
+    }
+
+    @Test
+    public void testDisconnectedSCCGraph() {
+        final ParallelBronKerbosch sut = new ParallelBronKerbosch(getGraphFromFile("two_scc_graph.txt"), 2);
+        final Set<Clique> result = sut.compute(getNodes(7));
+
+        assertResultEquals(result, ImmutableSet.of(
+                new Clique(ImmutableSet.of(new Node("v0"))),
+                new Clique(ImmutableSet.of(new Node("v1"), new Node("v2"), new Node("v3"))),
+                new Clique(ImmutableSet.of(new Node("v4"), new Node("v5"), new Node("v6")))
+        ));
+    }
+
+    @Test
+    public void testEmptyInputNodes() {
+        final ParallelBronKerbosch sut = new ParallelBronKerbosch(getGraphFromFile("two_scc_graph.txt"), 2);
+        assertResultEquals(sut.compute(ImmutableSet.of()), ImmutableSet.of());
+    }
+
+    /**
+     * The graphs are large enough so that the branches are split into several levels of tasks.
+     */
+    @Test
+    public void matchesSequentialSolverOnRandomGraphs() {
+        for (int seed = 0; seed < 10; seed++) {
+            final Graph graph = getRandomGraph(seed, 200, 0.3);
+            final Set<Node> nodes = getNodes(200);
+
+            assertResultEquals(new ParallelBronKerbosch(graph, 4).compute(nodes),
+                    new BitSetBronKerbosch(graph).compute(nodes));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsNonPositiveParallelism() {
+        new ParallelBronKerbosch(new Graph(), 0);
+    }
+}
@@ -0,0 +1,73 @@
+package cliquefinder.solver;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+import static cliquefinder.solver.BronKerboschTest.getGraphFromFile;
+import static cliquefinder.solver.BronKerboschTest.getNodes;
+import static cliquefinder.solver.BronKerboschTest.getRandomGraph;
+
+/**
+ * Unit tests for the pivot strategies of the bitset solvers.
+ * Created by qr4 on 07.08.17.
+ */
+public class PivotStrategyTest {
+    @Test
+    public void tomitaPrefersNodeFromXCoveringP() {
+        // v1 - v2 - v3 - v1 is a triangle, v7 is only adjacent to v1 and v2
+        final Graph graph = getGraphFromFile("two_scc_graph.txt");
+        graph.addEdge(new Node("v7"), new Node("v1"));
+        graph.addEdge(new Node("v7"), new Node("v2"));
+        final IndexedGraph indexedGraph = IndexedGraph.of(graph, ImmutableSet.of(
+                new Node("v1"), new Node("v2"), new Node("v3"), new Node("v7")));
+
+        // ids are ordered by name: v1 -> 0, v2 -> 1, v3 -> 2, v7 -> 3
+        final long[] p = new long[indexedGraph.words()];
+        BitSets.set(p, 0);
+        BitSets.set(p, 1);
+        final long[] x = new long[indexedGraph.words()];
+        BitSets.set(x, 3);
+
+        Assert.assertEquals(PivotStrategy.TOMITA.choosePivot(indexedGraph, p, x), 3);
+        Assert.assertEquals(PivotStrategy.MAX_DEGREE.choosePivot(indexedGraph, p, x), 0);
+    }
+
+    @Test
+    public void strategiesFindTheSameCliques() {
+        for (int seed = 0; seed < 5; seed++) {
+            final Graph graph = getRandomGraph(seed, 100, 0.5);
+            final Set<Node> nodes = getNodes(100);
+
+            final Set<Clique> tomita = new BitSetBronKerbosch(graph, PivotStrategy.TOMITA).compute(nodes);
+            final Set<Clique> maxDegree = new BitSetBronKerbosch(graph, PivotStrategy.MAX_DEGREE).compute(nodes);
+            Assert.assertTrue(Sets.symmetricDifference(tomita, maxDegree).isEmpty());
+        }
+    }
+
+    @Test
+    public void tomitaNeedsFewerRecursiveCallsOnDenseGraphs() {
+        final Graph graph = getRandomGraph(42, 100, 0.7);
+        final Set<Node> nodes = getNodes(100);
+
+        final BitSetBronKerbosch tomita = new BitSetBronKerbosch(graph, PivotStrategy.TOMITA);
+        final BitSetBronKerbosch maxDegree = new BitSetBronKerbosch(graph, PivotStrategy.MAX_DEGREE);
+        tomita.compute(nodes);
+        maxDegree.compute(nodes);
+
+        Assert.assertTrue(tomita.getRecursionCalls() > 0);
+        Assert.assertTrue(tomita.getRecursionCalls() < maxDegree.getRecursionCalls());
+    }
+
+    @Test
+    public void countsRecursiveCallsOfSetBasedSolver() {
+        final BronKerbosch sut = new BronKerbosch(getGraphFromFile("simple_graph.txt"));
+        sut.compute(ImmutableSet.of(new Node("v1"), new Node("v2")));
+
+        // the root call, the branch on the pivot and the nested branch on the other node
+        Assert.assertEquals(sut.getRecursionCalls(), 3);
+    }
+}
@@ -0,0 +1,206 @@
+package cliquefinder.solver;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static cliquefinder.solver.BronKerboschTest.getNodes;
+import static cliquefinder.solver.BronKerboschTest.getRandomGraph;
+
+/**
+ * Unit tests for the budgets of the solvers: a used up budget stops the computation, and everything reported
+ * until then is still a (large enough) maximal clique.
+ * Created by qr4 on 27.08.17.
+ */
+public class SolverBudgetTest {
+
+    // a Moon-Moser graph: n / 3 independent triples with all the edges between them, so it has 3^(n/3)
+    // maximal cliques, all of size n / 3
+    private static Graph getMoonMoserGraph(final int n) {
+        final Graph graph = new Graph();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (i / 3 != j / 3) {
+                    graph.addEdge(new Node("v" + i), new Node("v" + j));
+                }
+            }
+        }
+        return graph;
+    }
+
+    private static List<Clique> computeAll(final CliqueSolver solver, final Set<Node> nodes,
+                                           final SolverBudget budget) {
+        final List<Clique> result = new ArrayList<>();
+        solver.compute(nodes, budget, clique -> {
+            synchronized (result) {
+                result.add(clique);
+            }
+        });
+        return result;
+    }
+
+    private static List<CliqueSolver> getEnumerators(final Graph graph) {
+        final List<CliqueSolver> solvers = new ArrayList<>();
+        solvers.add(new BronKerbosch(graph));
+        solvers.add(new BitSetBronKerbosch(graph));
+        solvers.add(new DegeneracyBronKerbosch(graph));
+        solvers.add(new ParallelBronKerbosch(graph, 4));
+        return solvers;
+    }
+
+    @Test
+    public void testUnlimitedBudgetIsComplete() {
+        final Graph graph = getRandomGraph(7, 60, 0.3);
+        final Set<Clique> expected = new BronKerbosch(graph).compute(getNodes(60));
+
+        for (final CliqueSolver sut : getEnumerators(graph)) {
+            final String name = sut.getClass().getSimpleName();
+            final List<Clique> result = computeAll(sut, getNodes(60), SolverBudget.unlimited());
+
+            Assert.assertEquals(sut.getCompletion(), SolverBudget.Completion.COMPLETE, name);
+            Assert.assertEquals(result.size(), expected.size());
+            Assert.assertEquals(result.stream().collect(Collectors.toSet()), expected);
+        }
+    }
+
+    @Test
+    public void testMaxDepthIsTheLargestR() {
+        // all the maximal cliques have 10 nodes, and no branch can go deeper than a clique
+        final Graph graph = getMoonMoserGraph(30);
+        final List<CliqueSolver> solvers = getEnumerators(graph);
+        solvers.add(new MaximumCliqueSolver(graph));
+
+        for (final CliqueSolver sut : solvers) {
+            computeAll(sut, getNodes(30), SolverBudget.unlimited());
+            Assert.assertEquals(sut.getMaxDepth(), 10, sut.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    public void testTimeLimitStopsWithMaximalCliques() {
+        // 3^20 cliques, which none of the solvers enumerates in the time of a test
+        final Graph graph = getMoonMoserGraph(60);
+
+        for (final CliqueSolver sut : getEnumerators(graph)) {
+            final String name = sut.getClass().getSimpleName();
+            final long start = System.nanoTime();
+            final List<Clique> result = computeAll(sut, getNodes(60),
+                    SolverBudget.unlimited().withTimeLimit(100, TimeUnit.MILLISECONDS));
+
+            Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5), name);
+            Assert.assertEquals(sut.getCompletion(), SolverBudget.Completion.TIME_LIMIT, name);
+            Assert.assertFalse(result.isEmpty(), name);
+            result.forEach(clique -> Assert.assertEquals(clique.getNodes().size(), 20));
+        }
+    }
+
+    @Test
+    public void testMaxRecursionCalls() {
+        final Graph graph = getMoonMoserGraph(30);
+
+        for (final CliqueSolver sut : getEnumerators(graph)) {
+            final String name = sut.getClass().getSimpleName();
+            computeAll(sut, getNodes(30), SolverBudget.unlimited().withMaxRecursionCalls(1000));
+
+            Assert.assertEquals(sut.getCompletion(), SolverBudget.Completion.RECURSION_LIMIT, name);
+        }
+    }
+
+    @Test
+    public void testMaxCliques() {
+        final Graph graph = getMoonMoserGraph(30);
+
+        for (final CliqueSolver sut : getEnumerators(graph)) {
+            final String name = sut.getClass().getSimpleName();
+            final List<Clique> result = computeAll(sut, getNodes(30),
+                    SolverBudget.unlimited().withMaxCliques(100));
+
+            Assert.assertEquals(sut.getCompletion(), SolverBudget.Completion.CLIQUE_LIMIT, name);
+            Assert.assertEquals(result.size(), 100, name);
+            Assert.assertEquals(result.stream().distinct().count(), 100);
+        }
+    }
+
+    @Test
+    public void testMinCliqueSizeFiltersTheResult() {
+        final Graph graph = getRandomGraph(11, 60, 0.3);
+        final Set<Clique> expected = new BronKerbosch(graph).compute(getNodes(60)).stream()
+                .filter(clique -> clique.getNodes().size() >= 4)
+                .collect(Collectors.toSet());
+        Assert.assertFalse(expected.isEmpty());
+
+        for (final CliqueSolver sut : getEnumerators(graph)) {
+            final String name = sut.getClass().getSimpleName();
+            final List<Clique> result = computeAll(sut, getNodes(60),
+                    SolverBudget.unlimited().withMinCliqueSize(4));
+
+            Assert.assertEquals(sut.getCompletion(), SolverBudget.Completion.COMPLETE, name);
+            Assert.assertEquals(result.stream().collect(Collectors.toSet()), expected);
+        }
+    }
+
+    @Test
+    public void testMinCliqueSizePrunesTheSearch() {
+        final Graph graph = getRandomGraph(13, 80, 0.3);
+        final Set<Clique> expected = new BronKerbosch(graph).compute(getNodes(80)).stream()
+                .filter(clique -> clique.getNodes().size() >= 5)
+                .collect(Collectors.toSet());
+        Assert.assertFalse(expected.isEmpty());
+
+        for (final CliqueSolver sut : getEnumerators(graph)) {
+            final String name = sut.getClass().getSimpleName();
+            computeAll(sut, getNodes(80), SolverBudget.unlimited());
+            final long allCalls = sut.getRecursionCalls();
+            final List<Clique> result = computeAll(sut, getNodes(80),
+                    SolverBudget.unlimited().withMinCliqueSize(5));
+
+            Assert.assertEquals(result.stream().collect(Collectors.toSet()), expected, name);
+            Assert.assertEquals(result.size(), expected.size(), name);
+            Assert.assertTrue(sut.getRecursionCalls() < allCalls, name);
+        }
+    }
+
+    @Test
+    public void testMaximumCliqueSolverWithMinCliqueSize() {
+        final Graph graph = getRandomGraph(13, 80, 0.3);
+        final MaximumCliqueSolver sut = new MaximumCliqueSolver(graph);
+        final int maximum = sut.compute(getNodes(80)).iterator().next().getNodes().size();
+
+        final List<Clique> result = computeAll(sut, getNodes(80),
+                SolverBudget.unlimited().withMinCliqueSize(maximum));
+        Assert.assertEquals(result.size(), 1);
+        Assert.assertEquals(result.get(0).getNodes().size(), maximum);
+
+        Assert.assertTrue(computeAll(sut, getNodes(80),
+                SolverBudget.unlimited().withMinCliqueSize(maximum + 1)).isEmpty());
+        Assert.assertEquals(sut.getCompletion(), SolverBudget.Completion.COMPLETE);
+    }
+
+    @Test
+    public void testMaximumCliqueSolverReportsTheBestSoFar() {
+        final Graph graph = getRandomGraph(5, 120, 0.6);
+        final MaximumCliqueSolver sut = new MaximumCliqueSolver(graph);
+
+        final List<Clique> result = computeAll(sut, getNodes(120),
+                SolverBudget.unlimited().withMaxRecursionCalls(10));
+
+        Assert.assertEquals(sut.getCompletion(), SolverBudget.Completion.RECURSION_LIMIT);
+        Assert.assertEquals(result.size(), 1);
+        final Clique clique = result.get(0);
+        for (final Node a : clique.getNodes()) {
+            for (final Node b : clique.getNodes()) {
+                Assert.assertTrue(a.equals(b) || graph.getAdjacentNodes(a).contains(b));
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNonPositiveLimitsAreRejected() {
+        SolverBudget.unlimited().withMaxCliques(0);
+    }
+}